@@ -9,17 +9,48 @@ import fit.exception.NoSuchMethodFitFailureException;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-public abstract class Binding {
+public abstract class Binding implements Cloneable {
   private static Pattern regexMethodPattern = Pattern.compile("(.+)(?:\\?\\?|!!)");
   private static Pattern methodPattern = Pattern.compile("(.+)(?:\\(\\)|\\?|!)");
   private static Pattern fieldPattern = Pattern.compile("=?([^=]+)=?");
 
   public TypeAdapter adapter;
 
+  // How each header of each target class was bound, so a table repeated many times only
+  // matches the header patterns and looks up the field or method the first time.
+  private static final Map<Class<?>, Map<String, BindingTemplate>> templates =
+    new HashMap<Class<?>, Map<String, BindingTemplate>>();
+
   public static Binding create(Fixture fixture, String name) throws Throwable {
+    Class<?> targetClass = fixture.getTargetClass();
+    BindingTemplate template = getTemplate(targetClass, name);
+    if (template == null) {
+      template = makeTemplate(fixture, name);
+      putTemplate(targetClass, name, template);
+    }
+    return template.newBinding(fixture);
+  }
+
+  private static synchronized BindingTemplate getTemplate(Class<?> targetClass, String name) {
+    Map<String, BindingTemplate> templatesForClass = templates.get(targetClass);
+    return templatesForClass == null ? null : templatesForClass.get(name);
+  }
+
+  private static synchronized void putTemplate(Class<?> targetClass, String name, BindingTemplate template) {
+    Map<String, BindingTemplate> templatesForClass = templates.get(targetClass);
+    if (templatesForClass == null) {
+      templatesForClass = new HashMap<String, BindingTemplate>();
+      templates.put(targetClass, templatesForClass);
+    }
+    templatesForClass.put(name, template);
+  }
+
+  private static BindingTemplate makeTemplate(Fixture fixture, String name) {
     Binding binding = null;
 
     if (name.startsWith("="))
@@ -33,28 +64,32 @@ public abstract class Binding {
     else if (fieldPattern.matcher(name).matches())
       binding = new SetBinding();
 
+    BindingTemplate template;
     if (binding == null)
-      binding = new NullBinding();
+      template = new BindingTemplate(new NullBinding());
     else
-      binding.adapter = makeAdapter(fixture, name);
+      template = makeMemberTemplate(binding, fixture, name);
 
-    return binding;
+    return template;
   }
 
-  private static TypeAdapter makeAdapter(Fixture fixture, String name) throws Throwable {
+  private static BindingTemplate makeMemberTemplate(Binding binding, Fixture fixture, String name) {
+    BindingTemplate template = new BindingTemplate(binding);
     Matcher regexMatcher = regexMethodPattern.matcher(name);
-    if (regexMatcher.find())
-      return makeAdapterForRegexMethod(name, fixture, regexMatcher);
-    else {
+    if (regexMatcher.find()) {
+      template.method = findMethodOrFail(name, fixture, regexMatcher);
+      template.isRegex = true;
+    } else {
       Matcher methodMatcher = methodPattern.matcher(name);
       if (methodMatcher.find())
-        return makeAdapterForMethod(name, fixture, methodMatcher);
+        template.method = findMethodOrFail(name, fixture, methodMatcher);
       else
-        return makeAdapterForField(name, fixture);
+        template.field = findFieldOrFail(name, fixture);
     }
+    return template;
   }
 
-  private static TypeAdapter makeAdapterForField(String name, Fixture fixture) {
+  private static Field findFieldOrFail(String name, Fixture fixture) {
     Field field = null;
     if (GracefulNamer.isGracefulName(name)) {
       String simpleName = GracefulNamer.disgrace(name).toLowerCase();
@@ -72,23 +107,15 @@ public abstract class Binding {
 
     if (field == null)
       throw new NoSuchFieldFitFailureException(name);
-    return TypeAdapter.on(fixture, field);
-  }
-
-  private static TypeAdapter makeAdapterForMethod(String name, Fixture fixture, Matcher matcher) {
-    Method method = getMethod(name, fixture, matcher);
-
-    if (method == null)
-      throw new NoSuchMethodFitFailureException(name);
-    return TypeAdapter.on(fixture, method, false);
+    return field;
   }
 
-  private static TypeAdapter makeAdapterForRegexMethod(String name, Fixture fixture, Matcher matcher) {
+  private static Method findMethodOrFail(String name, Fixture fixture, Matcher matcher) {
     Method method = getMethod(name, fixture, matcher);
 
     if (method == null)
       throw new NoSuchMethodFitFailureException(name);
-    return TypeAdapter.on(fixture, method, true);
+    return method;
   }
 
   private static Method getMethod(String name, Fixture fixture, Matcher matcher) {
@@ -136,6 +163,36 @@ public abstract class Binding {
 
   public abstract void doCell(Fixture fixture, Parse cell) throws Throwable;
 
+  protected Object clone() {
+    try {
+      return super.clone();
+    } catch (CloneNotSupportedException e) {
+      return null;
+    }
+  }
+
+  // The kind of binding a header asks for and the field or method it names.  Every binding
+  // made from it gets a type adapter of its own, holding the fixture it works on.
+  private static class BindingTemplate {
+    private final Binding prototype;
+    private Field field;
+    private Method method;
+    private boolean isRegex;
+
+    BindingTemplate(Binding prototype) {
+      this.prototype = prototype;
+    }
+
+    Binding newBinding(Fixture fixture) {
+      Binding binding = (Binding) prototype.clone();
+      if (field != null)
+        binding.adapter = TypeAdapter.on(fixture, field);
+      else if (method != null)
+        binding.adapter = TypeAdapter.on(fixture, method, isRegex);
+      return binding;
+    }
+  }
+
   public static class SaveBinding extends Binding {
     public void doCell(Fixture fixture, Parse cell) {
       try {
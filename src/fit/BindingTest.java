@@ -119,6 +119,20 @@ public class BindingTest extends RegexTestCase {
     assertEquals("123  = 999", cell1.text());
   }
 
+  public void testBindingsForTheSameHeaderWorkOnTheirOwnFixtures() throws Throwable {
+    TestFixture otherFixture = new TestFixture();
+    Binding binding = Binding.create(fixture, "intField");
+    Binding otherBinding = Binding.create(otherFixture, "intField");
+    assertNotSame(binding, otherBinding);
+    assertNotSame(binding.adapter, otherBinding.adapter);
+    assertSame(binding.adapter.field, otherBinding.adapter.field);
+
+    binding.doCell(fixture, cell1);
+    otherBinding.doCell(otherFixture, cell2);
+    assertEquals(123, fixture.intField);
+    assertEquals(321, otherFixture.intField);
+  }
+
   public void testUseOfGracefulNamingForMethods() throws Throwable {
     checkForMethodBinding("intMethod()", true);
     checkForMethodBinding("int Method?", true);
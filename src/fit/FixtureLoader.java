@@ -9,8 +9,10 @@ package fit;
 import fit.exception.CouldNotLoadComponentFitFailureException;
 import fit.exception.NoSuchFixtureException;
 
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
 
 // REFACTOR The fixture path is really the only part of this
@@ -39,6 +41,11 @@ public class FixtureLoader {
     }
   };
 
+  // What each table name resolved to on the current fixture path, and the table names
+  // that resolved to nothing.  Both are forgotten when the path grows.
+  private final Map<String, Class<?>> resolvedClasses = new HashMap<String, Class<?>>();
+  private final Set<String> unresolvedNames = new HashSet<String>();
+
   public Fixture disgraceThenLoad(String tableName) throws Throwable {
     FixtureName fixtureName = new FixtureName(tableName);
     Fixture fixture = instantiateFirstValidFixtureClass(fixtureName);
@@ -53,11 +60,13 @@ public class FixtureLoader {
   }
 
   public void addPackageToPath(String name) {
-    fixturePathElements.add(name);
+    if (fixturePathElements.add(name)) {
+      resolvedClasses.clear();
+      unresolvedNames.clear();
+    }
   }
 
-  private Fixture instantiateFixture(String fixtureName) throws Throwable {
-    Class<?> classForFixture = loadFixtureClass(fixtureName);
+  private Fixture instantiateFixture(Class<?> classForFixture) throws Throwable {
     FixtureClass fixtureClass = new FixtureClass(classForFixture);
     return fixtureClass.newInstance();
   }
@@ -77,16 +86,30 @@ public class FixtureLoader {
 
   private Fixture instantiateFirstValidFixtureClass(FixtureName fixtureName)
     throws Throwable {
+    return instantiateFixture(resolveFixtureClass(fixtureName));
+  }
+
+  private Class<?> resolveFixtureClass(FixtureName fixtureName) {
+    String tableName = fixtureName.toString();
+    Class<?> resolved = resolvedClasses.get(tableName);
+    if (resolved != null)
+      return resolved;
+    if (unresolvedNames.contains(tableName))
+      throw new NoSuchFixtureException(tableName);
+
     for (Iterator<String> i = fixtureName.getPotentialFixtureClassNames(
       fixturePathElements).iterator(); i.hasNext();) {
       String each = (String) i.next();
       try {
-        return instantiateFixture(each);
+        resolved = loadFixtureClass(each);
+        resolvedClasses.put(tableName, resolved);
+        return resolved;
       }
       catch (NoSuchFixtureException ignoreAndTryTheNextCandidate) {
       }
     }
 
-    throw new NoSuchFixtureException(fixtureName.toString());
+    unresolvedNames.add(tableName);
+    throw new NoSuchFixtureException(tableName);
   }
 }
\ No newline at end of file
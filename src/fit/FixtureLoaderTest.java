@@ -6,6 +6,7 @@
 // later.
 package fit;
 
+import fit.exception.NoSuchFixtureException;
 import junit.framework.TestCase;
 
 public class FixtureLoaderTest extends TestCase {
@@ -34,4 +35,22 @@ public class FixtureLoaderTest extends TestCase {
     Fixture fixture = fixtureLoader.disgraceThenLoad("the third");
     assertEquals("fit.TheThirdFixture", fixture.getClass().getName());
   }
-}
\ No newline at end of file
+
+  public void testUnknownFixtureIsFoundOnceItsPackageIsOnThePath() throws Throwable {
+    try {
+      fixtureLoader.disgraceThenLoad("count fixture");
+      fail("should not be found before its package is on the path");
+    }
+    catch (NoSuchFixtureException expected) {
+    }
+    fixtureLoader.addPackageToPath("fitnesse.fixtures");
+    Fixture fixture = fixtureLoader.disgraceThenLoad("count fixture");
+    assertEquals("fitnesse.fixtures.CountFixture", fixture.getClass().getName());
+  }
+
+  public void testEachLoadGivesANewFixture() throws Throwable {
+    Fixture first = fixtureLoader.disgraceThenLoad("fit.FixtureOne");
+    Fixture second = fixtureLoader.disgraceThenLoad("fit.FixtureOne");
+    assertNotSame(first, second);
+  }
+}
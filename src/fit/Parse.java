@@ -42,48 +42,93 @@ public class Parse {
   }
 
   public Parse(String text, String tags[], int level, int offset) throws FitParseException {
-    String lc = text.toLowerCase();
-    int startTag = lc.indexOf("<" + tags[level]);
-    int endTag = lc.indexOf(">", startTag) + 1;
-//		int startEnd = lc.indexOf("</" + tags[level], endTag);
-    int startEnd = findMatchingEndTag(lc, endTag, tags[level], offset);
-    int endEnd = lc.indexOf(">", startEnd) + 1;
-    int startMore = lc.indexOf("<" + tags[level], endEnd);
-    if (startTag < 0 || endTag < 0 || startEnd < 0 || endEnd < 0) {
-      throw new FitParseException("Can't find tag: " + tags[level], offset);
-    }
+    parse(this, text, lowerCaseTags(text), 0, text.length(), tags, level, offset);
+  }
+
+  private Parse() {
+  }
 
-    leader = text.substring(0, startTag);
-    tag = text.substring(startTag, endTag);
-    body = text.substring(endTag, startEnd);
-    end = text.substring(startEnd, endEnd);
-    trailer = text.substring(endEnd);
-
-    if (level + 1 < tags.length) {
-      parts = new Parse(body, tags, level + 1, offset + endTag);
-      body = null;
-    } else { // Check for nested table
-      int index = body.indexOf("<" + tags[0]);
-      if (index >= 0) {
-        parts = new Parse(body, tags, 0, offset + endTag);
-        body = "";
+  // Parses the elements found between start and limit of the text into first and the
+  // Parses that follow it.  Offsets are kept into the one text, and only the leaders,
+  // tags, cell bodies and the last trailer are copied out of it, so parsing stays linear
+  // in the length of the document.
+  private static void parse(Parse first, String text, String lc, int start, int limit, String tags[], int level, int offset)
+    throws FitParseException {
+    String startTagText = "<" + tags[level];
+    for (Parse p = first; ; p = p.more) {
+      int startTag = indexOf(lc, startTagText, 0, start, limit);
+      int endTag = indexOf(lc, ">", startTag, start, limit) + 1;
+      int startEnd = findMatchingEndTag(lc, endTag, tags[level], offset, start, limit);
+      int endEnd = indexOf(lc, ">", startEnd, start, limit) + 1;
+      int startMore = indexOf(lc, startTagText, endEnd, start, limit);
+      if (startTag < 0 || endTag < 0 || startEnd < 0 || endEnd < 0) {
+        throw new FitParseException("Can't find tag: " + tags[level], offset);
       }
+
+      p.leader = text.substring(start, start + startTag);
+      p.tag = text.substring(start + startTag, start + endTag);
+      p.end = text.substring(start + startEnd, start + endEnd);
+
+      if (level + 1 < tags.length) {
+        p.parts = new Parse();
+        parse(p.parts, text, lc, start + endTag, start + startEnd, tags, level + 1, offset + endTag);
+      } else { // Check for nested table
+        int index = indexOf(text, "<" + tags[0], endTag, start, start + startEnd);
+        if (index >= 0) {
+          p.parts = new Parse();
+          parse(p.parts, text, lc, start + endTag, start + startEnd, tags, 0, offset + endTag);
+          p.body = "";
+        } else
+          p.body = text.substring(start + endTag, start + startEnd);
+      }
+
+      if (startMore < 0) {
+        p.trailer = text.substring(start + endEnd, limit);
+        return;
+      }
+      p.more = new Parse();
+      start += endEnd;
+      offset += endEnd;
     }
+  }
 
-    if (startMore >= 0) {
-      more = new Parse(trailer, tags, level, offset + endEnd);
-      trailer = null;
+  // Where s is found in text between start and limit, counted from start; -1 if it is not.
+  // The search stops at limit rather than running on to the end of the document, which
+  // would make parsing quadratic in the number of cells.
+  private static int indexOf(String text, String s, int fromHere, int start, int limit) {
+    char first = s.charAt(0);
+    int last = limit - s.length();
+    for (int i = start + Math.max(fromHere, 0); i <= last; i++) {
+      if (text.charAt(i) == first && text.regionMatches(i, s, 0, s.length()))
+        return i - start;
     }
+    return -1;
+  }
+
+  // Tag names are matched without regard to case; only ASCII letters are folded so the
+  // lowered text lines up character for character with the original.
+  private static String lowerCaseTags(String text) {
+    char[] chars = text.toCharArray();
+    for (int i = 0; i < chars.length; i++) {
+      if (chars[i] >= 'A' && chars[i] <= 'Z')
+        chars[i] += 'a' - 'A';
+    }
+    return new String(chars);
   }
 
   /* Added by Rick Mugridge, Feb 2005 */
   protected static int findMatchingEndTag(String lc, int matchFromHere, String tag, int offset) throws FitParseException {
+    return findMatchingEndTag(lc, matchFromHere, tag, offset, 0, lc.length());
+  }
+
+  private static int findMatchingEndTag(String lc, int matchFromHere, String tag, int offset, int start, int limit)
+    throws FitParseException {
     int fromHere = matchFromHere;
     int count = 1;
     int startEnd = 0;
     while (count > 0) {
-      int embeddedTag = lc.indexOf("<" + tag, fromHere);
-      int embeddedTagEnd = lc.indexOf("</" + tag, fromHere);
+      int embeddedTag = indexOf(lc, "<" + tag, fromHere, start, limit);
+      int embeddedTagEnd = indexOf(lc, "</" + tag, fromHere, start, limit);
       // Which one is closer?
       if (embeddedTag < 0 && embeddedTagEnd < 0)
         throw new FitParseException("Can't find tag: " + tag, offset);
@@ -94,11 +139,11 @@ public class Parse {
       if (embeddedTag < embeddedTagEnd) {
         count++;
         startEnd = embeddedTag;
-        fromHere = lc.indexOf(">", embeddedTag) + 1;
+        fromHere = indexOf(lc, ">", embeddedTag, start, limit) + 1;
       } else if (embeddedTagEnd < embeddedTag) {
         count--;
         startEnd = embeddedTagEnd;
-        fromHere = lc.indexOf(">", embeddedTagEnd) + 1;
+        fromHere = indexOf(lc, ">", embeddedTagEnd, start, limit) + 1;
       }
     }
     return startEnd;
@@ -6,6 +6,9 @@ package fit;
 import fit.exception.FitParseException;
 import junit.framework.TestCase;
 
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
 public class ParseTest extends TestCase {
   public void testParsing() throws Exception {
     Parse p = new Parse("leader<Table foo=2>body</table>trailer", new String[]{"table"});
@@ -46,6 +49,27 @@ public class ParseTest extends TestCase {
     assertEquals("four", p.parts.last().leaf().body);
   }
 
+  public void testLongDocumentPrintsBackUnchanged() throws Exception {
+    StringBuffer document = new StringBuffer("leader\n<TABLE border=\"1\">\n");
+    for (int i = 0; i < 2000; i++)
+      document.append("  <tr>\n    <td>name ").append(i).append("</td> <Td><i>").append(i).append("</i></Td>\n  </tr>\n");
+    document.append("</table>between<table><tr><td>last</td></tr></table>trailer");
+    Parse p = new Parse(document.toString());
+
+    assertEquals(2, p.size());
+    assertEquals(2000, p.parts.size());
+    assertEquals("name 1999", p.at(0, 1999, 0).text());
+    assertEquals("<i>1999</i>", p.at(0, 1999, 1).body);
+    assertEquals("\n", p.at(0, 1999).trailer);
+    assertEquals("between", p.more.leader);
+    assertEquals("trailer", p.more.trailer);
+    assertNull(p.trailer);
+
+    StringWriter printed = new StringWriter();
+    p.print(new PrintWriter(printed));
+    assertEquals(document.toString(), printed.toString());
+  }
+
   public void testParseException() {
     try {
       new Parse("leader<table><tr><th>one</th><th>two</th><th>three</th></tr><tr><td>four</td></tr></table>trailer");
@@ -136,4 +160,28 @@ public class ParseTest extends TestCase {
     assertEquals(1, sub.at(0, 1, 0).size());
   }
 
-}
\ No newline at end of file
+  public void testParsingTimeGrowsLinearlyWithTheRows() throws Exception {
+    parseTableOf(10000);
+    long smallTable = timeToParseTableOf(10000);
+    long largeTable = timeToParseTableOf(40000);
+    assertTrue("10000 rows: " + smallTable + "ms, 40000 rows: " + largeTable + "ms",
+      largeTable < 10 * smallTable + 500);
+  }
+
+  private long timeToParseTableOf(int rows) throws Exception {
+    long start = System.currentTimeMillis();
+    parseTableOf(rows);
+    return System.currentTimeMillis() - start;
+  }
+
+  private void parseTableOf(int rows) throws Exception {
+    StringBuffer html = new StringBuffer("<table>");
+    for (int i = 0; i < rows; i++)
+      html.append("<tr><td>name").append(i).append("</td><td>value</td></tr>\n");
+    html.append("</table>");
+    int count = 0;
+    for (Parse row = new Parse(html.toString()).parts; row != null; row = row.more)
+      count++;
+    assertEquals(rows, count);
+  }
+}
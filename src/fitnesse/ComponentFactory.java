@@ -33,6 +33,12 @@ public class ComponentFactory {
   public static final String CONTENT_FILTER = "ContentFilter";
   public static final String REVISION_CONTROLLER = "RevisionController";
   public static final String DEFAULT_NEWPAGE_CONTENT = "newpage.default.content";
+  public static final String SERVER_THREADS = "server.threads";
+  public static final String SERVER_QUEUE_SIZE = "server.queue.size";
+  public static final String KEEP_ALIVE_TIMEOUT = "server.keepalive.timeout";
+  public static final String SELECTOR_SERVER = "server.selector";
+  public static final String PAGE_CACHE_MEGABYTES = "pagecache.megabytes";
+  public static final String VERSIONS_IN_BACKGROUND = "versions.background";
 
   private final Properties loadedProperties;
   private final String propertiesLocation;
@@ -11,10 +11,12 @@ import fitnesse.components.Logger;
 import fitnesse.html.HtmlPageFactory;
 import fitnesse.responders.ResponderFactory;
 import fitnesse.responders.WikiImportTestEventListener;
-import fitnesse.revisioncontrol.RevisionController;
+import fitnesse.revisioncontrol.zip.ZipFileRevisionController;
+import fitnesse.socketservice.ConnectionService;
 import fitnesse.socketservice.SocketService;
 import fitnesse.updates.Updater;
 import fitnesse.wiki.FileSystemPage;
+import fitnesse.wiki.PageDataCache;
 import fitnesse.wiki.PageVersionPruner;
 
 import java.io.File;
@@ -24,7 +26,7 @@ public class FitNesse {
   public static final FitNesseVersion VERSION = new FitNesseVersion();
 
   private FitNesseContext context;
-  private SocketService theService;
+  private ConnectionService theService;
   private static String extraOutput;
 
   public static FitNesse fitnesse;
@@ -56,8 +58,10 @@ public class FitNesse {
     String defaultNewPageContent = componentFactory.getProperty(ComponentFactory.DEFAULT_NEWPAGE_CONTENT);
     if (defaultNewPageContent != null)
       context.defaultNewPageContent = defaultNewPageContent;
-    RevisionController revisioner = componentFactory.loadRevisionController();
-    context.root = componentFactory.getRootPage(FileSystemPage.makeRoot(context.rootPath, context.rootPageName, revisioner));
+    loadServerSettings(context, componentFactory);
+    context.revisioner = componentFactory.loadRevisionController();
+    loadVersionArchiving(context, componentFactory);
+    context.root = componentFactory.getRootPage(FileSystemPage.makeRoot(context.rootPath, context.rootPageName, context.revisioner));
     context.responderFactory = new ResponderFactory(context.rootPagePath);
     context.logger = makeLogger(arguments);
     context.authenticator = makeAuthenticator(arguments.getUserpass(), componentFactory);
@@ -73,6 +77,30 @@ public class FitNesse {
     return context;
   }
 
+  private static void loadServerSettings(FitNesseContext context, ComponentFactory componentFactory) {
+    String threads = componentFactory.getProperty(ComponentFactory.SERVER_THREADS);
+    if (threads != null)
+      context.maxServerThreads = Integer.parseInt(threads);
+    String queueSize = componentFactory.getProperty(ComponentFactory.SERVER_QUEUE_SIZE);
+    if (queueSize != null)
+      context.maxQueuedConnections = Integer.parseInt(queueSize);
+    String keepAliveTimeout = componentFactory.getProperty(ComponentFactory.KEEP_ALIVE_TIMEOUT);
+    if (keepAliveTimeout != null)
+      context.keepAliveTimeout = Long.parseLong(keepAliveTimeout);
+    String selector = componentFactory.getProperty(ComponentFactory.SELECTOR_SERVER);
+    if (selector != null)
+      context.useSelectorServer = Boolean.parseBoolean(selector);
+    String pageCacheSize = componentFactory.getProperty(ComponentFactory.PAGE_CACHE_MEGABYTES);
+    if (pageCacheSize != null)
+      PageDataCache.getInstance().setCapacity(Long.parseLong(pageCacheSize) * 1024 * 1024);
+  }
+
+  private static void loadVersionArchiving(FitNesseContext context, ComponentFactory componentFactory) throws Exception {
+    String background = componentFactory.getProperty(ComponentFactory.VERSIONS_IN_BACKGROUND);
+    if (context.revisioner instanceof ZipFileRevisionController && (background == null || Boolean.parseBoolean(background)))
+      ((ZipFileRevisionController) context.revisioner).archiveInBackground(new File(context.rootPagePath, "versionJournal"));
+  }
+
   public static Arguments parseCommandLine(String[] args) {
     CommandLine commandLine = new CommandLine("[-p port][-d dir][-r root][-l logDir][-e days][-o][-a userpass]");
     Arguments arguments = null;
@@ -159,7 +187,10 @@ public class FitNesse {
 
   public boolean start() {
     try {
-      theService = new SocketService(context.port, new FitNesseServer(context));
+      if (context.useSelectorServer)
+        theService = new SelectorFitNesseService(context);
+      else
+        theService = makeSocketService();
       return true;
     } catch (BindException e) {
       printBadPortMessage(context.port);
@@ -169,11 +200,20 @@ public class FitNesse {
     return false;
   }
 
+  private SocketService makeSocketService() throws Exception {
+    SocketService service = new SocketService(context.port, new FitNesseServer(context),
+      context.maxServerThreads, context.maxQueuedConnections);
+    service.setRejectionServer(new ServiceUnavailableServer());
+    return service;
+  }
+
   public void stop() throws Exception {
     if (theService != null) {
       theService.close();
       theService = null;
     }
+    if (context.revisioner instanceof ZipFileRevisionController)
+      ((ZipFileRevisionController) context.revisioner).stopArchivingInBackground();
   }
 
   private void establishRequiredDirectories() {
@@ -190,6 +230,10 @@ public class FitNesse {
     return theService != null;
   }
 
+  public ConnectionService getConnectionService() {
+    return theService;
+  }
+
   public FitNesseContext getContext() {
     return context;
   }
@@ -8,6 +8,8 @@ import fitnesse.components.Logger;
 import fitnesse.html.HtmlPageFactory;
 import fitnesse.responders.ResponderFactory;
 import fitnesse.responders.run.SocketDealer;
+import fitnesse.revisioncontrol.RevisionController;
+import fitnesse.socketservice.SocketService;
 import fitnesse.wiki.WikiPage;
 
 public class FitNesseContext {
@@ -18,11 +20,16 @@ public class FitNesseContext {
   public String rootPagePath = "";
   public String defaultNewPageContent = "!contents -R2 -g -p -f -h";
   public WikiPage root;
+  public RevisionController revisioner;
   public ResponderFactory responderFactory = new ResponderFactory(rootPagePath);
   public Logger logger;
   public SocketDealer socketDealer = new SocketDealer();
   public Authenticator authenticator = new PromiscuousAuthenticator();
   public HtmlPageFactory htmlPageFactory = new HtmlPageFactory();
+  public int maxServerThreads = SocketService.DEFAULT_MAX_THREADS;
+  public int maxQueuedConnections = SocketService.DEFAULT_MAX_QUEUED_CONNECTIONS;
+  public long keepAliveTimeout = 5000;
+  public boolean useSelectorServer = false;
   public static String recentChangesDateFormat = "kk:mm:ss EEE, MMM dd, yyyy";
   public static String rfcCompliantDateFormat = "EEE, d MMM yyyy HH:mm:ss Z";
   public static FitNesseContext globalContext;
@@ -42,6 +49,7 @@ public class FitNesseContext {
     buffer.append("\t").append("logger:            ").append(logger == null ? "none" : logger.toString()).append(endl);
     buffer.append("\t").append("authenticator:     ").append(authenticator).append(endl);
     buffer.append("\t").append("html page factory: ").append(htmlPageFactory).append(endl);
+    buffer.append("\t").append("server threads:    ").append(maxServerThreads).append(endl);
 
     return buffer.toString();
   }
@@ -7,42 +7,48 @@ import fitnesse.http.HttpException;
 import fitnesse.http.Request;
 import fitnesse.http.Response;
 import fitnesse.http.ResponseSender;
+import fitnesse.http.SimpleResponse;
 import fitnesse.responders.ErrorResponder;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.SocketException;
+import java.net.SocketTimeoutException;
 import java.util.GregorianCalendar;
 
 public class FitNesseExpediter implements ResponseSender {
   private Socket socket;
-  private InputStream input;
+  private BufferedInputStream input;
   private OutputStream output;
   private Request request;
   private Response response;
   private FitNesseContext context;
   protected long requestParsingTimeLimit;
-  private long requestProgress;
-  private long requestParsingDeadline;
-  private boolean hasError;
+  protected long keepAliveTimeout;
+  private boolean keepAlive;
 
   public FitNesseExpediter(Socket s,
                            FitNesseContext context) throws Exception {
     this.context = context;
     socket = s;
-    input = s.getInputStream();
+    input = new BufferedInputStream(s.getInputStream());
     output = s.getOutputStream();
     requestParsingTimeLimit = 10000;
+    keepAliveTimeout = context.keepAliveTimeout;
   }
 
   public void start() throws Exception {
     try {
-      Request request = makeRequest();
-      makeResponse(request);
-      sendResponse();
+      do {
+        Request request = makeRequest();
+        makeResponse(request);
+        sendResponse();
+      } while (keepAlive && clientSentAnotherRequest());
+      if (keepAlive)
+        socket.close();
     }
     catch (SocketException se) {
       // can be thrown by makeResponse or sendResponse.
@@ -72,7 +78,8 @@ public class FitNesseExpediter implements ResponseSender {
   public void close() throws Exception {
     try {
       log(socket, request, response);
-      socket.close();
+      if (!keepAlive)
+        socket.close();
     }
     catch (IOException e) {
       e.printStackTrace();
@@ -93,84 +100,86 @@ public class FitNesseExpediter implements ResponseSender {
   }
 
   private Response makeResponse(Request request) throws Exception {
+    keepAlive = false;
+    response = null;
     try {
-      Thread parseThread = createParsingThread(request);
-      parseThread.start();
-
-      waitForRequest(request);
-      if (!hasError)
-        response = createGoodResponse(request);
+      parseRequest(request);
+      response = createGoodResponse(request);
+    }
+    catch (SocketTimeoutException e) {
+      reportError(408, "The client request has been unproductive for too long.  It has timed out and will now longer be processed");
+    }
+    catch (HttpException e) {
+      reportError(400, e.getMessage());
     }
     catch (SocketException se) {
       throw (se);
     }
     catch (Exception e) {
-      response = new ErrorResponder(e).makeResponse(context, request);
+      reportError(e);
     }
     return response;
   }
 
+  private void parseRequest(Request request) throws Exception {
+    socket.setSoTimeout((int) requestParsingTimeLimit);
+    try {
+      request.parse();
+    }
+    finally {
+      socket.setSoTimeout(0);  // the socket may be handed on to a responder that reads from it indefinitely.
+    }
+  }
+
   public Response createGoodResponse(Request request) throws Exception {
-    Response response;
+    Response response = createGoodResponse(context, request, keepAliveTimeout);
+    keepAlive = keepsConnectionAlive(response);
+    return response;
+  }
+
+  // Shared with SelectorConnection, so both front ends answer a request the same way.
+  static Response createGoodResponse(FitNesseContext context, Request request, long keepAliveTimeout) throws Exception {
     Responder responder = context.responderFactory.makeResponder(request, context.root);
     responder = context.authenticator.authenticate(context, request, responder);
-    response = responder.makeResponse(context, request);
+    Response response = responder.makeResponse(context, request);
     response.addHeader("Server", "FitNesse-" + FitNesse.VERSION);
-    response.addHeader("Connection", "close");
+    boolean keepAlive = keepAliveTimeout > 0 && request.isPersistentConnectionRequested() && response.canKeepConnectionAlive();
+    response.addHeader("Connection", keepAlive ? "keep-alive" : "close");
     return response;
   }
 
-  private void waitForRequest(Request request) throws InterruptedException {
-    long now = System.currentTimeMillis();
-    requestParsingDeadline = now + requestParsingTimeLimit;
-    requestProgress = 0;
-    while (!hasError && !request.hasBeenParsed()) {
-      Thread.sleep(10);
-      if (timeIsUp(now) && parsingIsUnproductive(request))
-        reportError(408, "The client request has been unproductive for too long.  It has timed out and will now longer be processed");
-    }
+  static boolean keepsConnectionAlive(Response response) {
+    return "keep-alive".equals(response.getHeader("Connection"));
   }
 
-  private boolean parsingIsUnproductive(Request request) {
-    long updatedRequestProgress = request.numberOfBytesParsed();
-    if (updatedRequestProgress > requestProgress) {
-      requestProgress = updatedRequestProgress;
-      return false;
-    } else
-      return true;
+  static SimpleResponse createBusyResponse() throws Exception {
+    SimpleResponse response = new SimpleResponse(503);
+    response.setContent("FitNesse is too busy to handle this request.  Please try again later.");
+    response.addHeader("Server", "FitNesse-" + FitNesse.VERSION);
+    response.addHeader("Retry-After", "5");
+    response.addHeader("Connection", "close");
+    return response;
   }
 
-  private boolean timeIsUp(long now) {
-    now = System.currentTimeMillis();
-    if (now > requestParsingDeadline) {
-      requestParsingDeadline = now + requestParsingTimeLimit;
+  // A kept-alive connection that the client closes, or never uses again, is not an error.
+  private boolean clientSentAnotherRequest() throws Exception {
+    socket.setSoTimeout((int) keepAliveTimeout);
+    try {
+      input.mark(1);
+      if (input.read() == -1)
+        return false;
+      input.reset();
       return true;
-    } else
+    }
+    catch (IOException e) {
       return false;
-  }
-
-  private Thread createParsingThread(final Request request) {
-    Thread parseThread = new Thread() {
-      public synchronized void run() {
-        try {
-          request.parse();
-        }
-        catch (HttpException e) {
-          reportError(400, e.getMessage());
-        }
-        catch (Exception e) {
-          reportError(e);
-        }
-      }
-    };
-    return parseThread;
+    }
   }
 
   private void reportError(int status, String message) {
     try {
       response = new ErrorResponder(message).makeResponse(context, request);
       response.setStatus(status);
-      hasError = true;
     }
     catch (Exception e) {
       e.printStackTrace();
@@ -180,7 +189,6 @@ public class FitNesseExpediter implements ResponseSender {
   private void reportError(Exception e) {
     try {
       response = new ErrorResponder(e).makeResponse(context, request);
-      hasError = true;
     }
     catch (Exception e1) {
       e1.printStackTrace();
@@ -123,6 +123,25 @@ public class FitNesseExpediterTest extends RegexTestCase {
     assertEquals(200, response.getStatus());
   }
 
+  public void testReadTimeoutIsClearedOnceTheRequestIsParsed() throws Exception {
+    MockSocket socket = new MockSocket("GET /root HTTP/1.1\r\nConnection: close\r\n\r\n");
+    FitNesseExpediter sender = new FitNesseExpediter(socket, context);
+    sender.start();
+    assertSubString("200 OK", socket.getOutput());
+    assertEquals(0, socket.getSoTimeout());
+  }
+
+  public void testKeepAliveCanBeDisabled() throws Exception {
+    context.keepAliveTimeout = 0;
+    final FitNesseExpediter sender = preparePipedFitNesseExpediter();
+    makeSendingThread(sender).start();
+
+    clientOutput.write("GET /root HTTP/1.1\r\n\r\n".getBytes());
+    clientOutput.flush();
+    ResponseParser response = new ResponseParser(clientInput);
+    assertEquals("close", response.getHeader("Connection"));
+  }
+
   private Thread makeSendingThread(final FitNesseExpediter sender) {
     Thread senderThread = new Thread(new Runnable() {
       public void run() {
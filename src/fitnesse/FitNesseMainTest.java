@@ -6,6 +6,7 @@ import fitnesse.authentication.Authenticator;
 import fitnesse.authentication.MultiUserAuthenticator;
 import fitnesse.authentication.OneUserAuthenticator;
 import fitnesse.authentication.PromiscuousAuthenticator;
+import fitnesse.revisioncontrol.zip.ZipFileRevisionController;
 import fitnesse.testutil.FitNesseUtil;
 import fitnesse.util.FileUtil;
 import junit.framework.TestCase;
@@ -72,6 +73,18 @@ public class FitNesseMainTest extends TestCase {
     assertFalse(fitnesse.isRunning());
   }
 
+  public void testStopEndsBackgroundVersionArchiving() throws Exception {
+    ZipFileRevisionController revisioner = new ZipFileRevisionController();
+    revisioner.archiveInBackground(new File("testFitnesseRoot/versionJournal"));
+    context.revisioner = revisioner;
+    context.port = FitNesseUtil.port;
+    FitNesse fitnesse = new FitNesse(context, false);
+    fitnesse.start();
+
+    fitnesse.stop();
+    assertNull(revisioner.getArchiver());
+  }
+
   public void testShouldInitializeFitNesseContext() {
     context.port = FitNesseUtil.port;
     new FitNesse(context, false);
@@ -42,6 +42,12 @@ public class FitNesseServerTest extends RegexTestCase {
     assertTrue("Should have canned Content", hasSubString("some string", output));
   }
 
+  public void testKeepAliveServesSeveralRequestsOnOneConnection() throws Exception {
+    crawler.addPage(root, PathParser.parse("SomePage"), "some string");
+    String output = getSocketOutput("GET /SomePage HTTP/1.1\r\n\r\nGET /SomePage HTTP/1.1\r\nConnection: close\r\n\r\n", root);
+    assertHasRegexp("(?s)HTTP/1.1 200 OK.*Connection: keep-alive.*some string.*HTTP/1.1 200 OK.*Connection: close.*some string", output);
+  }
+
   public void testNotFound() throws Exception {
     String output = getSocketOutput("GET /WikiWord HTTP/1.1\r\n\r\n", new WikiPageDummy());
 
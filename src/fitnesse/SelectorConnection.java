@@ -0,0 +1,304 @@
+// Copyright (C) 2003,2004,2005 by Object Mentor, Inc. All rights reserved.
+// Released under the terms of the GNU General Public License version 2 or later.
+package fitnesse;
+
+import fitnesse.http.HttpException;
+import fitnesse.http.Request;
+import fitnesse.http.RequestBuffer;
+import fitnesse.http.Response;
+import fitnesse.http.ResponseSender;
+import fitnesse.responders.ErrorResponder;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.LinkedList;
+import java.util.concurrent.CountDownLatch;
+
+// The state of one connection served by a SelectorFitNesseService.  Reading, writing and
+// all other changes of state happen on the selector thread; workers and responding threads
+// only queue bytes through send() and close().
+class SelectorConnection implements ResponseSender {
+  private static final int MAX_PENDING_BYTES = 1024 * 1024;
+
+  private SelectorFitNesseService service;
+  private FitNesseContext context;
+  private SocketChannel channel;
+  private SelectionKey key;
+  private RequestBuffer requestBuffer = new RequestBuffer();
+  private LinkedList<ByteBuffer> pendingWrites = new LinkedList<ByteBuffer>();
+  private int pendingBytes = 0;
+  private boolean busy = false;
+  private boolean responseComplete = false;
+  private int requestsServed = 0;
+  private long lastActivity = System.currentTimeMillis();
+  private volatile boolean keepAlive = false;
+  private volatile boolean detached = false;
+  private volatile boolean closed = false;
+  private Request request;
+  private Response response;
+
+  private Runnable updateInterest = new Runnable() {
+    public void run() {
+      updateInterest();
+    }
+  };
+
+  private Runnable completeResponse = new Runnable() {
+    public void run() {
+      responseComplete = true;
+      finishResponseIfFlushed();
+    }
+  };
+
+  SelectorConnection(SelectorFitNesseService service, FitNesseContext context, SocketChannel channel, SelectionKey key) {
+    this.service = service;
+    this.context = context;
+    this.channel = channel;
+    this.key = key;
+  }
+
+  void readable(ByteBuffer readBuffer) throws IOException {
+    readBuffer.clear();
+    int bytesRead = channel.read(readBuffer);
+    if (bytesRead < 0) {
+      closeChannel();
+      return;
+    }
+    readBuffer.flip();
+    requestBuffer.append(readBuffer);
+    lastActivity = System.currentTimeMillis();
+    dispatchIfReady();
+  }
+
+  private void dispatchIfReady() {
+    if (busy)
+      return;
+    if (!requestBuffer.hasCompleteRequest()) {
+      if (requestBuffer.isRejected())
+        rejectRequest();
+      return;
+    }
+    try {
+      Request request = requestBuffer.takeRequest();
+      startResponding();
+      service.dispatch(this, request);
+    }
+    catch (Exception e) {
+      closeChannel();
+    }
+  }
+
+  private void rejectRequest() {
+    startResponding();
+    request = null;
+    keepAlive = false;
+    respondWithError(requestBuffer.getRejectionStatus(), requestBuffer.getRejectionReason());
+  }
+
+  private void startResponding() {
+    busy = true;
+    updateInterest();
+  }
+
+  void writable() throws IOException {
+    synchronized (pendingWrites) {
+      while (!pendingWrites.isEmpty()) {
+        ByteBuffer buffer = pendingWrites.getFirst();
+        pendingBytes -= channel.write(buffer);
+        if (buffer.hasRemaining())
+          break;
+        pendingWrites.removeFirst();
+      }
+      pendingWrites.notifyAll();
+    }
+    updateInterest();
+    finishResponseIfFlushed();
+  }
+
+  private boolean hasPendingWrites() {
+    synchronized (pendingWrites) {
+      return !pendingWrites.isEmpty();
+    }
+  }
+
+  private void updateInterest() {
+    if (!key.isValid())
+      return;
+    int ops = busy ? 0 : SelectionKey.OP_READ;
+    if (hasPendingWrites())
+      ops |= SelectionKey.OP_WRITE;
+    key.interestOps(ops);
+  }
+
+  private void finishResponseIfFlushed() {
+    if (!responseComplete || hasPendingWrites())
+      return;
+    responseComplete = false;
+    if (keepAlive && !closed) {
+      busy = false;
+      requestsServed++;
+      lastActivity = System.currentTimeMillis();
+      updateInterest();
+      dispatchIfReady();
+    } else
+      closeChannel();
+  }
+
+  void checkTimeout(long now) {
+    if (busy || closed)
+      return;
+    if (requestBuffer.isEmpty() && requestsServed > 0) {
+      if (now - lastActivity > context.keepAliveTimeout)
+        closeChannel();
+    } else if (now - lastActivity > service.requestParsingTimeLimit) {
+      startResponding();
+      request = null;
+      keepAlive = false;
+      respondWithError(408, "The client request has been unproductive for too long.  It has timed out and will now longer be processed");
+    }
+  }
+
+  void rejectAsBusy() {
+    try {
+      keepAlive = false;
+      FitNesseExpediter.createBusyResponse().readyToSend(this);
+    }
+    catch (Exception e) {
+      closeChannel();
+    }
+  }
+
+  void closeChannel() {
+    closed = true;
+    key.cancel();
+    try {
+      channel.close();
+    }
+    catch (IOException e) {
+    }
+    synchronized (pendingWrites) {
+      pendingWrites.clear();
+      pendingBytes = 0;
+      pendingWrites.notifyAll();
+    }
+  }
+
+  void serve(Request request) {
+    this.request = request;
+    keepAlive = false;
+    try {
+      request.parse();
+      response = createGoodResponse(request);
+    }
+    catch (HttpException e) {
+      respondWithError(400, e.getMessage());
+      return;
+    }
+    catch (Exception e) {
+      respondWithError(e);
+      return;
+    }
+    try {
+      response.readyToSend(this);
+    }
+    catch (Exception e) {
+      e.printStackTrace();
+    }
+  }
+
+  private Response createGoodResponse(Request request) throws Exception {
+    Response response = FitNesseExpediter.createGoodResponse(context, request, context.keepAliveTimeout);
+    keepAlive = FitNesseExpediter.keepsConnectionAlive(response);
+    return response;
+  }
+
+  private void respondWithError(int status, String message) {
+    try {
+      response = new ErrorResponder(message).makeResponse(context, request);
+      response.setStatus(status);
+      response.addHeader("Connection", "close");
+      response.readyToSend(this);
+    }
+    catch (Exception e) {
+      e.printStackTrace();
+    }
+  }
+
+  private void respondWithError(Exception exception) {
+    try {
+      response = new ErrorResponder(exception).makeResponse(context, request);
+      response.addHeader("Connection", "close");
+      response.readyToSend(this);
+    }
+    catch (Exception e) {
+      e.printStackTrace();
+    }
+  }
+
+  public void send(byte[] bytes) throws Exception {
+    if (detached) {
+      writeFully(ByteBuffer.wrap(bytes));
+      return;
+    }
+    synchronized (pendingWrites) {
+      while (pendingBytes > MAX_PENDING_BYTES && !closed)
+        pendingWrites.wait();
+      if (closed)
+        return;  // the client has gone away, probably the stop button.
+      pendingWrites.add(ByteBuffer.wrap(bytes));
+      pendingBytes += bytes.length;
+    }
+    service.runOnSelectorThread(updateInterest);
+  }
+
+  public void close() throws Exception {
+    log();
+    if (detached)
+      channel.close();
+    else
+      service.runOnSelectorThread(completeResponse);
+  }
+
+  // Responders that take over the socket get it back in blocking mode, outside the selector.
+  public Socket getSocket() throws Exception {
+    if (!detached)
+      detach();
+    return channel.socket();
+  }
+
+  private void detach() throws Exception {
+    final CountDownLatch deregistered = new CountDownLatch(1);
+    service.runOnSelectorThread(new Runnable() {
+      public void run() {
+        try {
+          service.deregister(key);
+        }
+        catch (IOException e) {
+        }
+        deregistered.countDown();
+      }
+    });
+    deregistered.await();
+    channel.configureBlocking(true);
+    detached = true;
+    synchronized (pendingWrites) {
+      for (ByteBuffer buffer : pendingWrites)
+        writeFully(buffer);
+      pendingWrites.clear();
+      pendingBytes = 0;
+    }
+  }
+
+  private void writeFully(ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining())
+      channel.write(buffer);
+  }
+
+  private void log() throws Exception {
+    if (context.logger != null && request != null)
+      context.logger.log(FitNesseExpediter.makeLogData(channel.socket(), request, response));
+  }
+}
@@ -0,0 +1,231 @@
+// Copyright (C) 2003,2004,2005 by Object Mentor, Inc. All rights reserved.
+// Released under the terms of the GNU General Public License version 2 or later.
+package fitnesse;
+
+import fitnesse.http.Request;
+import fitnesse.socketservice.ConnectionService;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Accepts connections and reads requests on a single selector thread.  Only complete
+// requests are handed to the worker pool, so no worker ever waits on a slow client, and
+// responses are written back by the selector thread as the client is able to take them.
+public class SelectorFitNesseService implements ConnectionService {
+  private static final long SELECT_TIMEOUT = 100;
+
+  private FitNesseContext context;
+  private Selector selector;
+  private ServerSocketChannel serverChannel;
+  private ThreadPoolExecutor workers;
+  private Thread selectorThread;
+  private volatile boolean running = true;
+  private Queue<Runnable> selectorTasks = new ConcurrentLinkedQueue<Runnable>();
+  private ByteBuffer readBuffer = ByteBuffer.allocateDirect(8192);
+  private AtomicInteger activeConnections = new AtomicInteger();
+  private AtomicLong acceptedConnections = new AtomicLong();
+  private AtomicLong rejectedConnections = new AtomicLong();
+  protected long requestParsingTimeLimit = 10000;
+
+  public SelectorFitNesseService(FitNesseContext context) throws Exception {
+    this.context = context;
+    workers = new ThreadPoolExecutor(context.maxServerThreads, context.maxServerThreads, 60, TimeUnit.SECONDS,
+      new ArrayBlockingQueue<Runnable>(Math.max(1, context.maxQueuedConnections)));
+    workers.allowCoreThreadTimeOut(true);
+    selector = Selector.open();
+    serverChannel = ServerSocketChannel.open();
+    try {
+      serverChannel.socket().bind(new InetSocketAddress(context.port));
+    }
+    catch (IOException e) {
+      serverChannel.close();
+      selector.close();
+      throw e;
+    }
+    serverChannel.configureBlocking(false);
+    serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    selectorThread = new Thread(
+      new Runnable() {
+        public void run() {
+          selectLoop();
+        }
+      }, "FitNesse selector"
+    );
+    selectorThread.start();
+  }
+
+  public void setRequestParsingTimeLimit(long t) {
+    requestParsingTimeLimit = t;
+  }
+
+  public void close() throws Exception {
+    running = false;
+    selector.wakeup();
+    selectorThread.join();
+    workers.shutdown();
+    while (!workers.awaitTermination(1, TimeUnit.SECONDS))
+      ;
+  }
+
+  private void selectLoop() {
+    try {
+      while (running) {
+        try {
+          selector.select(SELECT_TIMEOUT);
+          runSelectorTasks();
+          handleSelectedKeys();
+          checkTimeouts();
+        }
+        catch (IOException e) {
+        }
+        catch (ClosedSelectorException e) {
+          throw e;
+        }
+        catch (RuntimeException e) {
+          e.printStackTrace();
+        }
+      }
+      closeAll();
+    }
+    catch (ClosedSelectorException e) {
+    }
+  }
+
+  private void runSelectorTasks() {
+    Runnable task;
+    while ((task = selectorTasks.poll()) != null)
+      task.run();
+  }
+
+  private void handleSelectedKeys() {
+    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+    while (keys.hasNext()) {
+      SelectionKey key = keys.next();
+      keys.remove();
+      try {
+        if (!key.isValid())
+          continue;
+        if (key.isAcceptable())
+          accept();
+        else {
+          SelectorConnection connection = (SelectorConnection) key.attachment();
+          if (key.isWritable())
+            connection.writable();
+          if (key.isValid() && key.isReadable())
+            connection.readable(readBuffer);
+        }
+      }
+      catch (IOException e) {
+        closeConnection(key);
+      }
+      catch (RuntimeException e) {
+        e.printStackTrace();
+        closeConnection(key);
+      }
+    }
+  }
+
+  private void closeConnection(SelectionKey key) {
+    if (key.attachment() != null)
+      ((SelectorConnection) key.attachment()).closeChannel();
+  }
+
+  private void accept() throws IOException {
+    SocketChannel channel = serverChannel.accept();
+    if (channel == null)
+      return;
+    channel.configureBlocking(false);
+    SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+    key.attach(new SelectorConnection(this, context, channel, key));
+    acceptedConnections.incrementAndGet();
+  }
+
+  private void checkTimeouts() {
+    long now = System.currentTimeMillis();
+    for (SelectionKey key : selector.keys()) {
+      if (key.isValid() && key.attachment() != null)
+        ((SelectorConnection) key.attachment()).checkTimeout(now);
+    }
+  }
+
+  private void closeAll() {
+    List<SelectionKey> keys = new ArrayList<SelectionKey>(selector.keys());
+    for (SelectionKey key : keys) {
+      if (key.attachment() != null)
+        ((SelectorConnection) key.attachment()).closeChannel();
+    }
+    try {
+      serverChannel.close();
+      selector.close();
+    }
+    catch (IOException e) {
+    }
+  }
+
+  void runOnSelectorThread(Runnable task) {
+    selectorTasks.add(task);
+    selector.wakeup();
+  }
+
+  void deregister(SelectionKey key) throws IOException {
+    key.cancel();
+    selector.selectNow();
+  }
+
+  void dispatch(final SelectorConnection connection, final Request request) {
+    try {
+      workers.execute(new Runnable() {
+        public void run() {
+          activeConnections.incrementAndGet();
+          try {
+            connection.serve(request);
+          }
+          finally {
+            activeConnections.decrementAndGet();
+          }
+        }
+      });
+    }
+    catch (RejectedExecutionException e) {
+      rejectedConnections.incrementAndGet();
+      connection.rejectAsBusy();
+    }
+  }
+
+  public int getActiveConnections() {
+    return activeConnections.get();
+  }
+
+  public int getQueuedConnections() {
+    return workers.getQueue().size();
+  }
+
+  public int getMaxThreads() {
+    return workers.getMaximumPoolSize();
+  }
+
+  public long getAcceptedConnections() {
+    return acceptedConnections.get();
+  }
+
+  public long getRejectedConnections() {
+    return rejectedConnections.get();
+  }
+}
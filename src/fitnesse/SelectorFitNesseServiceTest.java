@@ -0,0 +1,156 @@
+// Copyright (C) 2003,2004,2005 by Object Mentor, Inc. All rights reserved.
+// Released under the terms of the GNU General Public License version 2 or later.
+package fitnesse;
+
+import fitnesse.http.Request;
+import fitnesse.http.Response;
+import fitnesse.http.ResponseParser;
+import fitnesse.http.ResponseSender;
+import fitnesse.responders.ResponderFactory;
+import fitnesse.testutil.FitNesseUtil;
+import fitnesse.testutil.RegexTestCase;
+import fitnesse.wiki.InMemoryPage;
+import fitnesse.wiki.PathParser;
+import fitnesse.wiki.WikiPage;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+
+public class SelectorFitNesseServiceTest extends RegexTestCase {
+  private FitNesseContext context;
+  private SelectorFitNesseService service;
+  private Socket socket;
+  private OutputStream output;
+  private InputStream input;
+
+  public void setUp() throws Exception {
+    WikiPage root = InMemoryPage.makeRoot("RooT");
+    root.getPageCrawler().addPage(root, PathParser.parse("SomePage"), "some page content");
+    context = new FitNesseContext(root);
+    context.port = FitNesseUtil.port;
+    context.responderFactory = new ResponderFactory(".");
+    service = new SelectorFitNesseService(context);
+    socket = new Socket("localhost", FitNesseUtil.port);
+    output = socket.getOutputStream();
+    input = socket.getInputStream();
+  }
+
+  public void tearDown() throws Exception {
+    socket.close();
+    service.close();
+  }
+
+  public void testServesAPage() throws Exception {
+    send("GET /SomePage HTTP/1.1\r\nConnection: close\r\n\r\n");
+    ResponseParser response = new ResponseParser(input);
+    assertEquals(200, response.getStatus());
+    assertSubString("some page content", response.getBody());
+    assertEquals(-1, input.read());
+  }
+
+  public void testRequestsMayArriveInPieces() throws Exception {
+    send("GET /Some");
+    Thread.sleep(50);
+    send("Page HTTP/1.1\r\n");
+    Thread.sleep(50);
+    send("\r\n");
+    ResponseParser response = new ResponseParser(input);
+    assertEquals(200, response.getStatus());
+  }
+
+  public void testKeepAliveServesSeveralRequestsOnOneConnection() throws Exception {
+    send("GET /SomePage HTTP/1.1\r\n\r\n");
+    ResponseParser first = new ResponseParser(input);
+    assertEquals("keep-alive", first.getHeader("Connection"));
+
+    send("GET /SomePage HTTP/1.1\r\n\r\nGET /SomePage HTTP/1.1\r\nConnection: close\r\n\r\n");
+    assertEquals(200, new ResponseParser(input).getStatus());
+    ResponseParser last = new ResponseParser(input);
+    assertEquals(200, last.getStatus());
+    assertEquals("close", last.getHeader("Connection"));
+  }
+
+  public void testBadRequest() throws Exception {
+    send("Bad Request \r\n\r\n");
+    ResponseParser response = new ResponseParser(input);
+    assertEquals(400, response.getStatus());
+    assertSubString("The request string is malformed and can not be parsed", response.getBody());
+  }
+
+  public void testOversizedBodyIsRejectedAndTheServerKeepsServing() throws Exception {
+    send("POST /SomePage HTTP/1.1\r\nContent-Length: 99999999999\r\n\r\n");
+    ResponseParser response = new ResponseParser(input);
+    assertEquals(413, response.getStatus());
+    assertEquals("close", response.getHeader("Connection"));
+
+    Socket another = new Socket("localhost", FitNesseUtil.port);
+    try {
+      another.getOutputStream().write("GET /SomePage HTTP/1.1\r\nConnection: close\r\n\r\n".getBytes());
+      assertEquals(200, new ResponseParser(another.getInputStream()).getStatus());
+    }
+    finally {
+      another.close();
+    }
+  }
+
+  public void testIncompleteRequestsTimeOut() throws Exception {
+    service.setRequestParsingTimeLimit(200);
+    send("GET /SomePage HTTP/1.1\r\n");
+    ResponseParser response = new ResponseParser(input);
+    assertEquals(408, response.getStatus());
+  }
+
+  public void testSlowRequestAfterAKeepAliveRequestTimesOutAndCloses() throws Exception {
+    socket.setSoTimeout(5000);
+    send("GET /SomePage HTTP/1.1\r\n\r\n");
+    assertEquals("keep-alive", new ResponseParser(input).getHeader("Connection"));
+
+    service.setRequestParsingTimeLimit(200);
+    send("GET /SomePage HTTP/1.1\r\n");
+    ResponseParser response = new ResponseParser(input);
+    assertEquals(408, response.getStatus());
+    assertEquals("close", response.getHeader("Connection"));
+    assertEquals(-1, input.read());
+  }
+
+  public void testCountsConnections() throws Exception {
+    send("GET /SomePage HTTP/1.1\r\nConnection: close\r\n\r\n");
+    new ResponseParser(input);
+    assertEquals(1, service.getAcceptedConnections());
+    assertEquals(0, service.getRejectedConnections());
+  }
+
+  public void testRespondersCanTakeOverTheSocket() throws Exception {
+    context.responderFactory.addResponder("takeSocket", SocketTakingResponder.class);
+    send("GET /SomePage?takeSocket HTTP/1.1\r\n\r\n");
+    byte[] bytes = new byte[3];
+    assertEquals(3, input.read(bytes));
+    assertEquals("raw", new String(bytes));
+    assertEquals(-1, input.read());
+  }
+
+  public static class SocketTakingResponder implements Responder {
+    public Response makeResponse(FitNesseContext context, Request request) throws Exception {
+      return new Response("html") {
+        public void readyToSend(ResponseSender sender) throws Exception {
+          Socket socket = sender.getSocket();
+          socket.getOutputStream().write("raw".getBytes());
+          sender.close();
+        }
+
+        protected void addSpecificHeaders() {
+        }
+
+        public int getContentSize() {
+          return 0;
+        }
+      };
+    }
+  }
+
+  private void send(String text) throws Exception {
+    output.write(text.getBytes());
+    output.flush();
+  }
+}
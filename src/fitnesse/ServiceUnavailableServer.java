@@ -0,0 +1,21 @@
+// Copyright (C) 2003,2004,2005 by Object Mentor, Inc. All rights reserved.
+// Released under the terms of the GNU General Public License version 2 or later.
+package fitnesse;
+
+import fitnesse.http.SimpleResponse;
+import fitnesse.socketservice.SocketServer;
+
+import java.net.Socket;
+
+public class ServiceUnavailableServer implements SocketServer {
+  public void serve(Socket s) {
+    try {
+      SimpleResponse response = FitNesseExpediter.createBusyResponse();
+      s.getOutputStream().write(response.getBytes());
+      s.getOutputStream().flush();
+    }
+    catch (Exception e) {
+      // the client has gone away; nothing to tell it.
+    }
+  }
+}
@@ -0,0 +1,160 @@
+// Copyright (C) 2003,2004,2005 by Object Mentor, Inc. All rights reserved.
+// Released under the terms of the GNU General Public License version 2 or later.
+package fitnesse.components;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+// What a process wrote to one of its streams.  Up to the limit it is all kept in memory.
+// Past the limit only the first and the last half of the limit are kept, and the whole
+// output goes to a temporary file instead.
+public class CapturedOutput {
+  public static final int DEFAULT_LIMIT = 1024 * 1024;
+
+  private int limit;
+  private StringBuffer head = new StringBuffer();
+  private char[] tail;
+  private int tailStart;
+  private int tailLength;
+  private long byteCount;
+  private File file;
+  private OutputStream fileOutput;
+
+  public CapturedOutput() {
+    this(DEFAULT_LIMIT);
+  }
+
+  public CapturedOutput(int limit) {
+    this.limit = limit;
+  }
+
+  public CapturedOutput(String text) {
+    this();
+    head.append(text);
+    byteCount = text.length();
+  }
+
+  // Only takes effect while the output still fits in memory.
+  public synchronized void setLimit(int limit) {
+    if (tail == null)
+      this.limit = limit;
+  }
+
+  public synchronized void append(byte[] bytes, int offset, int length) throws IOException {
+    byteCount += length;
+    if (tail == null && head.length() + length <= limit) {
+      for (int i = offset; i < offset + length; i++)
+        head.append((char) (bytes[i] & 0xff));
+      return;
+    }
+    if (tail == null)
+      startWritingToFile();
+    if (fileOutput != null)
+      fileOutput.write(bytes, offset, length);
+    for (int i = offset; i < offset + length; i++) {
+      char c = (char) (bytes[i] & 0xff);
+      if (head.length() < limit / 2)
+        head.append(c);
+      else
+        addToTail(c);
+    }
+  }
+
+  private void startWritingToFile() throws IOException {
+    file = File.createTempFile("fitnesse-output", ".log");
+    file.deleteOnExit();
+    fileOutput = new BufferedOutputStream(new FileOutputStream(file));
+    for (int i = 0; i < head.length(); i++)
+      fileOutput.write(head.charAt(i));
+
+    int headLimit = limit / 2;
+    tail = new char[Math.max(1, limit - headLimit)];
+    tailStart = 0;
+    tailLength = 0;
+    for (int i = headLimit; i < head.length(); i++)
+      addToTail(head.charAt(i));
+    if (head.length() > headLimit)
+      head.setLength(headLimit);
+  }
+
+  private void addToTail(char c) {
+    if (tailLength < tail.length)
+      tail[(tailStart + tailLength++) % tail.length] = c;
+    else {
+      tail[tailStart] = c;
+      tailStart = (tailStart + 1) % tail.length;
+    }
+  }
+
+  public synchronized void remove(String text) {
+    int start = head.indexOf(text);
+    if (start != -1) {
+      head.delete(start, start + text.length());
+      byteCount -= text.length();
+    }
+  }
+
+  public synchronized void clear() {
+    deleteFile();
+    head.setLength(0);
+    tail = null;
+    tailLength = 0;
+    byteCount = 0;
+  }
+
+  public synchronized void close() {
+    closeFile();
+  }
+
+  // Once the whole output has been copied elsewhere its file is no longer needed.  What is
+  // kept in memory stays, and any further output is only kept there.
+  public synchronized void deleteFile() {
+    closeFile();
+    if (file != null)
+      file.delete();
+    file = null;
+  }
+
+  private void closeFile() {
+    if (fileOutput != null) {
+      try {
+        fileOutput.close();
+      } catch (IOException e) {
+      }
+      fileOutput = null;
+    }
+  }
+
+  public synchronized long getByteCount() {
+    return byteCount;
+  }
+
+  public synchronized boolean isTruncated() {
+    return getOmittedCount() > 0;
+  }
+
+  private long getOmittedCount() {
+    return byteCount - head.length() - tailLength;
+  }
+
+  // The file holding the whole output, or null while it all fits in memory.
+  public synchronized File getFile() throws IOException {
+    if (fileOutput != null)
+      fileOutput.flush();
+    return file;
+  }
+
+  public synchronized String toString() {
+    if (tail == null)
+      return head.toString();
+    StringBuffer text = new StringBuffer(head);
+    if (isTruncated())
+      text.append("\n... ").append(getOmittedCount()).append(" characters omitted ...\n");
+    for (int i = 0; i < tailLength; i++)
+      text.append(tail[(tailStart + i) % tail.length]);
+    return text.toString();
+  }
+}
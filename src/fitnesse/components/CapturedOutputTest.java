@@ -0,0 +1,90 @@
+// Copyright (C) 2003,2004,2005 by Object Mentor, Inc. All rights reserved.
+// Released under the terms of the GNU General Public License version 2 or later.
+package fitnesse.components;
+
+import fitnesse.util.FileUtil;
+import junit.framework.TestCase;
+
+import java.io.File;
+
+public class CapturedOutputTest extends TestCase {
+  private CapturedOutput output;
+
+  public void setUp() throws Exception {
+    output = new CapturedOutput(10);
+  }
+
+  public void tearDown() throws Exception {
+    output.clear();
+  }
+
+  private void append(String text) throws Exception {
+    output.append(text.getBytes(), 0, text.length());
+  }
+
+  public void testOutputWithinTheLimitIsAllKept() throws Exception {
+    append("abcde");
+    append("fghij");
+    assertEquals("abcdefghij", output.toString());
+    assertEquals(10, output.getByteCount());
+    assertFalse(output.isTruncated());
+    assertNull(output.getFile());
+  }
+
+  public void testOnlyTheBeginningAndEndOfLongOutputAreKept() throws Exception {
+    append("abcdefgh");
+    append("ijklmnopqrstuvwxyz");
+    assertTrue(output.isTruncated());
+    assertEquals(26, output.getByteCount());
+    assertEquals("abcde\n... 16 characters omitted ...\nvwxyz", output.toString());
+  }
+
+  public void testLongOutputIsAllWrittenToAFile() throws Exception {
+    append("abcdefgh");
+    append("ijklmnopqrstuvwxyz");
+    assertEquals("abcdefghijklmnopqrstuvwxyz", FileUtil.getFileContent(output.getFile()));
+  }
+
+  public void testOutputJustOverTheLimit() throws Exception {
+    append("abcdefghij");
+    append("k");
+    assertTrue(output.isTruncated());
+    assertEquals("abcde\n... 1 characters omitted ...\nghijk", output.toString());
+  }
+
+  public void testDeletingTheFileKeepsWhatIsInMemory() throws Exception {
+    append("abcdefghijklmnopqrstuvwxyz");
+    File file = output.getFile();
+    output.deleteFile();
+    assertFalse(file.exists());
+    assertNull(output.getFile());
+    append("0123");
+    assertEquals(30, output.getByteCount());
+    assertEquals("abcde\n... 20 characters omitted ...\nz0123", output.toString());
+  }
+
+  public void testClearingForgetsEverything() throws Exception {
+    append("abcdefghijklmnopqrstuvwxyz");
+    File file = output.getFile();
+    output.clear();
+    assertFalse(file.exists());
+    assertEquals("", output.toString());
+    assertEquals(0, output.getByteCount());
+    assertNull(output.getFile());
+    append("abc");
+    assertEquals("abc", output.toString());
+  }
+
+  public void testBytesAreReadAsSingleCharacters() throws Exception {
+    output.append(new byte[]{'a', (byte) 0xe9}, 0, 2);
+    assertEquals("a\u00e9", output.toString());
+  }
+
+  public void testRemove() throws Exception {
+    output = new CapturedOutput(100);
+    append("port 1234\nrest");
+    output.remove("port 1234\n");
+    assertEquals("rest", output.toString());
+    assertEquals(4, output.getByteCount());
+  }
+}
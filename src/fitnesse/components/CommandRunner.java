@@ -3,6 +3,7 @@
 
 package fitnesse.components;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -16,8 +17,8 @@ public class CommandRunner {
   protected OutputStream stdin;
   protected InputStream stdout;
   protected InputStream stderr;
-  protected StringBuffer outputBuffer = new StringBuffer();
-  protected StringBuffer errorBuffer = new StringBuffer();
+  protected CapturedOutput outputBuffer = new CapturedOutput();
+  protected CapturedOutput errorBuffer = new CapturedOutput();
   protected int exitCode = -1;
   private long startTime;
   private long endTime;
@@ -63,6 +64,36 @@ public class CommandRunner {
     }
   }
 
+  public boolean isRunning() {
+    if (process == null)
+      return false;
+    try {
+      process.exitValue();
+      return false;
+    } catch (IllegalThreadStateException e) {
+      return true;
+    }
+  }
+
+  // Forgets what a long running process has written so far, so the output of the next
+  // piece of work can be told apart.
+  public void clearOutput() {
+    outputBuffer.clear();
+    errorBuffer.clear();
+    exceptions.clear();
+  }
+
+  public void removeOutput(String text) {
+    outputBuffer.remove(text);
+  }
+
+  // The number of characters kept in memory for each stream; past it only the beginning
+  // and the end are kept, and the whole output is written to a file.
+  public void setOutputLimit(int limit) {
+    outputBuffer.setLimit(limit);
+    errorBuffer.setLimit(limit);
+  }
+
   protected void setCommand(String command) {
     this.command = command;
   }
@@ -88,11 +119,43 @@ public class CommandRunner {
   }
 
   public boolean wroteToErrorStream() {
-    return errorBuffer.length() > 0;
+    return errorBuffer.getByteCount() > 0;
   }
 
   public boolean wroteToOutputStream() {
-    return outputBuffer.length() > 0;
+    return outputBuffer.getByteCount() > 0;
+  }
+
+  public long getOutputByteCount() {
+    return outputBuffer.getByteCount();
+  }
+
+  public long getErrorByteCount() {
+    return errorBuffer.getByteCount();
+  }
+
+  public boolean isOutputTruncated() {
+    return outputBuffer.isTruncated();
+  }
+
+  public boolean isErrorTruncated() {
+    return errorBuffer.isTruncated();
+  }
+
+  public File getOutputFile() throws IOException {
+    return outputBuffer.getFile();
+  }
+
+  public File getErrorFile() throws IOException {
+    return errorBuffer.getFile();
+  }
+
+  public void deleteOutputFile() {
+    outputBuffer.deleteFile();
+  }
+
+  public void deleteErrorFile() {
+    errorBuffer.deleteFile();
   }
 
   public int getExitCode() {
@@ -131,22 +194,26 @@ public class CommandRunner {
 
   }
 
-  private void readOutput(InputStream input, StringBuffer buffer) {
+  private void readOutput(InputStream input, CapturedOutput buffer) {
     try {
-      int c;
-      while ((c = input.read()) != -1)
-        buffer.append((char) c);
+      byte[] bytes = new byte[8192];
+      int bytesRead;
+      while ((bytesRead = input.read(bytes)) != -1)
+        buffer.append(bytes, 0, bytesRead);
     }
     catch (Exception e) {
       exceptionOccurred(e);
     }
+    finally {
+      buffer.close();
+    }
   }
 
   private class OuputReadingRunnable implements Runnable {
     public InputStream input;
-    public StringBuffer buffer;
+    public CapturedOutput buffer;
 
-    public OuputReadingRunnable(InputStream input, StringBuffer buffer) {
+    public OuputReadingRunnable(InputStream input, CapturedOutput buffer) {
       this.input = input;
       this.buffer = buffer;
     }
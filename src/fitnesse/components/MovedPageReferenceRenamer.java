@@ -17,7 +17,7 @@ public class MovedPageReferenceRenamer extends ReferenceRenamer {
   public void renameReferences(WikiPage pageToBeMoved, String newParentName) throws Exception {
     this.pageToBeMoved = pageToBeMoved;
     this.newParentName = newParentName;
-    renameReferences();
+    renameReferences(pageToBeMoved);
   }
 
   protected WidgetVisitor getVisitor() {
@@ -17,7 +17,7 @@ public class PageReferenceRenamer extends ReferenceRenamer {
   public void renameReferences(WikiPage subjectPage, String newName) throws Exception {
     this.subjectPage = subjectPage;
     this.newName = newName;
-    renameReferences();
+    renameReferences(subjectPage);
   }
 
   protected WidgetVisitor getVisitor() {
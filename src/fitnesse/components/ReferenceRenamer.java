@@ -3,6 +3,7 @@
 package fitnesse.components;
 
 import fitnesse.wiki.PageData;
+import fitnesse.wiki.ReferenceIndex;
 import fitnesse.wiki.WikiPage;
 import fitnesse.wikitext.WidgetBuilder;
 import fitnesse.wikitext.WidgetVisitor;
@@ -15,8 +16,11 @@ public abstract class ReferenceRenamer implements FitNesseTraversalListener {
     this.root = root;
   }
 
-  protected void renameReferences() throws Exception {
-    root.getPageCrawler().traverse(root, this);
+  // Only the pages that may refer to the subject are parsed.
+  protected void renameReferences(WikiPage subjectPage) throws Exception {
+    WikiPage wikiRoot = root.getPageCrawler().getRoot(root);
+    for (WikiPage page : ReferenceIndex.getInstance(wikiRoot).findPagesThatMayReference(root, subjectPage))
+      processPage(page);
   }
 
   public void processPage(WikiPage currentPage) throws Exception {
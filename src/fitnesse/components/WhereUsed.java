@@ -2,6 +2,7 @@
 // Released under the terms of the GNU General Public License version 2 or later.
 package fitnesse.components;
 
+import fitnesse.wiki.ReferenceIndex;
 import fitnesse.wiki.WikiPage;
 import fitnesse.wikitext.WidgetBuilder;
 import fitnesse.wikitext.WidgetVisitor;
@@ -45,7 +46,12 @@ public class WhereUsed implements FitNesseTraversalListener, SearchObserver, Wid
   public void searchForReferencingPages(WikiPage subjectPage, SearchObserver observer) throws Exception {
     this.observer = observer;
     this.subjectPage = subjectPage;
-    root.getPageCrawler().traverse(root, this);
+    for (WikiPage page : ReferenceIndex.getInstance(getRoot()).findPagesThatMayReference(root, subjectPage))
+      processPage(page);
+  }
+
+  private WikiPage getRoot() throws Exception {
+    return root.getPageCrawler().getRoot(root);
   }
 
   public List<WikiPage> findReferencingPages(WikiPage subjectPage) throws Exception {
@@ -57,7 +63,6 @@ public class WhereUsed implements FitNesseTraversalListener, SearchObserver, Wid
   public void processPage(WikiPage currentPage) throws Exception {
     this.currentPage = currentPage;
     String content = currentPage.getData().getContent();
-    WidgetBuilder referenceWidgetBuilder = new WidgetBuilder(new Class[]{PreProcessorLiteralWidget.class, WikiWordWidget.class, PreformattedWidget.class});
     ParentWidget widgetRoot = new WidgetRoot(content, currentPage, referenceWidgetBuilder);
     widgetRoot.acceptVisitor(this);
   }
@@ -65,4 +70,6 @@ public class WhereUsed implements FitNesseTraversalListener, SearchObserver, Wid
   public String getSearchPattern() throws Exception {
     return subjectPage.getName();
   }
+
+  private static WidgetBuilder referenceWidgetBuilder = new WidgetBuilder(new Class[]{PreProcessorLiteralWidget.class, WikiWordWidget.class, PreformattedWidget.class});
 }
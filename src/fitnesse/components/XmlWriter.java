@@ -24,6 +24,21 @@ public class XmlWriter {
     write(doc.getDocumentElement(), 0);
   }
 
+  // Writes the document as write(Document) would, but stops before the end tag of the
+  // root element so more elements can be written into it as they become known.
+  public void writeHead(Document doc) throws Exception {
+    Element root = doc.getDocumentElement();
+    write("<?xml version=\"1.0\"?>");
+    write(endl);
+    write("<" + root.getTagName() + writeAttributes(root) + ">");
+    write(root.getChildNodes(), 1);
+  }
+
+  public void writeTail(Document doc) throws Exception {
+    write("</" + doc.getDocumentElement().getTagName() + ">");
+    write(endl);
+  }
+
   public void write(NodeList nodes) throws Exception {
     write(nodes, 0);
   }
@@ -4,6 +4,7 @@ package fitnesse.components;
 
 import fitnesse.testutil.RegexTestCase;
 import org.w3c.dom.Document;
+import org.w3c.dom.Element;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -48,6 +49,20 @@ public class XmlWriterTest extends RegexTestCase {
     assertEquals(sampleXml, results);
   }
 
+  public void testElementsWrittenBetweenHeadAndTail() throws Exception {
+    Element root = doc.getDocumentElement();
+    Element cdata = (Element) root.getElementsByTagName("cdata").item(0);
+    root.removeChild(cdata);
+
+    XmlWriter writer = new XmlWriter(output);
+    writer.writeHead(doc);
+    writer.write(cdata, 1);
+    writer.writeTail(doc);
+    writer.close();
+
+    assertEquals(sampleXml, new String(output.toByteArray()));
+  }
+
   private String writeXml(Document doc) throws Exception {
     XmlWriter writer = new XmlWriter(output);
     writer.write(doc);
@@ -28,6 +28,10 @@ public class InputStreamResponse extends Response {
     }
   }
 
+  public boolean canKeepConnectionAlive() {
+    return true;
+  }
+
   protected void addSpecificHeaders() {
     addHeader("Content-Length", getContentSize() + "");
   }
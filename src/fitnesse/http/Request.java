@@ -45,7 +45,9 @@ public class Request {
   }
 
   public Request(InputStream input) throws Exception {
-    this.input = new StreamReader(new BufferedInputStream(input));
+    if (!(input instanceof BufferedInputStream))
+      input = new BufferedInputStream(input);
+    this.input = new StreamReader(input);
   }
 
   public void parse() throws Exception {
@@ -80,9 +82,8 @@ public class Request {
 
   private void parseEntityBody() throws Exception {
     if (hasHeader("Content-Length")) {
-      String contentType = (String) getHeader("Content-Type");
-      if (contentType != null && contentType.startsWith("multipart/form-data")) {
-        Matcher match = boundaryPattern.matcher(contentType);
+      if (isMultipartRequest()) {
+        Matcher match = boundaryPattern.matcher((String) getHeader("Content-Type"));
         match.find();
         parseMultiPartContent(match.group(1));
       } else {
@@ -252,6 +253,25 @@ public class Request {
     return hasBeenParsed;
   }
 
+  public boolean isPersistentConnectionRequested() {
+    if (isMultipartRequest())
+      return false;  // the closing boundary is never consumed, so the stream can't be reused.
+    String connection = (String) getHeader("Connection");
+    if (connection != null) {
+      connection = connection.toLowerCase();
+      if (connection.indexOf("close") != -1)
+        return false;
+      if (connection.indexOf("keep-alive") != -1)
+        return true;
+    }
+    return requestLine != null && requestLine.endsWith("HTTP/1.1");
+  }
+
+  private boolean isMultipartRequest() {
+    String contentType = (String) getHeader("Content-Type");
+    return contentType != null && contentType.startsWith("multipart/form-data");
+  }
+
   public String getUserpass(String headerValue) throws Exception {
     String encodedUserpass = headerValue.substring(6);
     return Base64.decode(encodedUserpass);
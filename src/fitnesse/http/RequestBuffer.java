@@ -0,0 +1,126 @@
+// Copyright (C) 2003,2004,2005 by Object Mentor, Inc. All rights reserved.
+// Released under the terms of the GNU General Public License version 2 or later.
+package fitnesse.http;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Collects the bytes of a request as they arrive from a non-blocking channel, so the
+// request is only handed to a Request for parsing once it can be parsed without blocking.
+public class RequestBuffer {
+  public static final int MAX_HEADER_SIZE = 64 * 1024;
+  public static final int MAX_CONTENT_LENGTH = 64 * 1024 * 1024;
+  private static final Pattern contentLengthPattern = Pattern.compile("^content-length:[ \\t]*([^\\r\\n]*)", Pattern.CASE_INSENSITIVE | Pattern.MULTILINE);
+  private static final Pattern digitsPattern = Pattern.compile("\\d{1,18}");
+
+  private byte[] bytes = new byte[1024];
+  private int size = 0;
+  private int scanned = 0;
+  private int requestLength = -1;
+  private int rejectionStatus = 0;
+  private String rejectionReason;
+
+  public void append(ByteBuffer buffer) {
+    int count = buffer.remaining();
+    ensureCapacity(size + count);
+    buffer.get(bytes, size, count);
+    size += count;
+  }
+
+  public void append(byte[] newBytes) {
+    append(ByteBuffer.wrap(newBytes));
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity > bytes.length) {
+      byte[] newBytes = new byte[Math.max(capacity, bytes.length * 2)];
+      System.arraycopy(bytes, 0, newBytes, 0, size);
+      bytes = newBytes;
+    }
+  }
+
+  public boolean hasCompleteRequest() {
+    if (requestLength < 0 && !isRejected())
+      scanForEndOfHeaders();
+    return requestLength >= 0 && size >= requestLength;
+  }
+
+  // A request whose headers announce a body that can not or should not be buffered is
+  // never handed over; the connection answers it with getRejectionStatus() instead.
+  public boolean isRejected() {
+    return rejectionStatus != 0;
+  }
+
+  public int getRejectionStatus() {
+    return rejectionStatus;
+  }
+
+  public String getRejectionReason() {
+    return rejectionReason;
+  }
+
+  private void scanForEndOfHeaders() {
+    for (; scanned < size; scanned++) {
+      if (bytes[scanned] == '\n' && scanned > 0) {
+        int headerLength = endOfHeadersAt(scanned);
+        if (headerLength > 0) {
+          long contentLength = contentLength(headerLength);
+          if (contentLength >= 0)
+            requestLength = headerLength + (int) contentLength;
+          return;
+        }
+      }
+    }
+    if (size > MAX_HEADER_SIZE)
+      requestLength = size;  // let the parser reject it.
+  }
+
+  private int endOfHeadersAt(int newline) {
+    if (bytes[newline - 1] == '\n')
+      return newline + 1;
+    if (newline > 1 && bytes[newline - 1] == '\r' && bytes[newline - 2] == '\n')
+      return newline + 1;
+    return -1;
+  }
+
+  private long contentLength(int headerLength) {
+    Matcher match = contentLengthPattern.matcher(new String(bytes, 0, headerLength));
+    if (!match.find())
+      return 0;
+    String value = match.group(1).trim();
+    if (!digitsPattern.matcher(value).matches())
+      return reject(400, "The Content-Length header '" + value + "' is malformed");
+    long contentLength = Long.parseLong(value);
+    if (contentLength > MAX_CONTENT_LENGTH)
+      return reject(413, "The request body of " + contentLength + " bytes is larger than the limit of " + MAX_CONTENT_LENGTH + " bytes");
+    return contentLength;
+  }
+
+  private long reject(int status, String reason) {
+    rejectionStatus = status;
+    rejectionReason = reason;
+    return -1;
+  }
+
+  public Request takeRequest() throws Exception {
+    if (!hasCompleteRequest())
+      return null;
+    byte[] requestBytes = new byte[requestLength];
+    System.arraycopy(bytes, 0, requestBytes, 0, requestLength);
+    System.arraycopy(bytes, requestLength, bytes, 0, size - requestLength);
+    size -= requestLength;
+    scanned = 0;
+    requestLength = -1;
+    return new Request(new ByteArrayInputStream(requestBytes));
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+}
@@ -0,0 +1,85 @@
+// Copyright (C) 2003,2004,2005 by Object Mentor, Inc. All rights reserved.
+// Released under the terms of the GNU General Public License version 2 or later.
+package fitnesse.http;
+
+import junit.framework.TestCase;
+
+public class RequestBufferTest extends TestCase {
+  private RequestBuffer buffer;
+
+  public void setUp() throws Exception {
+    buffer = new RequestBuffer();
+  }
+
+  public void testEmptyBufferHasNoRequest() throws Exception {
+    assertFalse(buffer.hasCompleteRequest());
+    assertNull(buffer.takeRequest());
+  }
+
+  public void testRequestIsCompleteAfterTheBlankLine() throws Exception {
+    buffer.append("GET /SomePage HTTP/1.1\r\n".getBytes());
+    assertFalse(buffer.hasCompleteRequest());
+    buffer.append("Host: localhost\r\n".getBytes());
+    assertFalse(buffer.hasCompleteRequest());
+    buffer.append("\r\n".getBytes());
+    assertTrue(buffer.hasCompleteRequest());
+
+    Request request = buffer.takeRequest();
+    request.parse();
+    assertEquals("SomePage", request.getResource());
+    assertTrue(buffer.isEmpty());
+  }
+
+  public void testBareNewlinesEndTheHeaders() throws Exception {
+    buffer.append("GET /SomePage HTTP/1.1\n\n".getBytes());
+    assertTrue(buffer.hasCompleteRequest());
+  }
+
+  public void testWaitsForTheWholeBody() throws Exception {
+    buffer.append("POST /SomePage HTTP/1.1\r\nContent-Length: 11\r\n\r\nsome".getBytes());
+    assertFalse(buffer.hasCompleteRequest());
+    buffer.append("=values".getBytes());
+    assertTrue(buffer.hasCompleteRequest());
+
+    Request request = buffer.takeRequest();
+    request.parse();
+    assertEquals("values", request.getInput("some"));
+  }
+
+  public void testPipelinedRequestsAreTakenOneAtATime() throws Exception {
+    buffer.append("GET /PageOne HTTP/1.1\r\n\r\nGET /PageTwo HTTP/1.1\r\n\r\nGET /Page".getBytes());
+
+    Request first = buffer.takeRequest();
+    first.parse();
+    assertEquals("PageOne", first.getResource());
+
+    Request second = buffer.takeRequest();
+    second.parse();
+    assertEquals("PageTwo", second.getResource());
+
+    assertFalse(buffer.hasCompleteRequest());
+    assertEquals("GET /Page".length(), buffer.size());
+  }
+
+  public void testOversizedHeadersAreHandedOverForRejection() throws Exception {
+    StringBuffer header = new StringBuffer("GET /SomePage HTTP/1.1\r\nX-Junk: ");
+    while (header.length() <= RequestBuffer.MAX_HEADER_SIZE)
+      header.append("junk");
+    buffer.append(header.toString().getBytes());
+    assertTrue(buffer.hasCompleteRequest());
+  }
+
+  public void testMalformedContentLengthIsRejected() throws Exception {
+    buffer.append("POST /SomePage HTTP/1.1\r\nContent-Length: lots\r\n\r\n".getBytes());
+    assertFalse(buffer.hasCompleteRequest());
+    assertTrue(buffer.isRejected());
+    assertEquals(400, buffer.getRejectionStatus());
+  }
+
+  public void testContentLengthBeyondTheLimitIsRejected() throws Exception {
+    buffer.append("POST /SomePage HTTP/1.1\r\nContent-Length: 99999999999\r\n\r\n".getBytes());
+    assertFalse(buffer.hasCompleteRequest());
+    assertEquals(413, buffer.getRejectionStatus());
+    assertNull(buffer.takeRequest());
+  }
+}
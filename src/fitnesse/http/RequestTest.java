@@ -47,6 +47,39 @@ public class RequestTest extends TestCase {
     assertEquals("/request-uri", request.getRequestUri());
   }
 
+  public void testHttp11ConnectionsArePersistentByDefault() throws Exception {
+    startParsing();
+    writeToPipe("GET /SomePage HTTP/1.1\r\n");
+    writeToPipe("\r\n");
+    finishParsing();
+    assertTrue(request.isPersistentConnectionRequested());
+  }
+
+  public void testConnectionCloseHeaderIsHonored() throws Exception {
+    startParsing();
+    writeToPipe("GET /SomePage HTTP/1.1\r\n");
+    writeToPipe("Connection: close\r\n");
+    writeToPipe("\r\n");
+    finishParsing();
+    assertFalse(request.isPersistentConnectionRequested());
+  }
+
+  public void testHttp10ConnectionsMustAskForKeepAlive() throws Exception {
+    startParsing();
+    writeToPipe("GET /SomePage HTTP/1.0\r\n");
+    writeToPipe("\r\n");
+    finishParsing();
+    assertFalse(request.isPersistentConnectionRequested());
+
+    setUp();
+    startParsing();
+    writeToPipe("GET /SomePage HTTP/1.0\r\n");
+    writeToPipe("Connection: Keep-Alive\r\n");
+    writeToPipe("\r\n");
+    finishParsing();
+    assertTrue(request.isPersistentConnectionRequested());
+  }
+
   public void testMalformedRequestLine() throws Exception {
     startParsing();
     writeToPipe("/resource HTTP/1.1\r\n");
@@ -60,6 +60,10 @@ public abstract class Response {
 
   public abstract int getContentSize();
 
+  public boolean canKeepConnectionAlive() {
+    return false;
+  }
+
   public int getStatus() {
     return status;
   }
@@ -53,6 +53,10 @@ public class SimpleResponse extends Response {
     return content.length;
   }
 
+  public boolean canKeepConnectionAlive() {
+    return true;
+  }
+
   protected void addSpecificHeaders() {
     addHeader("Content-Length", String.valueOf(getContentSize()));
   }
@@ -72,6 +72,7 @@ public class ResponderFactory {
     addResponder("symlink", SymbolicLinkResponder.class);
     addResponder("importAndView", ImportAndViewResponder.class);
     addResponder("getPage", WikiPageResponder.class);
+    addResponder("serverStatus", ServerStatusResponder.class);
     addRespondersForRevisionControlOperations();
   }
 
@@ -223,6 +223,10 @@ public class ResponderFactoryTest extends TestCase {
     assertResponderTypeMatchesInput("symlink", SymbolicLinkResponder.class);
   }
 
+  public void testServerStatusResponder() throws Exception {
+    assertResponderTypeMatchesInput("serverStatus", ServerStatusResponder.class);
+  }
+
   public void testWillDisplayVirtualPages() throws Exception {
     WikiPage root = InMemoryPage.makeRoot("RooT");
     WikiPage page1 = crawler.addPage(root, PathParser.parse("PageOne"));
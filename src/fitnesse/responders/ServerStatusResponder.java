@@ -0,0 +1,73 @@
+// Copyright (C) 2003,2004,2005 by Object Mentor, Inc. All rights reserved.
+// Released under the terms of the GNU General Public License version 2 or later.
+package fitnesse.responders;
+
+import fitnesse.FitNesseContext;
+import fitnesse.Responder;
+import fitnesse.html.HtmlPage;
+import fitnesse.html.HtmlTag;
+import fitnesse.html.HtmlUtil;
+import fitnesse.http.Request;
+import fitnesse.http.Response;
+import fitnesse.http.SimpleResponse;
+import fitnesse.socketservice.ConnectionService;
+import fitnesse.wiki.PageDataCache;
+import fitnesse.wiki.RenderedHtmlCache;
+
+public class ServerStatusResponder implements Responder {
+  private HtmlTag table;
+
+  public Response makeResponse(FitNesseContext context, Request request) throws Exception {
+    SimpleResponse response = new SimpleResponse();
+    HtmlPage html = context.htmlPageFactory.newPage();
+    html.title.use("Server Status");
+    html.header.use(HtmlUtil.makeSpanTag("page_title", "Server Status"));
+    html.main.use(makeStatusTable(context));
+    response.setContent(html.html());
+    response.setMaxAge(0);
+    return response;
+  }
+
+  private HtmlTag makeStatusTable(FitNesseContext context) {
+    table = new HtmlTag("table");
+    table.addAttribute("class", "serverStatus");
+    table.addAttribute("cellspacing", "0");
+    ConnectionService service = context.fitnesse == null ? null : context.fitnesse.getConnectionService();
+    if (service != null) {
+      addRow("Connection handling", context.useSelectorServer ? "selector" : "thread per connection");
+      addRow("Active connections", service.getActiveConnections() + " of " + service.getMaxThreads());
+      addRow("Queued connections", service.getQueuedConnections() + " of " + context.maxQueuedConnections);
+      addRow("Accepted connections", service.getAcceptedConnections());
+      addRow("Rejected connections", service.getRejectedConnections());
+    } else
+      addRow("Socket service", "not running");
+    addRow("Keep-alive timeout", context.keepAliveTimeout + " ms");
+    addPageCacheRows(PageDataCache.getInstance());
+    addHtmlCacheRows(RenderedHtmlCache.getInstance());
+    return table;
+  }
+
+  private void addPageCacheRows(PageDataCache cache) {
+    addRow("Cached pages", cache.size());
+    addRow("Page cache size", cache.getWeight() / 1024 + " of " + cache.getCapacity() / 1024 + " KB");
+    addRow("Page cache hits", cache.getHits());
+    addRow("Page cache misses", cache.getMisses());
+    addRow("Page cache evictions", cache.getEvictions());
+    addRow("Page cache invalidations", cache.getInvalidations());
+  }
+
+  private void addHtmlCacheRows(RenderedHtmlCache cache) {
+    addRow("Cached HTML pages", cache.size());
+    addRow("HTML cache size", cache.getWeight() / 1024 + " of " + cache.getCapacity() / 1024 + " KB");
+    addRow("HTML cache hits", cache.getHits());
+    addRow("HTML cache misses", cache.getMisses());
+    addRow("HTML cache invalidations", cache.getInvalidations());
+  }
+
+  private void addRow(String name, Object value) {
+    HtmlTag row = new HtmlTag("tr");
+    row.add(new HtmlTag("td", name));
+    row.add(new HtmlTag("td", String.valueOf(value)));
+    table.add(row);
+  }
+}
@@ -0,0 +1,48 @@
+// Copyright (C) 2003,2004,2005 by Object Mentor, Inc. All rights reserved.
+// Released under the terms of the GNU General Public License version 2 or later.
+package fitnesse.responders;
+
+import fitnesse.FitNesse;
+import fitnesse.FitNesseContext;
+import fitnesse.http.MockRequest;
+import fitnesse.http.SimpleResponse;
+import fitnesse.testutil.RegexTestCase;
+import fitnesse.wiki.InMemoryPage;
+
+public class ServerStatusResponderTest extends RegexTestCase {
+  private FitNesseContext context;
+
+  public void setUp() throws Exception {
+    context = new FitNesseContext(InMemoryPage.makeRoot("RooT"));
+  }
+
+  public void testReportsWhenServiceIsNotRunning() throws Exception {
+    String content = makeStatusPage();
+    assertHasRegexp("Server Status", content);
+    assertHasRegexp("not running", content);
+  }
+
+  public void testReportsConnectionCounts() throws Exception {
+    context.port = 1999;
+    FitNesse fitnesse = new FitNesse(context, false);
+    fitnesse.start();
+    try {
+      String content = makeStatusPage();
+      assertHasRegexp("Active connections</td>\\s*<td>0 of 100", content);
+      assertHasRegexp("Rejected connections</td>\\s*<td>0", content);
+    } finally {
+      fitnesse.stop();
+    }
+  }
+
+  public void testReportsPageCacheCounters() throws Exception {
+    String content = makeStatusPage();
+    assertHasRegexp("Page cache hits</td>\\s*<td>\\d+", content);
+    assertHasRegexp("Page cache evictions</td>\\s*<td>\\d+", content);
+  }
+
+  private String makeStatusPage() throws Exception {
+    SimpleResponse response = (SimpleResponse) new ServerStatusResponder().makeResponse(context, new MockRequest());
+    return response.getContent();
+  }
+}
@@ -21,7 +21,7 @@ public class CompositeExecutionLog {
 
   private Map<String, ExecutionLog> logs = new HashMap<String, ExecutionLog>();
 
-  public void add(String testSystemName, ExecutionLog executionLog) {
+  public synchronized void add(String testSystemName, ExecutionLog executionLog) {
     logs.put(testSystemName, executionLog);
   }
 
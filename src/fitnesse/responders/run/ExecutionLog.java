@@ -6,8 +6,10 @@ import fitnesse.components.CommandRunner;
 import fitnesse.html.HtmlTag;
 import fitnesse.html.HtmlUtil;
 import fitnesse.responders.ErrorResponder;
+import fitnesse.util.FileUtil;
 import fitnesse.wiki.*;
 
+import java.io.*;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.LinkedList;
@@ -15,6 +17,7 @@ import java.util.List;
 
 public class ExecutionLog {
   public static final String ErrorLogName = "ErrorLogs";
+  static final String FULL_OUTPUT_DIRECTORY = "testOutput";
   private PageCrawler crawler;
 
   private static SimpleDateFormat makeDateFormat() {
@@ -25,6 +28,7 @@ public class ExecutionLog {
   private String errorLogPageName;
   private WikiPagePath errorLogPagePath;
   private WikiPage root;
+  private File fullOutputDirectory;
 
   private CommandRunner runner;
   private List<String> reasons = new LinkedList<String>();
@@ -38,6 +42,8 @@ public class ExecutionLog {
     root = crawler.getRoot(testPage);
     errorLogPagePath = crawler.getFullPath(testPage).addNameToFront(ErrorLogName);
     errorLogPageName = PathParser.render(errorLogPagePath);
+    if (root instanceof FileSystemPage)
+      fullOutputDirectory = new File(((FileSystemPage) root).getFileSystemPath(), "files/" + FULL_OUTPUT_DIRECTORY);
   }
 
   void addException(Throwable e) {
@@ -80,15 +86,59 @@ public class ExecutionLog {
   private void addOutputBlock(StringBuffer buffer) {
     buffer.append("----");
     buffer.append("'''Standard Output:'''").append("\n");
+    if (runner.isOutputTruncated() && addFullOutputEntry(buffer, runner.getOutputByteCount(), getOutputFile(), "stdout"))
+      runner.deleteOutputFile();
     buffer.append("{{{").append(runner.getOutput()).append("}}}");
   }
 
   private void addErrorBlock(StringBuffer buffer) {
     buffer.append("----");
     buffer.append("'''Standard Error:'''").append("\n");
+    if (runner.isErrorTruncated() && addFullOutputEntry(buffer, runner.getErrorByteCount(), getErrorFile(), "stderr"))
+      runner.deleteErrorFile();
     buffer.append("{{{").append(runner.getError()).append("}}}");
   }
 
+  private File getOutputFile() {
+    try {
+      return runner.getOutputFile();
+    } catch (Exception e) {
+      exceptions.add(e);
+      return null;
+    }
+  }
+
+  private File getErrorFile() {
+    try {
+      return runner.getErrorFile();
+    } catch (Exception e) {
+      exceptions.add(e);
+      return null;
+    }
+  }
+
+  // Output too long to show is only shown in part, with a link to all of it.  When the
+  // wiki is on disk the whole output is copied to where it can be downloaded from, and the
+  // temporary file is no longer needed: true when it was copied.
+  private boolean addFullOutputEntry(StringBuffer buffer, long byteCount, File file, String streamName) {
+    buffer.append(byteCount).append(" characters were written; only the first and last are shown below.\n");
+    if (file == null)
+      return false;
+    if (fullOutputDirectory != null) {
+      String fileName = errorLogPageName + "." + streamName + ".log";
+      try {
+        fullOutputDirectory.mkdirs();
+        copyFile(file, new File(fullOutputDirectory, fileName));
+        buffer.append("Full output: http://files/").append(FULL_OUTPUT_DIRECTORY).append("/").append(fileName).append("\n");
+        return true;
+      } catch (Exception e) {
+        exceptions.add(e);
+      }
+    }
+    buffer.append("Full output: !-").append(file.getAbsolutePath()).append("-!\n");
+    return false;
+  }
+
   private void addExceptionBlock(StringBuffer buffer) {
     exceptions.addAll(runner.getExceptions());
     buffer.append("----");
@@ -101,6 +151,20 @@ public class ExecutionLog {
     }
   }
 
+  private static void copyFile(File from, File to) throws Exception {
+    InputStream input = new FileInputStream(from);
+    try {
+      OutputStream output = new FileOutputStream(to);
+      try {
+        FileUtil.copyBytes(input, output);
+      } finally {
+        output.close();
+      }
+    } finally {
+      input.close();
+    }
+  }
+
   int exceptionCount() {
     return exceptions.size();
   }
@@ -2,10 +2,14 @@
 // Released under the terms of the GNU General Public License version 2 or later.
 package fitnesse.responders.run;
 
+import fitnesse.components.CapturedOutput;
 import fitnesse.testutil.MockCommandRunner;
 import fitnesse.testutil.RegexTestCase;
+import fitnesse.util.FileUtil;
 import fitnesse.wiki.*;
 
+import java.io.File;
+
 public class ExecutionLogTest extends RegexTestCase {
   private static String ErrorLogName = ExecutionLog.ErrorLogName;
 
@@ -87,6 +91,41 @@ public class ExecutionLogTest extends RegexTestCase {
     assertSubString("standard error that got printed", content);
   }
 
+  public void testLongOutputIsShownInPartWithWhereToFindAllOfIt() throws Exception {
+    runner.setOutput(longOutput());
+    String content = getGeneratedContent();
+
+    assertSubString("30 characters were written", content);
+    assertSubString("{{{0123\n... 22 characters omitted ...\n6789}}}", content);
+    assertHasRegexp("Full output: !-.*fitnesse-output.*\\.log-!", content);
+  }
+
+  public void testLongOutputIsCopiedToTheFilesOfAWikiOnDisk() throws Exception {
+    try {
+      root = FileSystemPage.makeRoot("testDir", "RooT");
+      testPage = root.addChildPage("TestPage");
+      log = new ExecutionLog(testPage, runner);
+      runner.setOutput(longOutput());
+      File temporaryFile = runner.getOutputFile();
+      String content = getGeneratedContent();
+
+      String fileName = "ErrorLogs.TestPage.stdout.log";
+      assertSubString("Full output: http://files/testOutput/" + fileName, content);
+      assertEquals("012345678901234567890123456789", FileUtil.getFileContent("testDir/RooT/files/testOutput/" + fileName));
+      assertFalse(temporaryFile.exists());
+      assertNull(runner.getOutputFile());
+    } finally {
+      FileUtil.deleteFileSystemDirectory("testDir");
+    }
+  }
+
+  private CapturedOutput longOutput() throws Exception {
+    CapturedOutput output = new CapturedOutput(8);
+    for (int i = 0; i < 3; i++)
+      output.append("0123456789".getBytes(), 0, 10);
+    return output;
+  }
+
   public void testException() throws Exception {
     log.addException(new Exception("I made this"));
     String content = getGeneratedContent();
@@ -5,6 +5,7 @@ package fitnesse.responders.run;
 import fitnesse.components.ClassPathBuilder;
 import fitnesse.html.HtmlTag;
 import fitnesse.html.SetupTeardownIncluder;
+import fitnesse.responders.run.slimResponder.SlimTestSystem;
 import fitnesse.util.XmlUtil;
 import fitnesse.wiki.*;
 import org.w3c.dom.Element;
@@ -45,11 +46,11 @@ public class SuiteResponder extends TestResponder implements TestSystemListener
 
   private void addFinalCounts() throws Exception {
     Element finalCounts = testResultsDocument.createElement("finalCounts");
-    testResultsElement.appendChild(finalCounts);
     XmlUtil.addTextNode(testResultsDocument, finalCounts, "right", Integer.toString(xmlPageCounts.right));
     XmlUtil.addTextNode(testResultsDocument, finalCounts, "wrong", Integer.toString(xmlPageCounts.wrong));
     XmlUtil.addTextNode(testResultsDocument, finalCounts, "ignores", Integer.toString(xmlPageCounts.ignores));
     XmlUtil.addTextNode(testResultsDocument, finalCounts, "exceptions", Integer.toString(xmlPageCounts.exceptions));
+    writeXmlElement(finalCounts);
   }
 
   private void executeTestPages() throws Exception {
@@ -75,6 +76,10 @@ public class SuiteResponder extends TestResponder implements TestSystemListener
 
   private void startTestSystemAndExecutePages(String testSystemName, List<WikiPage> testSystemPages) throws Exception {
     String testRunner = extractRunnerFromTestSystemName(testSystemName);
+    if (getParallelism() > 1) {
+      executePagesInParallel(testSystemName, testRunner, testSystemPages);
+      return;
+    }
     TestSystem testSystem = testSystemGroup.startTestSystem(testSystemName, testRunner, classPath);
     if (testSystem.isSuccessfullyStarted()) {
       executeTestSystemPages(testSystemPages, testSystem);
@@ -94,6 +99,57 @@ public class SuiteResponder extends TestResponder implements TestSystemListener
     }
   }
 
+  // ?suite&parallel=N spreads the pages of each test system over N test system processes.
+  // N is held to maxParallelism(), so shards never have to share a Slim port.
+  private int getParallelism() {
+    return parseParallelism(request != null ? (String) request.getInput("parallel") : null);
+  }
+
+  static int parseParallelism(String parallel) {
+    try {
+      return parallel == null ? 1 : Math.min(Integer.parseInt(parallel.trim()), maxParallelism());
+    } catch (NumberFormatException e) {
+      return 1;
+    }
+  }
+
+  // One process per processor, but at least two, and no more than the fixed Slim ports.
+  static int maxParallelism() {
+    int processors = Math.max(2, Runtime.getRuntime().availableProcessors());
+    return Math.min(processors, SlimTestSystem.SLIM_PORT_COUNT);
+  }
+
+  private void executePagesInParallel(String testSystemName, String testRunner, List<WikiPage> testSystemPages)
+    throws Exception {
+    List<SuiteShard> shards = new ArrayList<SuiteShard>();
+    for (List<WikiPage> shardPages : SuiteShard.divide(testSystemPages, getParallelism())) {
+      SuiteShard shard = new SuiteShard(context, page, testSystemName, testRunner, classPath, log,
+        shards.size() + 1, isFastTest());
+      for (WikiPage shardPage : shardPages)
+        shard.addPage(shardPage);
+      shards.add(shard);
+    }
+    try {
+      for (SuiteShard shard : shards)
+        shard.start();
+      for (SuiteShard shard : shards)
+        reportShardResults(shard);
+    } finally {
+      for (SuiteShard shard : shards)
+        shard.kill();
+    }
+  }
+
+  private void reportShardResults(SuiteShard shard) throws Exception {
+    for (SuiteShard.PageResult result : shard.getResults()) {
+      shard.waitFor(result);
+      processingQueue.addLast(result.page);
+      for (String output : result.output)
+        acceptOutputFirst(output);
+      acceptResultsLast(result.summary);
+    }
+  }
+
   private void waitForTestSystemToSendResults() throws InterruptedException {
     while (processingQueue.size() > 0)
       Thread.sleep(50);
@@ -6,6 +6,7 @@ import fitnesse.FitNesseContext;
 import fitnesse.http.MockRequest;
 import fitnesse.http.MockResponseSender;
 import fitnesse.http.Response;
+import fitnesse.responders.run.slimResponder.SlimTestSystem;
 import fitnesse.testutil.FitSocketReceiver;
 import static fitnesse.testutil.RegexTestCase.*;
 import fitnesse.util.XmlUtil;
@@ -360,6 +361,56 @@ public class SuiteResponderTest {
     assertHasRegexp("<h3>slim:fitnesse.slim.SlimService", results);
   }
 
+  @Test
+  public void parallelSuiteReportsPagesInOrder() throws Exception {
+    request.addInput("parallel", "2");
+    crawler.addPage(suite, PathParser.parse(SuiteResponder.SUITE_SETUP_NAME), simpleSlimDecisionTable);
+    for (String name : new String[]{"SlimOne", "SlimTwo", "SlimThree"})
+      addTestToSuite(name, simpleSlimDecisionTable);
+    String results = runSuite();
+
+    int slimOne = results.indexOf("href=\"#SlimOne");
+    int slimTwo = results.indexOf("href=\"#SlimTwo");
+    int slimThree = results.indexOf("href=\"#SlimThree");
+    assertTrue(results, slimOne != -1 && slimOne < slimThree && slimThree < slimTwo);
+    assertHasRegexp("SuiteSetUp.*SlimOne.*SuiteSetUp.*SlimThree.*SlimTwo", results);
+    assertSubString("PassFixture", results);
+
+    String log = crawler.getPage(root, PathParser.parse("ErrorLogs." + suitePageName)).getData().getContent();
+    assertSubString("slim:fitnesse.slim.SlimService #1", log);
+    assertSubString("slim:fitnesse.slim.SlimService #2", log);
+  }
+
+  @Test
+  public void parallelismIsHeldToTheAvailableSlimPorts() throws Exception {
+    assertEquals(SuiteResponder.maxParallelism(), SuiteResponder.parseParallelism("1000"));
+    assertTrue(SuiteResponder.maxParallelism() <= SlimTestSystem.SLIM_PORT_COUNT);
+    assertEquals(2, SuiteResponder.parseParallelism("2"));
+    assertEquals(1, SuiteResponder.parseParallelism("lots"));
+  }
+
+  @Test
+  public void parallelSuiteShardsGetTheirOwnSetUpAndTearDown() throws Exception {
+    WikiPage setUp = crawler.addPage(suite, PathParser.parse(SuiteResponder.SUITE_SETUP_NAME));
+    WikiPage tearDown = crawler.addPage(suite, PathParser.parse(SuiteResponder.SUITE_TEARDOWN_NAME));
+    testPage2 = addTestToSuite("TestTwo", fitPassFixture);
+    WikiPage testPage3 = addTestToSuite("TestThree", fitPassFixture);
+    List<WikiPage> pages = responder.makePageList();
+
+    List<List<WikiPage>> shards = SuiteShard.divide(pages, 2);
+    assertEquals(2, shards.size());
+    assertEquals(4, shards.get(1).size());
+    assertSame(setUp, shards.get(0).get(0));
+    assertSame(testPage, shards.get(0).get(1));
+    assertSame(tearDown, shards.get(0).get(2));
+    assertSame(setUp, shards.get(1).get(0));
+    assertSame(testPage3, shards.get(1).get(1));
+    assertSame(testPage2, shards.get(1).get(2));
+    assertSame(tearDown, shards.get(1).get(3));
+
+    assertEquals(3, SuiteShard.divide(pages, 8).size());
+  }
+
   @Test
   public void xmlFormat() throws Exception {
     request.addInput("format", "xml");
@@ -0,0 +1,164 @@
+// Copyright (C) 2003,2004,2005 by Object Mentor, Inc. All rights reserved.
+// Released under the terms of the GNU General Public License version 2 or later.
+package fitnesse.responders.run;
+
+import fitnesse.FitNesseContext;
+import fitnesse.html.SetupTeardownIncluder;
+import fitnesse.wiki.PageData;
+import fitnesse.wiki.WikiPage;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+// One slice of a suite run in parallel: its pages go through a test system of its own, on
+// a thread of its own.  What the test system reports is held per page until the suite
+// responder takes it, so the results can be written in page order whichever shard
+// finishes first.
+public class SuiteShard implements TestSystemListener, Runnable {
+  private final TestSystemGroup testSystemGroup;
+  private final String testSystemName;
+  private final String testRunner;
+  private final String classPath;
+  private final List<PageResult> results = new ArrayList<PageResult>();
+  private final LinkedList<PageResult> processingQueue = new LinkedList<PageResult>();
+  private Throwable failure;
+  private boolean finished = false;
+
+  public SuiteShard(FitNesseContext context, WikiPage suitePage, String testSystemName, String testRunner,
+                    String classPath, CompositeExecutionLog log, int shardNumber, boolean fastTest) {
+    testSystemGroup = new TestSystemGroup(context, suitePage, this, log, " #" + shardNumber);
+    testSystemGroup.setFastTest(fastTest);
+    this.testSystemName = testSystemName;
+    this.testRunner = testRunner;
+    this.classPath = classPath;
+  }
+
+  // Splits the pages into at most shardCount runs of neighbouring pages.  A SuiteSetUp or
+  // SuiteTearDown around the pages is run around every shard.
+  public static List<List<WikiPage>> divide(List<WikiPage> pages, int shardCount) throws Exception {
+    List<WikiPage> tests = new ArrayList<WikiPage>(pages);
+    WikiPage setUp = null;
+    WikiPage tearDown = null;
+    if (!tests.isEmpty() && SuiteResponder.SUITE_SETUP_NAME.equals(tests.get(0).getName()))
+      setUp = tests.remove(0);
+    if (!tests.isEmpty() && SuiteResponder.SUITE_TEARDOWN_NAME.equals(tests.get(tests.size() - 1).getName()))
+      tearDown = tests.remove(tests.size() - 1);
+
+    List<List<WikiPage>> shards = new ArrayList<List<WikiPage>>();
+    int count = Math.max(1, Math.min(shardCount, tests.size()));
+    int start = 0;
+    for (int i = 0; i < count; i++) {
+      int end = start + (tests.size() - start) / (count - i);
+      List<WikiPage> shard = new ArrayList<WikiPage>();
+      if (setUp != null)
+        shard.add(setUp);
+      shard.addAll(tests.subList(start, end));
+      if (tearDown != null)
+        shard.add(tearDown);
+      shards.add(shard);
+      start = end;
+    }
+    return shards;
+  }
+
+  public void addPage(WikiPage page) {
+    results.add(new PageResult(page));
+  }
+
+  public List<PageResult> getResults() {
+    return results;
+  }
+
+  public void start() {
+    new Thread(this, "Suite shard " + testSystemName).start();
+  }
+
+  public void run() {
+    try {
+      TestSystem testSystem = testSystemGroup.startTestSystem(testSystemName, testRunner, classPath);
+      if (!testSystem.isSuccessfullyStarted())
+        throw new Exception("Test system not started");
+      for (PageResult result : results) {
+        synchronized (this) {
+          processingQueue.addLast(result);
+        }
+        PageData pageData = result.page.getData();
+        SetupTeardownIncluder.includeInto(pageData);
+        testSystem.sendPageData(pageData);
+      }
+      waitForTestSystemToSendResults();
+      testSystemGroup.bye();
+      finish(null);
+    } catch (Throwable e) {
+      finish(e);
+    }
+  }
+
+  private synchronized void waitForTestSystemToSendResults() throws InterruptedException {
+    while (!processingQueue.isEmpty() && failure == null)
+      wait();
+  }
+
+  private synchronized void finish(Throwable e) {
+    if (failure == null)
+      failure = e;
+    finished = true;
+    notifyAll();
+  }
+
+  // Waits until the test system has reported the page, and rethrows what made the shard
+  // give up before it did.
+  public synchronized void waitFor(PageResult result) throws Exception {
+    while (!result.done && failure == null && !finished)
+      wait();
+    if (failure instanceof Exception)
+      throw (Exception) failure;
+    if (failure != null)
+      throw new Exception(failure);
+    if (!result.done)
+      throw new Exception("Test system stopped before running " + result.page.getName());
+  }
+
+  public void kill() {
+    boolean running;
+    synchronized (this) {
+      running = !finished;
+    }
+    if (running) {
+      try {
+        testSystemGroup.kill();
+      } catch (Exception e) {
+      }
+    }
+  }
+
+  public synchronized void acceptOutputFirst(String output) throws Exception {
+    if (!processingQueue.isEmpty())
+      processingQueue.getFirst().output.add(output);
+  }
+
+  public synchronized void acceptResultsLast(TestSummary testSummary) throws Exception {
+    PageResult result = processingQueue.removeFirst();
+    result.summary = new TestSummary(testSummary.right, testSummary.wrong, testSummary.ignores, testSummary.exceptions);
+    result.done = true;
+    notifyAll();
+  }
+
+  public synchronized void exceptionOccurred(Throwable e) {
+    if (failure == null)
+      failure = e;
+    notifyAll();
+  }
+
+  public static class PageResult {
+    public final WikiPage page;
+    public final List<String> output = new ArrayList<String>();
+    public TestSummary summary;
+    private boolean done = false;
+
+    PageResult(WikiPage page) {
+      this.page = page;
+    }
+  }
+}
@@ -37,6 +37,8 @@ public class TestResponder extends ChunkingResponder implements TestSystemListen
   protected Document testResultsDocument;
   protected Element testResultsElement;
   private StringBuffer outputBuffer;
+  private ByteArrayOutputStream xmlBuffer;
+  private XmlWriter xmlWriter;
   private boolean fastTest = false;
 
   protected void doSending() throws Exception {
@@ -89,6 +91,10 @@ public class TestResponder extends ChunkingResponder implements TestSystemListen
       testResultsElement = testResultsDocument.createElement("testResults");
       testResultsDocument.appendChild(testResultsElement);
       XmlUtil.addTextNode(testResultsDocument, testResultsElement, "rootPath", page.getName());
+      xmlBuffer = new ByteArrayOutputStream();
+      xmlWriter = new XmlWriter(xmlBuffer);
+      xmlWriter.writeHead(testResultsDocument);
+      sendXml();
     } else {
       buildHtml();
       addToResponse(formatter.head());
@@ -115,11 +121,9 @@ public class TestResponder extends ChunkingResponder implements TestSystemListen
     if (!closed) {
       closed = true;
       if (response.isXmlFormat()) {
-        ByteArrayOutputStream os = new ByteArrayOutputStream();
-        XmlWriter writer = new XmlWriter(os);
-        writer.write(testResultsDocument);
-        writer.close();
-        response.add(os.toByteArray());
+        xmlWriter.writeTail(testResultsDocument);
+        sendXml();
+        xmlWriter.close();
         response.closeChunks();
         response.close();
       } else {
@@ -163,13 +167,29 @@ public class TestResponder extends ChunkingResponder implements TestSystemListen
 
   protected void addTestResultsToXmlDocument(TestSummary testSummary, String pageName) throws Exception {
     Element resultElement = testResultsDocument.createElement("result");
-    testResultsElement.appendChild(resultElement);
     addCountsToResult(testSummary, resultElement);
 
     XmlUtil.addCdataNode(testResultsDocument, resultElement, "content", outputBuffer.toString());
     outputBuffer = null;
 
     XmlUtil.addTextNode(testResultsDocument, resultElement, "relativePageName", pageName);
+    writeXmlElement(resultElement);
+  }
+
+  // Each result is sent as soon as its page is done rather than kept in the document, so
+  // the response is written as the run goes and no more than one page is held at a time.
+  protected synchronized void writeXmlElement(Element element) throws Exception {
+    if (closed)
+      return;
+    xmlWriter.write(element, 1);
+    sendXml();
+  }
+
+  private void sendXml() throws Exception {
+    xmlWriter.flush();
+    if (xmlBuffer.size() > 0)
+      response.add(xmlBuffer.toByteArray());
+    xmlBuffer.reset();
   }
 
   private void addCountsToResult(TestSummary testSummary, Element resultElement) {
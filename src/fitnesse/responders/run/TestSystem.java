@@ -1,5 +1,6 @@
 package fitnesse.responders.run;
 
+import fitnesse.components.CapturedOutput;
 import fitnesse.wiki.PageData;
 import fitnesse.wiki.WikiPage;
 
@@ -18,9 +19,20 @@ public abstract class TestSystem implements TestSystemListener {
 
   public ExecutionLog getExecutionLog(String classPath, String className) throws Exception {
     log = createExecutionLog(classPath, className);
+    String outputLimit = page.getReadOnlyData().getVariable("COMMAND_OUTPUT_LIMIT");
+    if (outputLimit != null)
+      log.getCommandRunner().setOutputLimit(parseOutputLimit(outputLimit));
     return log;
   }
 
+  static int parseOutputLimit(String outputLimit) {
+    try {
+      return Integer.parseInt(outputLimit.trim());
+    } catch (NumberFormatException e) {
+      return CapturedOutput.DEFAULT_LIMIT;
+    }
+  }
+
   protected abstract ExecutionLog createExecutionLog(String classPath, String className) throws Exception;
 
   protected String buildCommand(String program, String classPath) throws Exception {
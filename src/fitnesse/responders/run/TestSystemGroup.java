@@ -13,13 +13,21 @@ public class TestSystemGroup {
   private WikiPage page;
   private TestSystemListener testSystemListener;
   private CompositeExecutionLog log;
+  private String logNameSuffix = "";
   private boolean fastTest = false;
 
   public TestSystemGroup(FitNesseContext context, WikiPage page, TestSystemListener listener) throws Exception {
+    this(context, page, listener, new CompositeExecutionLog(page), "");
+  }
+
+  // A group that logs into another group's log, with its own suffix on each test system name.
+  TestSystemGroup(FitNesseContext context, WikiPage page, TestSystemListener listener,
+                  CompositeExecutionLog log, String logNameSuffix) {
     this.context = context;
     this.page = page;
     this.testSystemListener = listener;
-    log = new CompositeExecutionLog(page);
+    this.log = log;
+    this.logNameSuffix = logNameSuffix;
   }
 
   public void add(String testSystemName, TestSystem testSystem) {
@@ -59,7 +67,7 @@ public class TestSystemGroup {
       testSystem = makeTestSystem(testSystemName);
       testSystem.setFastTest(fastTest);
       testSystems.put(testSystemName, testSystem);
-      log.add(testSystemName, testSystem.getExecutionLog(classPath, testRunner));
+      log.add(testSystemName + logNameSuffix, testSystem.getExecutionLog(classPath, testRunner));
       testSystem.start();
     }
     return testSystem;
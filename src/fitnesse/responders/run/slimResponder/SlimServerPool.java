@@ -0,0 +1,162 @@
+// Copyright (C) 2003,2004,2005 by Object Mentor, Inc. All rights reserved.
+// Released under the terms of the GNU General Public License version 2 or later.
+package fitnesse.responders.run.slimResponder;
+
+import fitnesse.components.CommandRunner;
+
+import java.util.*;
+
+// Slim servers that outlive the test page they were started for.  A server is leased to
+// one test system at a time and handed back when that system says bye; the next page
+// run with the same command takes it rather than starting another JVM.  Idle servers are
+// killed after a while, and servers that have died are dropped when they are asked for.
+public class SlimServerPool {
+  public static final int DEFAULT_MAX_IDLE_SERVERS = 4;
+  public static final long DEFAULT_MAX_IDLE_TIME = 5 * 60 * 1000;
+
+  private static SlimServerPool instance;
+
+  private final int maxIdleServers;
+  private final long maxIdleTime;
+  private final LinkedList<PooledServer> idleServers = new LinkedList<PooledServer>();
+  private final Set<PooledServer> leasedServers = new HashSet<PooledServer>();
+  private int reusedServers = 0;
+
+  public static synchronized SlimServerPool getInstance() {
+    if (instance == null) {
+      instance = new SlimServerPool(DEFAULT_MAX_IDLE_SERVERS, DEFAULT_MAX_IDLE_TIME);
+      Runtime.getRuntime().addShutdownHook(new Thread("Slim server pool shutdown") {
+        public void run() {
+          instance.killAll();
+        }
+      });
+    }
+    return instance;
+  }
+
+  public SlimServerPool(int maxIdleServers, long maxIdleTime) {
+    this.maxIdleServers = maxIdleServers;
+    this.maxIdleTime = maxIdleTime;
+  }
+
+  // The seconds a pooled server should wait, unused, before closing itself; a little
+  // longer than the pool keeps it, so it only matters when FitNesse went away.
+  public int getServerIdleSeconds() {
+    return (int) (maxIdleTime / 1000) * 2;
+  }
+
+  public synchronized PooledServer acquire(String command) throws Exception {
+    killExpiredServers();
+    for (Iterator<PooledServer> i = idleServers.iterator(); i.hasNext();) {
+      PooledServer server = i.next();
+      if (server.command.equals(command)) {
+        i.remove();
+        if (server.runner.isRunning()) {
+          leasedServers.add(server);
+          reusedServers++;
+          return server;
+        }
+        server.kill();
+      }
+    }
+    return null;
+  }
+
+  public synchronized PooledServer register(String command, CommandRunner runner, int port) {
+    PooledServer server = new PooledServer(command, runner, port);
+    leasedServers.add(server);
+    return server;
+  }
+
+  public void release(PooledServer server) throws Exception {
+    PooledServer evicted = null;
+    synchronized (this) {
+      if (!leasedServers.remove(server))
+        return;
+      if (server.runner.isRunning()) {
+        server.idleSince = System.currentTimeMillis();
+        idleServers.addFirst(server);
+        if (idleServers.size() > maxIdleServers)
+          evicted = idleServers.removeLast();
+      } else
+        evicted = server;
+    }
+    if (evicted != null)
+      evicted.kill();
+  }
+
+  public void discard(PooledServer server) throws Exception {
+    synchronized (this) {
+      leasedServers.remove(server);
+      idleServers.remove(server);
+    }
+    server.kill();
+  }
+
+  public synchronized boolean ownsPort(int port) {
+    for (PooledServer server : idleServers)
+      if (server.port == port)
+        return true;
+    for (PooledServer server : leasedServers)
+      if (server.port == port)
+        return true;
+    return false;
+  }
+
+  public synchronized int getIdleServers() {
+    return idleServers.size();
+  }
+
+  public synchronized int getReusedServers() {
+    return reusedServers;
+  }
+
+  public void killAll() {
+    List<PooledServer> servers;
+    synchronized (this) {
+      servers = new ArrayList<PooledServer>(idleServers);
+      idleServers.clear();
+    }
+    for (PooledServer server : servers)
+      server.kill();
+  }
+
+  private void killExpiredServers() {
+    long now = System.currentTimeMillis();
+    for (Iterator<PooledServer> i = idleServers.iterator(); i.hasNext();) {
+      PooledServer server = i.next();
+      if (now - server.idleSince > maxIdleTime) {
+        i.remove();
+        server.kill();
+      }
+    }
+  }
+
+  public static class PooledServer {
+    private final String command;
+    private final CommandRunner runner;
+    private final int port;
+    private long idleSince;
+
+    PooledServer(String command, CommandRunner runner, int port) {
+      this.command = command;
+      this.runner = runner;
+      this.port = port;
+    }
+
+    public CommandRunner getRunner() {
+      return runner;
+    }
+
+    public int getPort() {
+      return port;
+    }
+
+    void kill() {
+      try {
+        runner.kill();
+      } catch (Exception e) {
+      }
+    }
+  }
+}
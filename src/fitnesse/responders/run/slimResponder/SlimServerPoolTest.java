@@ -0,0 +1,88 @@
+package fitnesse.responders.run.slimResponder;
+
+import fitnesse.testutil.MockCommandRunner;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SlimServerPoolTest {
+  private SlimServerPool pool;
+
+  @Before
+  public void setUp() throws Exception {
+    pool = new SlimServerPool(2, 60000);
+  }
+
+  @Test
+  public void leasedServerIsNotHandedOut() throws Exception {
+    pool.register("java Slim", new FakeServerRunner(), 8085);
+    assertNull(pool.acquire("java Slim"));
+  }
+
+  @Test
+  public void releasedServerIsReusedForTheSameCommand() throws Exception {
+    SlimServerPool.PooledServer registered = pool.register("java Slim", new FakeServerRunner(), 8086);
+    pool.release(registered);
+    assertNull(pool.acquire("java -v Slim"));
+    assertSame(registered, pool.acquire("java Slim"));
+    assertEquals(1, pool.getReusedServers());
+  }
+
+  @Test
+  public void leasedAndIdleServersKeepTheirPorts() throws Exception {
+    SlimServerPool.PooledServer server = pool.register("java Slim", new FakeServerRunner(), 8085);
+    assertTrue(pool.ownsPort(8085));
+    pool.release(server);
+    assertTrue(pool.ownsPort(8085));
+    pool.discard(server);
+    assertFalse(pool.ownsPort(8085));
+  }
+
+  @Test
+  public void deadServersAreNotHandedOut() throws Exception {
+    FakeServerRunner runner = new FakeServerRunner();
+    pool.release(pool.register("java Slim", runner, 8085));
+    runner.running = false;
+    assertNull(pool.acquire("java Slim"));
+    assertEquals(0, pool.getIdleServers());
+  }
+
+  @Test
+  public void serversBeyondTheLimitAreKilled() throws Exception {
+    FakeServerRunner[] runners = new FakeServerRunner[3];
+    SlimServerPool.PooledServer[] servers = new SlimServerPool.PooledServer[3];
+    for (int i = 0; i < 3; i++) {
+      runners[i] = new FakeServerRunner();
+      servers[i] = pool.register("java Slim", runners[i], 8085 + i);
+    }
+    for (int i = 0; i < 3; i++)
+      pool.release(servers[i]);
+    assertEquals(2, pool.getIdleServers());
+    assertTrue(runners[0].killed);
+    assertFalse(runners[2].killed);
+  }
+
+  @Test
+  public void expiredServersAreKilled() throws Exception {
+    pool = new SlimServerPool(2, 0);
+    FakeServerRunner runner = new FakeServerRunner();
+    pool.release(pool.register("java Slim", runner, 8085));
+    Thread.sleep(10);
+    assertNull(pool.acquire("java Slim"));
+    assertTrue(runner.killed);
+  }
+
+  private static class FakeServerRunner extends MockCommandRunner {
+    boolean running = true;
+    boolean killed = false;
+
+    public boolean isRunning() {
+      return running;
+    }
+
+    public void kill() throws Exception {
+      killed = true;
+      running = false;
+    }
+  }
+}
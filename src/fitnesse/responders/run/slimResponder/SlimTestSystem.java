@@ -34,6 +34,12 @@ public class SlimTestSystem extends TestSystem implements SlimTestContext {
   private TestSummary testSummary;
   private static AtomicInteger slimSocketOffset = new AtomicInteger(0);
   private int slimSocket;
+  private SlimServerPool.PooledServer pooledServer;
+  private String pooledCommand;
+  private static final int DEFAULT_SLIM_PORT = 8085;
+  public static final int SLIM_PORT_COUNT = 10;
+  private static final long SERVER_START_TIMEOUT = 60000;
+  private static final Pattern portAnnouncementPattern = Pattern.compile(Pattern.quote(SlimService.PORT_ANNOUNCEMENT) + "(\\d+)\r?\n");
   private final Pattern exceptionMessagePattern = Pattern.compile("message:<<(.*)>>");
 
   public SlimTestSystem(WikiPage page, TestSystemListener listener) {
@@ -54,80 +60,164 @@ public class SlimTestSystem extends TestSystem implements SlimTestContext {
   }
 
   public void kill() throws Exception {
-    if (slimRunner != null)
+    if (pooledServer != null)
+      SlimServerPool.getInstance().discard(pooledServer);
+    else if (slimRunner != null)
       slimRunner.kill();
     if (slimClient != null)
       slimClient.close();
   }
 
   String getSlimFlags() throws Exception {
-    String slimFlags = page.getData().getVariable("SLIM_FLAGS");
+    String slimFlags = page.getReadOnlyData().getVariable("SLIM_FLAGS");
     if (slimFlags == null)
       slimFlags = "";
     return slimFlags;
   }
 
+  // Slim servers cycle through ten fixed ports, starting at SLIM_PORT or 8085.  A SLIM_PORT
+  // of 0 lets a server that announces its port, like SlimService, pick a free one.
+  int getSlimPortBase() throws Exception {
+    String slimPort = page.getReadOnlyData().getVariable("SLIM_PORT");
+    if (slimPort == null || slimPort.trim().length() == 0)
+      return DEFAULT_SLIM_PORT;
+    try {
+      return Integer.parseInt(slimPort.trim());
+    } catch (NumberFormatException e) {
+      System.err.println("invalid SLIM_PORT '" + slimPort + "', using " + DEFAULT_SLIM_PORT);
+      return DEFAULT_SLIM_PORT;
+    }
+  }
+
+  // Pages that define SLIM_POOL as true share Slim servers with the pages run before them.
+  // A pooled server keeps the classes it has loaded, so it is off by default.
+  boolean isPoolingServers() throws Exception {
+    return !fastTest && "true".equalsIgnoreCase(page.getReadOnlyData().getVariable("SLIM_POOL"));
+  }
+
   protected ExecutionLog createExecutionLog(String classPath, String className) throws Exception {
     String slimFlags = getSlimFlags();
-    slimSocket = getNextSlimSocket();
-    String slimArguments = String.format("%s %d", slimFlags, slimSocket);
     String slimCommandPrefix = buildCommand(className, classPath);
+    if (isPoolingServers())
+      return createPooledExecutionLog(String.format("%s %s", slimCommandPrefix, slimFlags).trim());
+    slimSocket = getNextSlimSocket(getSlimPortBase());
+    String slimArguments = String.format("%s %d", slimFlags, slimSocket);
     slimCommand = String.format("%s %s", slimCommandPrefix, slimArguments);
     if (fastTest) {
       slimRunner = new MockCommandRunner();
-      createSlimService(slimArguments);
+      slimSocket = createSlimService(slimArguments);
     } else {
       slimRunner = new CommandRunner(slimCommand, "");
     }
     return new ExecutionLog(page, slimRunner);
   }
 
-  public int getNextSlimSocket() {
+  private ExecutionLog createPooledExecutionLog(String pooledCommand) throws Exception {
+    this.pooledCommand = pooledCommand;
+    SlimServerPool pool = SlimServerPool.getInstance();
+    while ((pooledServer = pool.acquire(pooledCommand)) != null) {
+      slimSocket = pooledServer.getPort();
+      slimClient = new SlimClient("localhost", slimSocket);
+      if (isConnected())
+        break;
+      pool.discard(pooledServer);
+      slimClient = null;
+    }
+    if (pooledServer != null) {
+      slimRunner = pooledServer.getRunner();
+      slimRunner.clearOutput();
+    } else {
+      slimSocket = getNextSlimSocket(getSlimPortBase());
+      String command = String.format("%s -r %d %d", pooledCommand, pool.getServerIdleSeconds(), slimSocket);
+      slimRunner = new CommandRunner(command, "");
+    }
+    slimCommand = slimRunner.getCommand();
+    return new ExecutionLog(page, slimRunner);
+  }
+
+  public int getNextSlimSocket(int portBase) {
+    if (portBase == 0)
+      return 0;
     synchronized (slimSocketOffset) {
       int base = slimSocketOffset.get();
-      base++;
-      if (base >= 10)
-        base = 0;
+      for (int tries = 0; tries < SLIM_PORT_COUNT; tries++) {
+        base++;
+        if (base >= SLIM_PORT_COUNT)
+          base = 0;
+        if (!SlimServerPool.getInstance().ownsPort(base + portBase))
+          break;
+      }
       slimSocketOffset.set(base);
-      return base + 8085;
+      return base + portBase;
     }
   }
 
   public void start() throws Exception {
-    slimRunner.start();
-    slimClient = new SlimClient("localhost", slimSocket);
-    waitForConnection();
+    if (slimClient == null) {
+      slimRunner.start();
+      if (slimSocket == 0)
+        slimSocket = waitForPortAnnouncement();
+      slimClient = new SlimClient("localhost", slimSocket);
+      waitForConnection();
+      if (pooledCommand != null)
+        pooledServer = SlimServerPool.getInstance().register(pooledCommand, slimRunner, slimSocket);
+    }
     started = true;
   }
 
+  // The announcement is taken out of the captured output, so that it alone does not
+  // make the execution log report output.
+  int waitForPortAnnouncement() throws Exception {
+    long deadline = System.currentTimeMillis() + SERVER_START_TIMEOUT;
+    while (true) {
+      Matcher matcher = portAnnouncementPattern.matcher(slimRunner.getOutput());
+      if (matcher.find()) {
+        slimRunner.removeOutput(matcher.group());
+        return Integer.parseInt(matcher.group(1));
+      }
+      if (!slimRunner.isRunning() || System.currentTimeMillis() > deadline)
+        throw new Exception("Slim server did not announce its port: " + slimCommand);
+      Thread.sleep(10);
+    }
+  }
+
   public String getCommandLine() {
     return slimCommand;
   }
 
   public void bye() throws Exception {
     slimClient.sendBye();
-    if (!fastTest)
+    if (pooledServer != null) {
+      slimClient.close();
+      SlimServerPool.getInstance().release(pooledServer);
+    } else if (!fastTest)
       slimRunner.join();
   }
 
   //For testing only.  Makes responder faster.
-  void createSlimService(String args) throws Exception {
-    while (!tryCreateSlimService(args))
+  int createSlimService(String args) throws Exception {
+    SlimService service;
+    while ((service = tryCreateSlimService(args)) == null)
       Thread.sleep(10);
+    return service.getPort();
   }
 
-  private boolean tryCreateSlimService(String args) throws Exception {
+  private SlimService tryCreateSlimService(String args) throws Exception {
     try {
-      SlimService.main(args.trim().split(" "));
-      return true;
+      return SlimService.start(args.trim().split(" +"));
     } catch (Exception e) {
-      return false;
+      return null;
     }
   }
 
+  // A server on a fixed port may still be starting up; SlimClient.connect() retries too.
   void waitForConnection() throws Exception {
-    while (!isConnected())
+    long deadline = System.currentTimeMillis() + SERVER_START_TIMEOUT;
+    while (!isConnected()) {
+      if (System.currentTimeMillis() > deadline)
+        throw new Exception("Could not connect to Slim server on port " + slimSocket);
       Thread.sleep(50);
+    }
   }
 
   private boolean isConnected() throws Exception {
@@ -144,6 +234,11 @@ public class SlimTestSystem extends TestSystem implements SlimTestContext {
     symbols.clear();
     exceptions.clear();
     testSummary.clear();
+    if (isStreamingTables(pageData)) {
+      runTestsOnPageTableByTable(pageData);
+      acceptResultsLast(testSummary);
+      return;
+    }
     runTestsOnPage(pageData);
     String wikiText = generateWikiTextForTestResults();
     pageData.setContent(wikiText);
@@ -152,6 +247,56 @@ public class SlimTestSystem extends TestSystem implements SlimTestContext {
     acceptResultsLast(testSummary);
   }
 
+  // Pages that define SLIM_STREAMING as true send their tables to Slim one at a time, and
+  // each part of the page is passed on as soon as the tables in it have been evaluated.
+  boolean isStreamingTables(PageData pageData) throws Exception {
+    return "true".equalsIgnoreCase(pageData.getVariable("SLIM_STREAMING"));
+  }
+
+  void runTestsOnPageTableByTable(PageData pageData) throws Exception {
+    tableScanner = new TableScanner(pageData);
+    int sentWidgets = 0;
+    for (int i = 0; i < tableScanner.getTableCount(); i++) {
+      runTable(tableScanner.getTable(i));
+      int nextWidget = i + 1 < tableScanner.getTableCount() ?
+        tableScanner.getTopLevelWidgetIndex(i + 1) : tableScanner.getTopLevelWidgetCount();
+      sentWidgets = sendWidgets(pageData, sentWidgets, nextWidget);
+    }
+    sendWidgets(pageData, sentWidgets, tableScanner.getTopLevelWidgetCount());
+    if (!exceptions.isEmpty())
+      acceptOutputFirst(renderWikiText(pageData, ExceptionList.toWikiText(exceptions)));
+
+    pageData.setContent(ExceptionList.toWikiText(exceptions) + testResultsToWikiText());
+    testResults = pageData;
+  }
+
+  private void runTable(Table table) throws Exception {
+    SlimTable slimTable = makeSlimTable(table, "" + testTables.size(), this);
+    if (slimTable == null)
+      return;
+    testTables.add(slimTable);
+    instructions = new ArrayList<Object>();
+    slimTable.appendInstructions(instructions);
+    if (instructions.isEmpty())
+      instructionResults = new HashMap<String, Object>();
+    else
+      instructionResults = slimClient.invokeAndGetResponse(instructions);
+    replaceExceptionsWithLinks();
+    evaluateTable(slimTable);
+  }
+
+  private int sendWidgets(PageData pageData, int fromWidget, int toWidget) throws Exception {
+    if (toWidget > fromWidget)
+      acceptOutputFirst(renderWikiText(pageData, tableScanner.toWikiText(fromWidget, toWidget)));
+    return Math.max(fromWidget, toWidget);
+  }
+
+  private String renderWikiText(PageData pageData, String wikiText) throws Exception {
+    PageData part = new PageData(pageData);
+    part.setContent(wikiText);
+    return part.getHtml();
+  }
+
   void runTestsOnPage(PageData pageData) throws Exception {
     tableScanner = new TableScanner(pageData);
     instructions = createInstructions(this);
@@ -52,6 +52,97 @@ public class SlimTestSystemTest {
     assertTrue(!responder.slimOpen());
   }
 
+  @Test
+  public void pooledSlimServerIsReusedByTheNextRun() throws Exception {
+    responder.setFastTest(false);
+    SlimServerPool pool = SlimServerPool.getInstance();
+    int reused = pool.getReusedServers();
+    try {
+      getResultsForPageContents("!define SLIM_POOL {true}\n|DT:fitnesse.slim.test.TestSlim|\n|returnInt?|\n|7|\n");
+      String firstCommand = responder.getCommandLine();
+      assertTrue(firstCommand, firstCommand.indexOf(" -r ") != -1);
+      responder = new SlimResponder();
+      responder.makeResponse(context, request);
+      testResults = responder.getTestResults().getContent();
+      assertEquals(firstCommand, responder.getCommandLine());
+      assertEquals(reused + 1, pool.getReusedServers());
+      assertTestResultsContain("!style_pass(!<7>!)");
+    } finally {
+      pool.killAll();
+    }
+  }
+
+  @Test
+  public void fixedPortsByDefault() throws Exception {
+    getResultsForPageContents("");
+    assertSlimPortBetween(8085, 8095);
+  }
+
+  @Test
+  public void fixedPortsFromSlimPort() throws Exception {
+    getResultsForPageContents("!define SLIM_PORT {8185}\n");
+    assertSlimPortBetween(8185, 8195);
+  }
+
+  @Test
+  public void slimPortThatIsNotANumberFallsBackToTheDefault() throws Exception {
+    getResultsForPageContents("!define SLIM_PORT {eighty}\n");
+    assertSlimPortBetween(8085, 8095);
+  }
+
+  private void assertSlimPortBetween(int first, int end) {
+    String commandLine = responder.getCommandLine();
+    int port = Integer.parseInt(commandLine.substring(commandLine.lastIndexOf(' ') + 1));
+    assertTrue(commandLine, port >= first && port < end);
+  }
+
+  @Test
+  public void slimServerPicksItsOwnPortIfSlimPortIsZero() throws Exception {
+    getResultsForPageContents("!define SLIM_PORT {0}\n");
+    assertTrue(responder.getCommandLine().endsWith(" 0"));
+    assertTestResultsContain("!path classes");
+  }
+
+  @Test
+  public void streamedTablesGiveTheSameResultsAsOneBatch() throws Exception {
+    String tables = "first part\n" +
+      "|DT:fitnesse.slim.test.TestSlim|\n|returnInt?|\n|7|\n" +
+      "second part\n" +
+      "|DT:fitnesse.slim.test.TestSlim|\n|returnInt?|\n|8|\n" +
+      "third part\n" +
+      "|Query:x|\n" +
+      "last part\n";
+    OutputCountingResponder batchResponder = new OutputCountingResponder();
+    responder = batchResponder;
+    responder.setFastTest(true);
+    getResultsForPageContents(tables);
+    String batchResults = testResults;
+    assertEquals(1, batchResponder.outputCount);
+
+    OutputCountingResponder streamingResponder = new OutputCountingResponder();
+    responder = streamingResponder;
+    responder.setFastTest(true);
+    getResultsForPageContents("!define SLIM_STREAMING {true}\n");
+    assertEquals(batchResults + "\n!define SLIM_STREAMING {true}\n", testResults);
+    assertEquals(3, streamingResponder.outputCount);
+    assertTestResultsContain("!style_pass(!<7>!)");
+    assertTestResultsContain("|[!<7>!] !style_fail(expected [!<8>!])|");
+  }
+
+  private static class OutputCountingResponder extends SlimResponder {
+    int outputCount = 0;
+
+    public void acceptOutputFirst(String output) throws Exception {
+      outputCount++;
+    }
+  }
+
+  @Test
+  public void outputLimitThatIsNotANumberIsIgnored() throws Exception {
+    getResultsForPageContents("!define COMMAND_OUTPUT_LIMIT {lots}\n|DT:fitnesse.slim.test.TestSlim|\n|returnInt?|\n|7|\n");
+    assertTestResultsContain("!style_pass(!<7>!)");
+  }
+
   @Test
   public void verboseOutputIfSlimFlagSet() throws Exception {
     getResultsForPageContents("!define SLIM_FLAGS {-v}\n");
@@ -15,6 +15,7 @@ import java.util.regex.Pattern;
 public class TableScanner implements Iterable<Table> {
   private static final Class<?>[] tableWidgets = new Class<?>[]{IncludeWidget.class, TableWidget.class};
   private List<Table> tables = new ArrayList<Table>();
+  private List<Integer> topLevelWidgets = new ArrayList<Integer>();
   public ParentWidget widgetRoot;
 
 
@@ -26,7 +27,7 @@ public class TableScanner implements Iterable<Table> {
     content = replaceEvaluations(new WidgetRoot("", page), content);
     widgetRoot = new WidgetRoot(content, page, new WidgetBuilder(tableWidgets));
     replaceAllProcessedLiterals(widgetRoot);
-    scanParentForTables(widgetRoot);
+    scanParentForTables(widgetRoot, 0);
   }
 
   private void replaceAllProcessedLiterals(WikiWidget widget) {
@@ -97,16 +98,28 @@ public class TableScanner implements Iterable<Table> {
     return text;
   }
 
-  private void scanParentForTables(ParentWidget parent) {
+  private void scanParentForTables(ParentWidget parent, int topLevelWidget) {
     List<WikiWidget> widgets = parent.getChildren();
-    for (WikiWidget widget : widgets) {
-      if (widget instanceof TableWidget)
+    for (int i = 0; i < widgets.size(); i++) {
+      WikiWidget widget = widgets.get(i);
+      int topLevel = parent == widgetRoot ? i : topLevelWidget;
+      if (widget instanceof TableWidget) {
         tables.add(new WikiWidgetTable((TableWidget) widget));
-      else if (widget instanceof ParentWidget)
-        scanParentForTables((ParentWidget) widget);
+        topLevelWidgets.add(topLevel);
+      } else if (widget instanceof ParentWidget)
+        scanParentForTables((ParentWidget) widget, topLevel);
     }
   }
 
+  // The index, among the widgets at the top of the page, of the one holding the table.
+  public int getTopLevelWidgetIndex(int table) {
+    return topLevelWidgets.get(table);
+  }
+
+  public int getTopLevelWidgetCount() {
+    return widgetRoot.getChildren().size();
+  }
+
   public int getTableCount() {
     return tables.size();
   }
@@ -120,29 +133,39 @@ public class TableScanner implements Iterable<Table> {
   }
 
   public String toWikiText() {
-    StringBuffer wikiText = new StringBuffer();
-    appendChildWikiText(wikiText, widgetRoot);
+    return toWikiText(0, getTopLevelWidgetCount());
+  }
+
+  // The wiki text of the top level widgets from fromWidget up to, but not including, toWidget.
+  public String toWikiText(int fromWidget, int toWidget) {
+    StringBuilder wikiText = new StringBuilder();
+    List<WikiWidget> widgets = widgetRoot.getChildren();
+    for (int i = fromWidget; i < toWidget; i++)
+      appendWidgetWikiText(wikiText, widgets.get(i));
     return wikiText.toString();
   }
 
-  private void appendChildWikiText(StringBuffer wikiText, ParentWidget parent) {
-    for (WikiWidget widget : parent.getChildren()) {
-      appendWidgetText(wikiText, widget);
-      if (widget instanceof IncludeWidget)
-        surroundTextWithIncludedDiv(wikiText, widget);
-      else if (widget instanceof CollapsableWidget)
-        appendChildWikiText(wikiText, (ParentWidget) widget);
-    }
+  private void appendChildWikiText(StringBuilder wikiText, ParentWidget parent) {
+    for (WikiWidget widget : parent.getChildren())
+      appendWidgetWikiText(wikiText, widget);
+  }
+
+  private void appendWidgetWikiText(StringBuilder wikiText, WikiWidget widget) {
+    appendWidgetText(wikiText, widget);
+    if (widget instanceof IncludeWidget)
+      surroundTextWithIncludedDiv(wikiText, widget);
+    else if (widget instanceof CollapsableWidget)
+      appendChildWikiText(wikiText, (ParentWidget) widget);
   }
 
-  private void surroundTextWithIncludedDiv(StringBuffer wikiText, WikiWidget widget) {
+  private void surroundTextWithIncludedDiv(StringBuilder wikiText, WikiWidget widget) {
     IncludeWidget iw = (IncludeWidget) widget;
     wikiText.append(String.format("!-<div class=\"included\">-!!note Included !-%s-!\n", iw.getPageName()));
     appendChildWikiText(wikiText, (ParentWidget) widget);
     wikiText.append("!-</div>-!\n");
   }
 
-  private void appendWidgetText(StringBuffer wikiText, WikiWidget widget) {
+  private void appendWidgetText(StringBuilder wikiText, WikiWidget widget) {
     try {
       wikiText.append(widget.asWikiText());
     } catch (Exception e) {
@@ -45,7 +45,7 @@ public class SearchFormResponder implements Responder {
     form.add("Searches in page titles only.  Will run fairly quickly.");
     form.add(HtmlUtil.BR);
     form.add(new HtmlTag("b", "Search Content!: "));
-    form.add("Searches in the content of every page.  Don't hold your breath.");
+    form.add("Searches in the content of every page, most matches first.");
 
     return form;
   }
@@ -3,9 +3,20 @@
 package fitnesse.responders.search;
 
 import fitnesse.components.Searcher;
+import fitnesse.wiki.PathParser;
+import fitnesse.wiki.SearchIndex;
+import fitnesse.wiki.WikiPage;
+
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.List;
 
 public class SearchResponder extends ResultResponder {
+  public static final int RESULTS_PER_PAGE = 100;
+
   private Searcher searcher;
+  private int totalHits = 0;
+  private int resultPage = 1;
 
   private String getSearchString() {
     return (String) request.getInput("searchString");
@@ -22,7 +33,21 @@ public class SearchResponder extends ResultResponder {
   }
 
   protected String getPageFooterInfo(int hits) throws Exception {
-    return "Found " + hits + " results for your search.";
+    if (totalHits <= hits)
+      return "Found " + hits + " results for your search.";
+    int first = (resultPage - 1) * RESULTS_PER_PAGE + 1;
+    String info = "Found " + totalHits + " results for your search, showing " + first + " to " + (first + hits - 1) + ".";
+    if (resultPage > 1)
+      info += " " + makeResultPageLink(resultPage - 1, "Previous");
+    if (first + hits - 1 < totalHits)
+      info += " " + makeResultPageLink(resultPage + 1, "Next");
+    return info;
+  }
+
+  private String makeResultPageLink(int page, String text) throws Exception {
+    String href = "?responder=search&searchType=" + URLEncoder.encode(getSearchType(), "UTF-8") +
+      "&searchString=" + URLEncoder.encode(getSearchString(), "UTF-8") + "&resultPage=" + page;
+    return "<a href=\"" + href + "\">" + text + "</a>";
   }
 
   protected String getTitle() throws Exception {
@@ -32,12 +57,40 @@ public class SearchResponder extends ResultResponder {
   protected void startSearching() throws Exception {
     String searchString = getSearchString();
     if (!searchString.equals("")) {
-      loadSearcher(searchString);
       String searchType = getSearchType();
-      if ("Title".equals(searchType))
-        searcher.searchTitles(this);
-      else
-        searcher.searchContent(this);
+      if ("Content".equals(searchType) && searcher == null)
+        searchIndex(searchString);
+      else {
+        loadSearcher(searchString);
+        if ("Title".equals(searchType))
+          searcher.searchTitles(this);
+        else
+          searcher.searchContent(this);
+      }
+    }
+  }
+
+  // Content searches go to the index, which ranks the pages by how often they have the
+  // search string and leaves them to be shown a page of results at a time.
+  private void searchIndex(String searchString) throws Exception {
+    readResultPage();
+    List<WikiPage> pages = new ArrayList<WikiPage>();
+    for (SearchIndex.Hit hit : SearchIndex.getInstance(root).search(searchString)) {
+      WikiPage page = getPageCrawler().getPage(root, PathParser.parse(hit.path));
+      if (page != null)
+        pages.add(page);
+    }
+    totalHits = pages.size();
+    int first = Math.min((resultPage - 1) * RESULTS_PER_PAGE, pages.size());
+    for (WikiPage page : pages.subList(first, Math.min(first + RESULTS_PER_PAGE, pages.size())))
+      hit(page);
+  }
+
+  private void readResultPage() {
+    try {
+      resultPage = Math.max(1, Integer.parseInt((String) request.getInput("resultPage")));
+    } catch (NumberFormatException e) {
+      resultPage = 1;
     }
   }
 
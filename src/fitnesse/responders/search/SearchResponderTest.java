@@ -70,6 +70,18 @@ public class SearchResponderTest extends RegexTestCase {
     assertSubString("!+-<&>", content);
   }
 
+  public void testContentSearchResultsComeAPageAtATime() throws Exception {
+    for (int i = 0; i < SearchResponder.RESULTS_PER_PAGE + 20; i++)
+      crawler.addPage(root, PathParser.parse("ManyPage" + i), "something else");
+    request.addInput("searchType", "Search Content!");
+    request.addInput("resultPage", "2");
+    String content = getResponseContentUsingSearchString("something");
+    assertSubString("Found 121 results for your search, showing 101 to 121.", content);
+    assertSubString("<a href=\"?responder=search&searchType=Content&searchString=something&resultPage=1\">Previous</a>", content);
+    assertNotSubString(">Next</a>", content);
+    assertSubString("SomePage", content);
+  }
+
   private String getResponseContentUsingSearchString(String searchString) throws Exception {
     request.addInput("searchString", searchString);
 
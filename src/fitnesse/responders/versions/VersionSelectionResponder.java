@@ -90,7 +90,7 @@ public class VersionSelectionResponder implements Responder {
     return row;
   }
 
-  public static List<VersionInfo> getVersionsList(PageData data) {
+  public static List<VersionInfo> getVersionsList(PageData data) throws Exception {
     List<VersionInfo> list = new ArrayList<VersionInfo>(data.getVersions());
     Collections.sort(list);
     Collections.reverse(list);
@@ -0,0 +1,494 @@
+// Copyright (C) 2003,2004,2005 by Object Mentor, Inc. All rights reserved.
+// Released under the terms of the GNU General Public License version 2 or later.
+package fitnesse.revisioncontrol.pack;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// All the revisions of one page, appended to a single pack file.  The content of most
+// revisions is stored as the part that differs from the revision before it; every
+// FULL_REVISION_INTERVAL revisions it is stored whole so no revision is far from a base.
+// The index file lists the revisions in the order they were appended and records the ones
+// that were removed, in the same binary form as the pack.  Removed revisions are only
+// dropped from the pack when it is compacted.
+public class PackFile {
+  public static final String PACK_FILE_NAME = "versions.pack";
+  public static final String INDEX_FILE_NAME = "versions.idx";
+  static final String COMPACTING_DIRECTORY_NAME = "compacting";
+  static final String COMPACTED_MARKER_NAME = "compacted";
+  static final int FULL_REVISION_INTERVAL = 16;
+  private static final byte FULL = 0;
+  private static final byte DELTA = 1;
+  private static final int INDEX_HEADER = 0x46504931;
+  private static final byte ADDED = '+';
+  private static final byte REMOVED = '-';
+
+  private final File packFile;
+  private final File indexFile;
+  private final File compactingDirectory;
+  private List<IndexEntry> entries;
+  private Set<String> removed;
+
+  public PackFile(File directory) {
+    packFile = new File(directory, PACK_FILE_NAME);
+    indexFile = new File(directory, INDEX_FILE_NAME);
+    compactingDirectory = new File(directory, COMPACTING_DIRECTORY_NAME);
+  }
+
+  public boolean exists() throws IOException {
+    finishCompaction();
+    return packFile.exists();
+  }
+
+  public List<String> getRevisionNames() throws IOException {
+    loadIndex();
+    List<String> names = new ArrayList<String>();
+    for (IndexEntry entry : entries) {
+      if (!removed.contains(entry.name))
+        names.add(entry.name);
+    }
+    return names;
+  }
+
+  public boolean hasRevision(String name) throws IOException {
+    return getRevisionNames().contains(name);
+  }
+
+  public void append(String name, byte[] content, byte[] properties) throws IOException {
+    loadIndex();
+    IndexEntry entry = new IndexEntry(name, packFile.length(), shouldStoreWhole());
+    byte[] previous = entry.full ? null : readLastContent();
+    writeRecord(entry, content, previous, properties);
+    writeIndexEntry(entry);
+    entries.add(entry);
+    removed.remove(name);
+  }
+
+  private boolean shouldStoreWhole() {
+    return entries.isEmpty() || entries.size() % FULL_REVISION_INTERVAL == 0;
+  }
+
+  private byte[] readLastContent() throws IOException {
+    try {
+      return readContent(entries.size() - 1);
+    } catch (StaleIndexException e) {
+      rebuildIndex();
+      return readContent(entries.size() - 1);
+    }
+  }
+
+  public Revision read(String name) throws IOException {
+    loadIndex();
+    try {
+      return readRevision(name);
+    } catch (StaleIndexException e) {
+      rebuildIndex();
+      return readRevision(name);
+    }
+  }
+
+  private Revision readRevision(String name) throws IOException {
+    if (removed.contains(name))
+      return null;
+    for (int i = 0; i < entries.size(); i++) {
+      if (entries.get(i).name.equals(name))
+        return new Revision(readContent(i), readRecord(entries.get(i)).properties);
+    }
+    return null;
+  }
+
+  public void remove(String name) throws IOException {
+    if (!hasRevision(name))
+      return;
+    writeIndexRemoval(name);
+    removed.add(name);
+    if (removed.size() >= FULL_REVISION_INTERVAL && removed.size() > entries.size() - removed.size())
+      compact();
+  }
+
+  // Rewrites the pack with only the revisions that were not removed.  The new pack and
+  // index are written in the compacting directory, and creating the marker file there
+  // commits them: from then on they replace the old pair, and a compaction cut short
+  // after the marker is finished by the next PackFile to use the directory.  One cut
+  // short before it is thrown away, leaving the old pair as it was.
+  public void compact() throws IOException {
+    loadIndex();
+    try {
+      writeCompacted();
+    } catch (StaleIndexException e) {
+      rebuildIndex();
+      writeCompacted();
+    }
+    File marker = new File(compactingDirectory, COMPACTED_MARKER_NAME);
+    if (!marker.createNewFile())
+      throw new IOException("Could not commit the compaction of " + packFile);
+    finishCompaction();
+    entries = null;
+  }
+
+  private void writeCompacted() throws IOException {
+    deleteCompactingDirectory();
+    PackFile compacted = new PackFile(compactingDirectory);
+    compactingDirectory.mkdirs();
+    for (int i = 0; i < entries.size(); i++) {
+      IndexEntry entry = entries.get(i);
+      if (!removed.contains(entry.name))
+        compacted.append(entry.name, readContent(i), readRecord(entry).properties);
+    }
+  }
+
+  private void finishCompaction() throws IOException {
+    if (!compactingDirectory.exists())
+      return;
+    if (new File(compactingDirectory, COMPACTED_MARKER_NAME).exists()) {
+      replace(packFile, new File(compactingDirectory, PACK_FILE_NAME));
+      replace(indexFile, new File(compactingDirectory, INDEX_FILE_NAME));
+    }
+    deleteCompactingDirectory();
+  }
+
+  private void replace(File file, File replacement) throws IOException {
+    if (!replacement.exists())
+      return;  // replaced before the compaction was cut short
+    file.delete();
+    if (!replacement.renameTo(file))
+      throw new IOException("Could not replace " + file);
+  }
+
+  private void deleteCompactingDirectory() {
+    File[] files = compactingDirectory.listFiles();
+    if (files != null) {
+      for (File file : files)
+        file.delete();
+    }
+    compactingDirectory.delete();
+  }
+
+  private byte[] readContent(int index) throws IOException {
+    int base = index;
+    while (!entries.get(base).full)
+      base--;
+    byte[] content = null;
+    for (int i = base; i <= index; i++)
+      content = readRecord(entries.get(i)).applyTo(content);
+    return content;
+  }
+
+  // The record at an entry's offset must be the one the entry names; if it is not, the
+  // index describes some other pack and has to be rebuilt before anything is read.
+  private Record readRecord(IndexEntry entry) throws IOException {
+    Record record = readRecord(entry.offset);
+    if (record == null || !record.name.equals(entry.name))
+      throw new StaleIndexException();
+    return record;
+  }
+
+  private void writeRecord(IndexEntry entry, byte[] content, byte[] previous, byte[] properties) throws IOException {
+    ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+    DataOutputStream record = new DataOutputStream(recordBytes);
+    record.writeUTF(entry.name);
+    if (entry.full) {
+      record.writeByte(FULL);
+      writeCompressed(record, content);
+    } else {
+      int prefix = commonPrefix(previous, content);
+      int suffix = commonSuffix(previous, content, prefix);
+      record.writeByte(DELTA);
+      record.writeInt(prefix);
+      record.writeInt(suffix);
+      byte[] difference = new byte[content.length - prefix - suffix];
+      System.arraycopy(content, prefix, difference, 0, difference.length);
+      writeCompressed(record, difference);
+    }
+    record.writeBoolean(properties != null);
+    if (properties != null)
+      writeCompressed(record, properties);
+    record.close();
+
+    DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(packFile, true)));
+    try {
+      output.writeInt(recordBytes.size());
+      recordBytes.writeTo(output);
+    } finally {
+      output.close();
+    }
+  }
+
+  private static int commonPrefix(byte[] a, byte[] b) {
+    int length = Math.min(a.length, b.length);
+    int i = 0;
+    while (i < length && a[i] == b[i])
+      i++;
+    return i;
+  }
+
+  private static int commonSuffix(byte[] a, byte[] b, int prefix) {
+    int length = Math.min(a.length, b.length) - prefix;
+    int i = 0;
+    while (i < length && a[a.length - 1 - i] == b[b.length - 1 - i])
+      i++;
+    return i;
+  }
+
+  private static void writeCompressed(DataOutputStream output, byte[] bytes) throws IOException {
+    Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+    deflater.setInput(bytes);
+    deflater.finish();
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    byte[] buffer = new byte[4096];
+    while (!deflater.finished())
+      compressed.write(buffer, 0, deflater.deflate(buffer));
+    deflater.end();
+    output.writeInt(bytes.length);
+    output.writeInt(compressed.size());
+    compressed.writeTo(output);
+  }
+
+  private static byte[] readCompressed(DataInputStream input) throws IOException {
+    byte[] bytes = new byte[input.readInt()];
+    byte[] compressed = new byte[input.readInt()];
+    input.readFully(compressed);
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(compressed);
+      int length = 0;
+      while (length < bytes.length && !inflater.finished())
+        length += inflater.inflate(bytes, length, bytes.length - length);
+    } catch (DataFormatException e) {
+      throw new IOException("Corrupt revision pack: " + e.getMessage());
+    } finally {
+      inflater.end();
+    }
+    return bytes;
+  }
+
+  // Null if no whole record fits in the pack at offset.
+  private Record readRecord(long offset) throws IOException {
+    RandomAccessFile file = new RandomAccessFile(packFile, "r");
+    try {
+      if (offset < 0 || offset + 4 > file.length())
+        return null;
+      file.seek(offset);
+      int length = file.readInt();
+      if (length < 0 || offset + 4 + length > file.length())
+        return null;
+      byte[] bytes = new byte[length];
+      file.readFully(bytes);
+      return new Record(new DataInputStream(new ByteArrayInputStream(bytes)));
+    } finally {
+      file.close();
+    }
+  }
+
+  private void writeIndexEntry(IndexEntry entry) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream output = new DataOutputStream(bytes);
+    output.writeByte(ADDED);
+    output.writeUTF(entry.name);
+    output.writeLong(entry.offset);
+    output.writeBoolean(entry.full);
+    appendToIndex(bytes);
+  }
+
+  private void writeIndexRemoval(String name) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream output = new DataOutputStream(bytes);
+    output.writeByte(REMOVED);
+    output.writeUTF(name);
+    appendToIndex(bytes);
+  }
+
+  private void appendToIndex(ByteArrayOutputStream entry) throws IOException {
+    boolean isNew = indexFile.length() == 0;
+    DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile, true)));
+    try {
+      if (isNew)
+        output.writeInt(INDEX_HEADER);
+      entry.writeTo(output);
+    } finally {
+      output.close();
+    }
+  }
+
+  private void loadIndex() throws IOException {
+    if (entries != null)
+      return;
+    finishCompaction();
+    entries = new ArrayList<IndexEntry>();
+    removed = new HashSet<String>();
+    if (indexFile.exists() && !readIndex())
+      rebuildIndex();
+    else
+      recoverUnindexedRecords();
+  }
+
+  // An entry cut short at the end of the index was being written when the JVM died, and is
+  // dropped; its record is found again in the pack.  Anything else that does not read as
+  // an index entry is an error, since skipping it would rebuild later revisions on the
+  // wrong one.  False if the entries point at records the pack does not have, so the
+  // index must belong to some other pack.
+  private boolean readIndex() throws IOException {
+    byte[] bytes = readFile(indexFile);
+    DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes));
+    long complete = 0;
+    long packLength = packFile.length();
+    boolean matchesPack = true;
+    try {
+      if (bytes.length > 0 && input.readInt() != INDEX_HEADER)
+        throw new IOException("Not a revision index: " + indexFile);
+      complete = bytes.length - input.available();
+      while (input.available() > 0) {
+        byte kind = input.readByte();
+        String name = input.readUTF();
+        if (kind == ADDED) {
+          long offset = input.readLong();
+          boolean full = input.readBoolean();
+          long previousOffset = entries.isEmpty() ? -1 : entries.get(entries.size() - 1).offset;
+          if (offset <= previousOffset || offset >= packLength || (entries.isEmpty() && !full))
+            matchesPack = false;
+          else
+            entries.add(new IndexEntry(name, offset, full));
+          removed.remove(name);
+        } else if (kind == REMOVED)
+          removed.add(name);
+        else
+          throw new IOException("Corrupt revision index " + indexFile + " at byte " + complete);
+        complete = bytes.length - input.available();
+      }
+    } catch (EOFException e) {
+      truncate(indexFile, complete);
+    }
+    return matchesPack;
+  }
+
+  // Indexes the pack again from its first record, keeping the revisions that were removed.
+  private void rebuildIndex() throws IOException {
+    Set<String> removedNames = removed;
+    indexFile.delete();
+    entries = new ArrayList<IndexEntry>();
+    removed = new HashSet<String>();
+    recoverUnindexedRecords();
+    for (String name : removedNames) {
+      writeIndexRemoval(name);
+      removed.add(name);
+    }
+  }
+
+  // A record appended just before the JVM died may be missing from the index; a record
+  // cut short is dropped from the end of the pack.
+  private void recoverUnindexedRecords() throws IOException {
+    if (!packFile.exists())
+      return;
+    long offset = 0;
+    long packLength = packFile.length();
+    RandomAccessFile file = new RandomAccessFile(packFile, "r");
+    try {
+      if (!entries.isEmpty()) {
+        offset = entries.get(entries.size() - 1).offset;
+        file.seek(offset);
+        offset += 4 + file.readInt();
+      }
+      while (offset + 4 <= packLength) {
+        file.seek(offset);
+        int length = file.readInt();
+        if (length < 0 || offset + 4 + length > packLength)
+          break;
+        byte[] bytes = new byte[length];
+        file.readFully(bytes);
+        Record record = new Record(new DataInputStream(new ByteArrayInputStream(bytes)));
+        IndexEntry entry = new IndexEntry(record.name, offset, record.full);
+        writeIndexEntry(entry);
+        entries.add(entry);
+        offset += 4 + length;
+      }
+    } catch (IOException e) {
+      // the rest of the pack is unreadable, and is dropped below
+    } finally {
+      file.close();
+    }
+    if (offset < packLength)
+      truncate(packFile, offset);
+  }
+
+  private static byte[] readFile(File file) throws IOException {
+    RandomAccessFile input = new RandomAccessFile(file, "r");
+    try {
+      byte[] bytes = new byte[(int) input.length()];
+      input.readFully(bytes);
+      return bytes;
+    } finally {
+      input.close();
+    }
+  }
+
+  private static void truncate(File truncated, long length) throws IOException {
+    RandomAccessFile file = new RandomAccessFile(truncated, "rw");
+    try {
+      file.setLength(length);
+    } finally {
+      file.close();
+    }
+  }
+
+  private static class StaleIndexException extends IOException {
+    StaleIndexException() {
+      super("The revision index does not match the pack");
+    }
+  }
+
+  public static class Revision {
+    public final byte[] content;
+    public final byte[] properties;
+
+    Revision(byte[] content, byte[] properties) {
+      this.content = content;
+      this.properties = properties;
+    }
+  }
+
+  private static class IndexEntry {
+    final String name;
+    final long offset;
+    final boolean full;
+
+    IndexEntry(String name, long offset, boolean full) {
+      this.name = name;
+      this.offset = offset;
+      this.full = full;
+    }
+  }
+
+  private static class Record {
+    final String name;
+    final boolean full;
+    int prefix;
+    int suffix;
+    final byte[] bytes;
+    byte[] properties;
+
+    Record(DataInputStream input) throws IOException {
+      name = input.readUTF();
+      full = input.readByte() == FULL;
+      if (!full) {
+        prefix = input.readInt();
+        suffix = input.readInt();
+      }
+      bytes = readCompressed(input);
+      if (input.readBoolean())
+        properties = readCompressed(input);
+    }
+
+    byte[] applyTo(byte[] previous) {
+      if (full)
+        return bytes;
+      byte[] content = new byte[prefix + bytes.length + suffix];
+      System.arraycopy(previous, 0, content, 0, prefix);
+      System.arraycopy(bytes, 0, content, prefix, bytes.length);
+      System.arraycopy(previous, previous.length - suffix, content, prefix + bytes.length, suffix);
+      return content;
+    }
+  }
+}
@@ -0,0 +1,130 @@
+// Copyright (C) 2003,2004,2005 by Object Mentor, Inc. All rights reserved.
+// Released under the terms of the GNU General Public License version 2 or later.
+package fitnesse.revisioncontrol.pack;
+
+import static fitnesse.revisioncontrol.NullState.VERSIONED;
+import fitnesse.revisioncontrol.RevisionControlException;
+import fitnesse.revisioncontrol.RevisionController;
+import fitnesse.revisioncontrol.State;
+import fitnesse.wiki.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.*;
+
+// Keeps the versions of each page in one PackFile in the page's directory, rather than
+// in a zip file per version.  Select it in plugins.properties with
+//   RevisionController=fitnesse.revisioncontrol.pack.PackFileRevisionController
+// and move existing zipped versions into packs with ZipToPackMigration.
+public class PackFileRevisionController implements RevisionController {
+  public PackFileRevisionController() {
+    this(new Properties());
+  }
+
+  public PackFileRevisionController(final Properties properties) {
+  }
+
+  public void add(final String... filePaths) throws RevisionControlException {
+  }
+
+  public void checkin(final String... filePaths) throws RevisionControlException {
+  }
+
+  public void checkout(final String... filePaths) throws RevisionControlException {
+  }
+
+  public State checkState(final String... filePaths) throws RevisionControlException {
+    return VERSIONED;
+  }
+
+  public void delete(final String... filePaths) throws RevisionControlException {
+  }
+
+  public void move(final File src, final File dest) throws RevisionControlException {
+  }
+
+  public void revert(final String... filePaths) throws RevisionControlException {
+  }
+
+  public void update(final String... filePaths) throws RevisionControlException {
+  }
+
+  public synchronized PageData getRevisionData(final FileSystemPage page, final String label) throws Exception {
+    final PackFile.Revision revision = packOf(page).read(label);
+    if (revision == null) {
+      throw new NoSuchVersionException("There is no version '" + label + "'");
+    }
+    final PageData data = new PageData(page);
+    data.setContent(new String(revision.content, "UTF-8"));
+    if (revision.properties != null) {
+      data.setProperties(new WikiPageProperties(new ByteArrayInputStream(revision.properties)));
+    }
+    data.addVersions(history(page));
+    return data;
+  }
+
+  public synchronized Collection<VersionInfo> history(final FileSystemPage page) throws Exception {
+    final Set<VersionInfo> versions = new HashSet<VersionInfo>();
+    final PackFile pack = packOf(page);
+    if (pack.exists()) {
+      for (final String name : pack.getRevisionNames()) {
+        versions.add(new VersionInfo(name));
+      }
+    }
+    return versions;
+  }
+
+  public synchronized VersionInfo makeVersion(final FileSystemPage page, final PageData data) throws Exception {
+    final String dirPath = page.getFileSystemPath();
+    final File content = new File(dirPath + FileSystemPage.contentFilename);
+    final File properties = new File(dirPath + FileSystemPage.propertiesFilename);
+    if (!content.exists() && !properties.exists()) {
+      return new VersionInfo("first_commit", "", new Date());
+    }
+    final VersionInfo version = VersionInfo.makeVersionInfo(data);
+    packOf(page).append(version.getName(), content.exists() ? readFile(content) : new byte[0],
+      properties.exists() ? readFile(properties) : null);
+    return new VersionInfo(version.getName());
+  }
+
+  public synchronized void removeVersion(final FileSystemPage page, final String versionName) throws Exception {
+    packOf(page).remove(versionName);
+  }
+
+  public void prune(final FileSystemPage page) throws Exception {
+    PageVersionPruner.pruneVersions(page, history(page));
+  }
+
+  public boolean isExternalReversionControlEnabled() {
+    return false;
+  }
+
+  private PackFile packOf(final FileSystemPage page) throws Exception {
+    return new PackFile(new File(page.getFileSystemPath()));
+  }
+
+  static byte[] readFile(final File file) throws IOException {
+    final FileInputStream input = new FileInputStream(file);
+    try {
+      final byte[] bytes = new byte[(int) file.length()];
+      int offset = 0;
+      while (offset < bytes.length) {
+        final int bytesRead = input.read(bytes, offset, bytes.length - offset);
+        if (bytesRead < 0) {
+          break;
+        }
+        offset += bytesRead;
+      }
+      return bytes;
+    } finally {
+      input.close();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return this.getClass().getSimpleName();
+  }
+}
@@ -0,0 +1,247 @@
+// Copyright (C) 2003,2004,2005 by Object Mentor, Inc. All rights reserved.
+// Released under the terms of the GNU General Public License version 2 or later.
+package fitnesse.revisioncontrol.pack;
+
+import fitnesse.revisioncontrol.zip.ZipFileRevisionController;
+import fitnesse.util.FileUtil;
+import fitnesse.wiki.*;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Collection;
+
+public class PackFileRevisionControllerTest extends TestCase {
+  private PackFileRevisionController revisioner;
+  private FileSystemPage page;
+
+  public void setUp() throws Exception {
+    revisioner = new PackFileRevisionController();
+    page = addPage(FileSystemPage.makeRoot("testDir", "RooT", revisioner));
+  }
+
+  private FileSystemPage addPage(WikiPage root) throws Exception {
+    return (FileSystemPage) root.getPageCrawler().addPage(root, PathParser.parse("PageOne"), "original content");
+  }
+
+  public void tearDown() throws Exception {
+    FileUtil.deleteFileSystemDirectory("testDir");
+  }
+
+  private VersionInfo save(String content) throws Exception {
+    PageData data = page.getData();
+    data.setContent(content);
+    return page.commit(data);
+  }
+
+  public void testVersionsShareOnePackFile() throws Exception {
+    VersionInfo first = save("second content");
+    VersionInfo second = save("third content");
+
+    File dir = new File(page.getFileSystemPath());
+    assertTrue(new File(dir, PackFile.PACK_FILE_NAME).exists());
+    assertEquals(0, dir.list(new FilenameFilter() {
+      public boolean accept(File dir, String name) {
+        return name.endsWith(".zip");
+      }
+    }).length);
+
+    Collection<VersionInfo> history = page.getData().getVersions();
+    assertEquals(2, history.size());
+    assertEquals("original content", page.getDataVersion(first.getName()).getContent());
+    assertEquals("second content", page.getDataVersion(second.getName()).getContent());
+  }
+
+  public void testPropertiesAreKeptWithEachVersion() throws Exception {
+    PageData data = page.getData();
+    data.setAttribute("Suite");
+    VersionInfo beforeSuite = page.commit(data);
+    VersionInfo afterSuite = save("new content");
+
+    assertFalse(page.getDataVersion(beforeSuite.getName()).hasAttribute("Suite"));
+    assertTrue(page.getDataVersion(afterSuite.getName()).hasAttribute("Suite"));
+  }
+
+  public void testDeltasReachBackToTheLastWholeRevision() throws Exception {
+    StringBuffer content = new StringBuffer("line\n");
+    VersionInfo[] versions = new VersionInfo[PackFile.FULL_REVISION_INTERVAL * 2 + 3];
+    for (int i = 0; i < versions.length; i++) {
+      versions[i] = save(content.toString());
+      content.insert(content.length() / 2, "edit " + i + "\n");
+    }
+    assertEquals("original content", page.getDataVersion(versions[0].getName()).getContent());
+    assertEquals("line\n", page.getDataVersion(versions[1].getName()).getContent());
+    for (int i = 2; i < versions.length; i++)
+      assertTrue(page.getDataVersion(versions[i].getName()).getContent().contains("edit " + (i - 2) + "\n"));
+  }
+
+  public void testRemovedVersionsAreGoneAndCompactedAway() throws Exception {
+    VersionInfo[] versions = new VersionInfo[PackFile.FULL_REVISION_INTERVAL * 2 + 2];
+    for (int i = 0; i < versions.length; i++)
+      versions[i] = save("content " + i);
+    File packFile = new File(page.getFileSystemPath(), PackFile.PACK_FILE_NAME);
+    long fullLength = packFile.length();
+
+    for (int i = 0; i < versions.length - 1; i++)
+      revisioner.removeVersion(page, versions[i].getName());
+
+    assertEquals(1, page.getData().getVersions().size());
+    assertTrue(packFile.length() < fullLength);
+    assertEquals("content " + (versions.length - 2), page.getDataVersion(versions[versions.length - 1].getName()).getContent());
+    try {
+      page.getDataVersion(versions[0].getName());
+      fail("removed version should be gone");
+    } catch (NoSuchVersionException e) {
+    }
+  }
+
+  public void testCompactionCutShortAfterItsCommitIsFinished() throws Exception {
+    VersionInfo[] versions = removeAllButTheLastOf(PackFile.FULL_REVISION_INTERVAL + 1);
+    File dir = new File(page.getFileSystemPath());
+    File compacted = new File("testDir/compacted");
+    moveInto(compacted, new File(dir, PackFile.PACK_FILE_NAME), new File(dir, PackFile.INDEX_FILE_NAME));
+    new PackFile(dir).append("ghost", "ghost content".getBytes(), null);
+    File compacting = new File(dir, PackFile.COMPACTING_DIRECTORY_NAME);
+    moveInto(compacting, new File(compacted, PackFile.PACK_FILE_NAME), new File(compacted, PackFile.INDEX_FILE_NAME));
+    new File(compacting, PackFile.COMPACTED_MARKER_NAME).createNewFile();
+
+    PackFile reloaded = new PackFile(dir);
+    assertTrue(reloaded.exists());
+    assertEquals(1, reloaded.getRevisionNames().size());
+    String last = versions[versions.length - 1].getName();
+    assertEquals("content " + (versions.length - 2), new String(reloaded.read(last).content));
+    assertFalse(compacting.exists());
+  }
+
+  public void testCompactionCutShortBeforeItsCommitIsDropped() throws Exception {
+    save("second content");
+    File dir = new File(page.getFileSystemPath());
+    File compacting = new File(dir, PackFile.COMPACTING_DIRECTORY_NAME);
+    compacting.mkdir();
+    new PackFile(compacting).append("ghost", "ghost content".getBytes(), null);
+
+    assertEquals(1, new PackFile(dir).getRevisionNames().size());
+    assertFalse(compacting.exists());
+  }
+
+  public void testIndexOfAnotherPackIsRebuilt() throws Exception {
+    VersionInfo[] versions = new VersionInfo[3];
+    for (int i = 0; i < versions.length; i++)
+      versions[i] = save("content " + i);
+    File dir = new File(page.getFileSystemPath());
+    File staleIndex = new File(dir, PackFile.INDEX_FILE_NAME);
+    byte[] indexBytes = FileUtil.getFileBytes(staleIndex);
+    PackFile pack = new PackFile(dir);
+    pack.remove(versions[0].getName());
+    pack.compact();
+    FileOutputStream output = new FileOutputStream(staleIndex);
+    output.write(indexBytes);
+    output.close();
+
+    PackFile reloaded = new PackFile(dir);
+    assertEquals("content 1", new String(reloaded.read(versions[2].getName()).content));
+    assertEquals(2, new PackFile(dir).getRevisionNames().size());
+  }
+
+  private void moveInto(File directory, File... files) {
+    directory.mkdir();
+    for (File file : files)
+      assertTrue(file.renameTo(new File(directory, file.getName())));
+  }
+
+  private VersionInfo[] removeAllButTheLastOf(int count) throws Exception {
+    VersionInfo[] versions = new VersionInfo[count];
+    for (int i = 0; i < versions.length; i++)
+      versions[i] = save("content " + i);
+    PackFile pack = new PackFile(new File(page.getFileSystemPath()));
+    for (int i = 0; i < versions.length - 1; i++)
+      pack.remove(versions[i].getName());
+    return versions;
+  }
+
+  public void testRecordMissingFromTheIndexIsRecovered() throws Exception {
+    save("second content");
+    File dir = new File(page.getFileSystemPath());
+    new File(dir, PackFile.INDEX_FILE_NAME).delete();
+
+    assertEquals(1, new PackFile(dir).getRevisionNames().size());
+  }
+
+  public void testPartlyWrittenRecordIsDropped() throws Exception {
+    VersionInfo version = save("second content");
+    File packFile = new File(page.getFileSystemPath(), PackFile.PACK_FILE_NAME);
+    RandomAccessFile file = new RandomAccessFile(packFile, "rw");
+    file.seek(file.length());
+    file.writeInt(1000);
+    file.write(new byte[10]);
+    file.close();
+
+    assertEquals("original content", page.getDataVersion(version.getName()).getContent());
+    VersionInfo next = save("third content");
+    assertEquals("second content", page.getDataVersion(next.getName()).getContent());
+  }
+
+  public void testUserNamesWithSpacesSurviveReloadingTheIndex() throws Exception {
+    VersionInfo[] versions = new VersionInfo[3];
+    for (int i = 0; i < versions.length; i++) {
+      PageData data = page.getData();
+      data.setContent("content " + i);
+      data.setAttribute(WikiPage.LAST_MODIFYING_USER, "Joe Q User");
+      versions[i] = page.commit(data);
+    }
+    save("last content");
+    assertTrue(versions[2].getName().indexOf(' ') != -1);
+
+    PackFile reloaded = new PackFile(new File(page.getFileSystemPath()));
+    assertEquals(4, reloaded.getRevisionNames().size());
+    assertEquals("content 1", new String(reloaded.read(versions[2].getName()).content));
+  }
+
+  public void testCorruptIndexIsAnError() throws Exception {
+    save("second content");
+    File dir = new File(page.getFileSystemPath());
+    RandomAccessFile file = new RandomAccessFile(new File(dir, PackFile.INDEX_FILE_NAME), "rw");
+    file.seek(file.length());
+    file.write(new byte[]{'?', 0, 1, 'x'});
+    file.close();
+
+    try {
+      new PackFile(dir).getRevisionNames();
+      fail("a corrupt index should not be read");
+    } catch (IOException e) {
+    }
+  }
+
+  public void testPartlyWrittenIndexEntryIsDroppedAndRecovered() throws Exception {
+    save("second content");
+    File dir = new File(page.getFileSystemPath());
+    File indexFile = new File(dir, PackFile.INDEX_FILE_NAME);
+    RandomAccessFile file = new RandomAccessFile(indexFile, "rw");
+    file.setLength(file.length() - 3);
+    file.close();
+
+    assertEquals(1, new PackFile(dir).getRevisionNames().size());
+    assertEquals(1, new PackFile(dir).getRevisionNames().size());
+  }
+
+  public void testZippedVersionsMigrateIntoThePack() throws Exception {
+    FileUtil.deleteFileSystemDirectory("testDir");
+    page = addPage(FileSystemPage.makeRoot("testDir", "RooT", new ZipFileRevisionController()));
+    VersionInfo first = save("second content");
+    VersionInfo second = save("third content");
+
+    ZipToPackMigration migration = new ZipToPackMigration();
+    migration.migrate(new File("testDir/RooT"));
+    assertEquals(2, migration.getMigratedVersions());
+    assertEquals(1, migration.getMigratedPages());
+
+    page = (FileSystemPage) FileSystemPage.makeRoot("testDir", "RooT", new PackFileRevisionController()).getChildPage("PageOne");
+    assertEquals(2, page.getData().getVersions().size());
+    assertEquals("original content", page.getDataVersion(first.getName()).getContent());
+    assertEquals("second content", page.getDataVersion(second.getName()).getContent());
+    assertFalse(new File(page.getFileSystemPath(), first.getName() + ".zip").exists());
+  }
+}
@@ -0,0 +1,111 @@
+// Copyright (C) 2003,2004,2005 by Object Mentor, Inc. All rights reserved.
+// Released under the terms of the GNU General Public License version 2 or later.
+package fitnesse.revisioncontrol.pack;
+
+import fitnesse.components.CommandLine;
+import fitnesse.wiki.VersionInfo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+// Moves the zipped versions of every page below a directory into the pages' pack files,
+// oldest first.  Versions already in a pack are skipped, so an interrupted migration can
+// simply be run again.
+public class ZipToPackMigration {
+  private static final Pattern VERSION_FILE_PATTERN = Pattern.compile("(\\S+)?\\d+\\.zip");
+
+  private boolean keepZipFiles = false;
+  private int migratedVersions = 0;
+  private int migratedPages = 0;
+
+  public static void main(String[] args) throws Exception {
+    CommandLine commandLine = new CommandLine("[-k] root");
+    if (!commandLine.parse(args)) {
+      System.err.println("Usage: java fitnesse.revisioncontrol.pack.ZipToPackMigration [-k] <root page directory>");
+      System.err.println("\t-k keep the zip files after their versions are packed");
+      System.exit(-1);
+    }
+    ZipToPackMigration migration = new ZipToPackMigration();
+    migration.setKeepZipFiles(commandLine.hasOption("k"));
+    migration.migrate(new File(commandLine.getArgument("root")));
+    System.out.println("Packed " + migration.getMigratedVersions() + " versions of " + migration.getMigratedPages() + " pages.");
+  }
+
+  public void setKeepZipFiles(boolean keepZipFiles) {
+    this.keepZipFiles = keepZipFiles;
+  }
+
+  public int getMigratedVersions() {
+    return migratedVersions;
+  }
+
+  public int getMigratedPages() {
+    return migratedPages;
+  }
+
+  public void migrate(File directory) throws IOException {
+    File[] files = directory.listFiles();
+    if (files == null)
+      return;
+    List<VersionInfo> versions = new ArrayList<VersionInfo>();
+    for (File file : files) {
+      if (file.isDirectory())
+        migrate(file);
+      else if (VERSION_FILE_PATTERN.matcher(file.getName()).matches())
+        versions.add(new VersionInfo(file.getName().substring(0, file.getName().length() - 4)));
+    }
+    if (!versions.isEmpty())
+      migratePage(directory, versions);
+  }
+
+  private void migratePage(File directory, List<VersionInfo> versions) throws IOException {
+    Collections.sort(versions);
+    PackFile pack = new PackFile(directory);
+    for (VersionInfo version : versions) {
+      File zip = new File(directory, version.getName() + ".zip");
+      if (!pack.hasRevision(version.getName())) {
+        packVersion(pack, version.getName(), zip);
+        migratedVersions++;
+      }
+      if (!keepZipFiles)
+        zip.delete();
+    }
+    migratedPages++;
+  }
+
+  private void packVersion(PackFile pack, String name, File zip) throws IOException {
+    ZipFile zipFile = new ZipFile(zip);
+    try {
+      byte[] content = readEntry(zipFile, "content.txt");
+      byte[] properties = readEntry(zipFile, "properties.xml");
+      pack.append(name, content == null ? new byte[0] : content, properties);
+    } finally {
+      zipFile.close();
+    }
+  }
+
+  private byte[] readEntry(ZipFile zipFile, String name) throws IOException {
+    ZipEntry entry = zipFile.getEntry(name);
+    if (entry == null)
+      return null;
+    InputStream input = zipFile.getInputStream(entry);
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      byte[] buffer = new byte[4096];
+      int bytesRead;
+      while ((bytesRead = input.read(buffer)) != -1)
+        bytes.write(buffer, 0, bytesRead);
+      return bytes.toByteArray();
+    } finally {
+      input.close();
+    }
+  }
+}
@@ -0,0 +1,316 @@
+// Copyright (C) 2003,2004,2005 by Object Mentor, Inc. All rights reserved.
+// Released under the terms of the GNU General Public License version 2 or later.
+package fitnesse.revisioncontrol.zip;
+
+import fitnesse.wiki.FileSystemPage;
+import fitnesse.wiki.VersionInfo;
+
+import java.io.*;
+import java.util.*;
+
+// Zips and prunes the versions of a ZipFileRevisionController on a background thread, so
+// a save only waits while the old files are read and written to the journal.  A version is
+// held back for the coalescing time; further saves of the same page within that time are
+// folded into it rather than each leaving a version of its own.  Journal entries left
+// behind by a JVM that died are zipped when the next archiver starts.
+public class VersionArchiver {
+  public static final int DEFAULT_MAX_QUEUED_VERSIONS = 100;
+  public static final long DEFAULT_COALESCING_TIME = 2000;
+  private static final String JOURNAL_EXTENSION = ".version";
+  private static final String PARTIAL_EXTENSION = ".partial";
+
+  private final ZipFileRevisionController controller;
+  private final File journalDirectory;
+  private final int maxQueuedVersions;
+  private final long coalescingTime;
+  private final LinkedList<PendingVersion> queue = new LinkedList<PendingVersion>();
+  private final Set<String> journaling = new HashSet<String>();
+  private List<PendingVersion> archiving = new ArrayList<PendingVersion>();
+  private final Thread archiverThread;
+  private boolean running = true;
+  private int flushRequests = 0;
+  private long journalSequence = 0;
+  private long archivedVersions = 0;
+  private long coalescedSaves = 0;
+
+  public VersionArchiver(final ZipFileRevisionController controller, final File journalDirectory, final int maxQueuedVersions, final long coalescingTime) throws Exception {
+    this.controller = controller;
+    this.journalDirectory = journalDirectory;
+    this.maxQueuedVersions = Math.max(1, maxQueuedVersions);
+    this.coalescingTime = coalescingTime;
+    journalDirectory.mkdirs();
+    recoverJournal();
+    archiverThread = new Thread(
+      new Runnable() {
+        public void run() {
+          archiveLoop();
+        }
+      }, "FitNesse version archiver"
+    );
+    archiverThread.setDaemon(true);
+    archiverThread.start();
+  }
+
+  // The page's place in the queue is taken before its journal entry is written, so that a
+  // save of the same page meanwhile waits to be coalesced into it, and no other page can
+  // take the place.
+  public VersionInfo archive(final FileSystemPage page, final String dirPath, final VersionInfo version, final String zipFileName, final Map<String, byte[]> files) throws Exception {
+    synchronized (this) {
+      while (true) {
+        final PendingVersion pending = findQueued(dirPath);
+        if (pending != null && System.currentTimeMillis() - pending.queuedAt < coalescingTime) {
+          coalescedSaves++;
+          return pending.version;
+        }
+        if (!journaling.contains(dirPath) && (queue.size() + journaling.size() < maxQueuedVersions || !running)) {
+          break;
+        }
+        wait();
+      }
+      journaling.add(dirPath);
+    }
+    final PendingVersion pending = new PendingVersion(page, dirPath, version, zipFileName, files);
+    boolean journaled = false;
+    try {
+      writeJournal(pending);
+      journaled = true;
+    } finally {
+      synchronized (this) {
+        journaling.remove(dirPath);
+        if (journaled) {
+          queue.add(pending);
+        }
+        notifyAll();
+      }
+    }
+    return version;
+  }
+
+  private PendingVersion findQueued(final String dirPath) {
+    for (final PendingVersion pending : queue) {
+      if (pending.dirPath.equals(dirPath)) {
+        return pending;
+      }
+    }
+    return null;
+  }
+
+  public synchronized Collection<VersionInfo> getPendingVersions(final String dirPath) {
+    final List<VersionInfo> versions = new ArrayList<VersionInfo>();
+    for (final PendingVersion pending : queue) {
+      if (pending.dirPath.equals(dirPath)) {
+        versions.add(pending.version);
+      }
+    }
+    for (final PendingVersion pending : archiving) {
+      if (pending.dirPath.equals(dirPath)) {
+        versions.add(pending.version);
+      }
+    }
+    return versions;
+  }
+
+  public synchronized void cancel(final String zipFileName) {
+    for (final Iterator<PendingVersion> i = queue.iterator(); i.hasNext();) {
+      final PendingVersion pending = i.next();
+      if (pending.zipFileName.equals(zipFileName)) {
+        i.remove();
+        pending.journal.delete();
+        notifyAll();
+      }
+    }
+  }
+
+  // Waits until everything queued so far has been zipped.
+  public synchronized void flush() throws InterruptedException {
+    flushRequests++;
+    notifyAll();
+    try {
+      while (!queue.isEmpty() || !archiving.isEmpty()) {
+        wait();
+      }
+    } finally {
+      flushRequests--;
+    }
+  }
+
+  public void close() throws InterruptedException {
+    synchronized (this) {
+      running = false;
+      notifyAll();
+    }
+    archiverThread.join();
+  }
+
+  public synchronized int getQueuedVersions() {
+    return queue.size();
+  }
+
+  public synchronized long getArchivedVersions() {
+    return archivedVersions;
+  }
+
+  public synchronized long getCoalescedSaves() {
+    return coalescedSaves;
+  }
+
+  private void archiveLoop() {
+    while (true) {
+      final List<PendingVersion> batch;
+      synchronized (this) {
+        try {
+          waitForDueVersions();
+        } catch (InterruptedException e) {
+          return;
+        }
+        if (queue.isEmpty()) {
+          return;
+        }
+        batch = takeDueVersions();
+        archiving = batch;
+      }
+      archiveBatch(batch);
+      synchronized (this) {
+        archiving = new ArrayList<PendingVersion>();
+        archivedVersions += batch.size();
+        notifyAll();
+      }
+    }
+  }
+
+  private void waitForDueVersions() throws InterruptedException {
+    while (running && !isDue()) {
+      if (queue.isEmpty()) {
+        wait();
+      } else {
+        wait(Math.max(1, queue.getFirst().queuedAt + coalescingTime - System.currentTimeMillis()));
+      }
+    }
+  }
+
+  private boolean isDue() {
+    if (queue.isEmpty()) {
+      return false;
+    }
+    return flushRequests > 0 || queue.size() >= maxQueuedVersions || isDue(queue.getFirst());
+  }
+
+  private boolean isDue(final PendingVersion pending) {
+    return System.currentTimeMillis() - pending.queuedAt >= coalescingTime;
+  }
+
+  private List<PendingVersion> takeDueVersions() {
+    final boolean takeAll = flushRequests > 0 || !running || queue.size() >= maxQueuedVersions;
+    final List<PendingVersion> batch = new ArrayList<PendingVersion>();
+    while (!queue.isEmpty() && (takeAll || isDue(queue.getFirst()))) {
+      batch.add(queue.removeFirst());
+    }
+    notifyAll();
+    return batch;
+  }
+
+  // Each page is pruned once per batch, however many of its versions the batch held.
+  private void archiveBatch(final List<PendingVersion> batch) {
+    final Map<String, FileSystemPage> pagesToPrune = new LinkedHashMap<String, FileSystemPage>();
+    for (final PendingVersion pending : batch) {
+      try {
+        controller.writeVersion(pending.dirPath, pending.zipFileName, pending.files);
+        pending.journal.delete();
+        pagesToPrune.put(pending.dirPath, pending.page);
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+    }
+    for (final FileSystemPage page : pagesToPrune.values()) {
+      try {
+        controller.pruneNow(page);
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+    }
+  }
+
+  // An entry is written under a temporary name and renamed when complete, so a partial
+  // entry only exists while the page's old files are still untouched on disk.
+  private void writeJournal(final PendingVersion pending) throws IOException {
+    final String name = journalName();
+    final File partial = new File(journalDirectory, name + PARTIAL_EXTENSION);
+    final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(partial)));
+    try {
+      output.writeUTF(pending.dirPath);
+      output.writeUTF(pending.zipFileName);
+      output.writeInt(pending.files.size());
+      for (final Map.Entry<String, byte[]> file : pending.files.entrySet()) {
+        output.writeUTF(file.getKey());
+        output.writeInt(file.getValue().length);
+        output.write(file.getValue());
+      }
+    } finally {
+      output.close();
+    }
+    pending.journal = new File(journalDirectory, name + JOURNAL_EXTENSION);
+    if (!partial.renameTo(pending.journal)) {
+      partial.delete();
+      throw new IOException("Could not write version journal " + pending.journal);
+    }
+  }
+
+  private synchronized String journalName() {
+    return String.format("%013d-%06d", System.currentTimeMillis(), journalSequence++);
+  }
+
+  private void recoverJournal() throws IOException {
+    final File[] entries = journalDirectory.listFiles();
+    if (entries == null) {
+      return;
+    }
+    Arrays.sort(entries);
+    for (final File entry : entries) {
+      if (entry.getName().endsWith(JOURNAL_EXTENSION)) {
+        recoverVersion(entry);
+      } else if (entry.getName().endsWith(PARTIAL_EXTENSION)) {
+        entry.delete();
+      }
+    }
+  }
+
+  private void recoverVersion(final File journal) throws IOException {
+    final DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(journal)));
+    try {
+      final String dirPath = input.readUTF();
+      final String zipFileName = input.readUTF();
+      final Map<String, byte[]> files = new HashMap<String, byte[]>();
+      final int fileCount = input.readInt();
+      for (int i = 0; i < fileCount; i++) {
+        final String name = input.readUTF();
+        final byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        files.put(name, bytes);
+      }
+      if (new File(dirPath).exists() && !new File(zipFileName).exists()) {
+        controller.writeVersion(dirPath, zipFileName, files);
+      }
+    } finally {
+      input.close();
+    }
+    journal.delete();
+  }
+
+  private static class PendingVersion {
+    final FileSystemPage page;
+    final String dirPath;
+    final VersionInfo version;
+    final String zipFileName;
+    final Map<String, byte[]> files;
+    final long queuedAt = System.currentTimeMillis();
+    File journal;
+
+    PendingVersion(final FileSystemPage page, final String dirPath, final VersionInfo version, final String zipFileName, final Map<String, byte[]> files) {
+      this.page = page;
+      this.dirPath = dirPath;
+      this.version = version;
+      this.zipFileName = zipFileName;
+      this.files = files;
+    }
+  }
+}
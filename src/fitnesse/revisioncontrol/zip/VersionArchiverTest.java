@@ -0,0 +1,117 @@
+// Copyright (C) 2003,2004,2005 by Object Mentor, Inc. All rights reserved.
+// Released under the terms of the GNU General Public License version 2 or later.
+package fitnesse.revisioncontrol.zip;
+
+import fitnesse.util.FileUtil;
+import fitnesse.wiki.FileSystemPage;
+import fitnesse.wiki.PageData;
+import fitnesse.wiki.PathParser;
+import fitnesse.wiki.VersionInfo;
+import fitnesse.wiki.WikiPage;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+public class VersionArchiverTest extends TestCase {
+  private ZipFileRevisionController revisioner;
+  private File journal;
+  private FileSystemPage page;
+
+  public void setUp() throws Exception {
+    revisioner = new ZipFileRevisionController();
+    journal = new File("testDir/journal");
+    revisioner.archiveInBackground(journal, 10, 60000);
+    WikiPage root = FileSystemPage.makeRoot("testDir", "RooT", revisioner);
+    page = (FileSystemPage) root.getPageCrawler().addPage(root, PathParser.parse("PageOne"), "original content");
+  }
+
+  public void tearDown() throws Exception {
+    revisioner.stopArchivingInBackground();
+    FileUtil.deleteFileSystemDirectory("testDir");
+  }
+
+  private VersionInfo save(String content) throws Exception {
+    PageData data = page.getData();
+    data.setContent(content);
+    return page.commit(data);
+  }
+
+  private File zipOf(VersionInfo version) throws Exception {
+    return new File(page.getFileSystemPath(), version.getName() + ".zip");
+  }
+
+  public void testVersionIsJournaledUntilArchived() throws Exception {
+    VersionInfo version = save("new content");
+    assertFalse(zipOf(version).exists());
+    assertEquals(1, journal.list().length);
+    assertTrue(revisioner.history(page).contains(version));
+
+    revisioner.getArchiver().flush();
+    assertTrue(zipOf(version).exists());
+    assertEquals(0, journal.list().length);
+    assertEquals("original content", page.getDataVersion(version.getName()).getContent());
+  }
+
+  public void testRapidSavesOfOnePageAreCoalesced() throws Exception {
+    VersionInfo first = save("second content");
+    VersionInfo second = save("third content");
+    assertEquals(first, second);
+    assertEquals(1, revisioner.getArchiver().getCoalescedSaves());
+
+    revisioner.getArchiver().flush();
+    assertEquals(1, revisioner.history(page).size());
+    assertEquals("original content", page.getDataVersion(first.getName()).getContent());
+    assertEquals("third content", page.getData().getContent());
+  }
+
+  public void testConcurrentSavesOfOnePageAreCoalescedIntoOneVersion() throws Exception {
+    final VersionArchiver archiver = revisioner.getArchiver();
+    final String dirPath = page.getFileSystemPath();
+    final Map<String, byte[]> files = new HashMap<String, byte[]>();
+    files.put("content.txt", new byte[1000000]);
+    final CountDownLatch go = new CountDownLatch(1);
+    Thread[] savers = new Thread[10];
+    for (int i = 0; i < savers.length; i++) {
+      final String name = "version" + i;
+      savers[i] = new Thread() {
+        public void run() {
+          try {
+            go.await();
+            archiver.archive(page, dirPath, new VersionInfo(name), dirPath + "/" + name + ".zip", files);
+          } catch (Exception e) {
+            throw new RuntimeException(e);
+          }
+        }
+      };
+    }
+    for (Thread saver : savers)
+      saver.start();
+    go.countDown();
+    for (Thread saver : savers)
+      saver.join();
+
+    assertEquals(1, archiver.getQueuedVersions());
+    assertEquals(9, archiver.getCoalescedSaves());
+    assertEquals(1, journal.list().length);
+  }
+
+  public void testReadingAPendingVersionWaitsForIt() throws Exception {
+    VersionInfo version = save("new content");
+    assertEquals("original content", page.getDataVersion(version.getName()).getContent());
+    assertTrue(zipOf(version).exists());
+  }
+
+  public void testJournalIsArchivedAfterACrash() throws Exception {
+    VersionInfo version = save("new content");
+    VersionArchiver crashed = revisioner.getArchiver();
+
+    new VersionArchiver(new ZipFileRevisionController(), journal, 10, 60000).close();
+    assertTrue(zipOf(version).exists());
+    assertEquals(0, journal.list().length);
+
+    crashed.cancel(zipOf(version).getPath());
+  }
+}
@@ -16,6 +16,18 @@ import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
 
 public class ZipFileRevisionController implements RevisionController {
+  private static final int MAX_CACHED_HISTORIES = 1000;
+  private static final long MODIFICATION_TIME_RESOLUTION = 1000;
+  private static final Pattern VERSION_FILE_PATTERN = Pattern.compile("(\\S+)?\\d+\\.zip");
+
+  private final Map<String, CachedHistory> histories = new LinkedHashMap<String, CachedHistory>(16, 0.75f, true) {
+    private static final long serialVersionUID = 1L;
+
+    protected boolean removeEldestEntry(Map.Entry<String, CachedHistory> eldest) {
+      return size() > MAX_CACHED_HISTORIES;
+    }
+  };
+
   public static SimpleDateFormat dateFormat() {
     return new SimpleDateFormat("yyyyMMddHHmmss");
   }
@@ -24,9 +36,40 @@ public class ZipFileRevisionController implements RevisionController {
     this(new Properties());
   }
 
+  private VersionArchiver archiver;
+
   public ZipFileRevisionController(final Properties properties) {
   }
 
+  // From now on versions are zipped and pruned on a background thread.  The files of each
+  // version are journaled in the given directory until they are zipped.
+  public void archiveInBackground(final File journalDirectory) throws Exception {
+    archiveInBackground(journalDirectory, VersionArchiver.DEFAULT_MAX_QUEUED_VERSIONS, VersionArchiver.DEFAULT_COALESCING_TIME);
+  }
+
+  public void archiveInBackground(final File journalDirectory, final int maxQueuedVersions, final long coalescingTime) throws Exception {
+    archiver = new VersionArchiver(this, journalDirectory, maxQueuedVersions, coalescingTime);
+  }
+
+  public void stopArchivingInBackground() throws Exception {
+    if (archiver != null) {
+      archiver.close();
+      archiver = null;
+    }
+  }
+
+  private void flushArchiver() {
+    try {
+      archiver.flush();
+    } catch (InterruptedException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  public VersionArchiver getArchiver() {
+    return archiver;
+  }
+
   public void add(final String... filePaths) throws RevisionControlException {
   }
 
@@ -49,6 +92,9 @@ public class ZipFileRevisionController implements RevisionController {
   public PageData getRevisionData(final FileSystemPage page, final String label) {
     final String filename = getFileSystemPath(page) + "/" + label + ".zip";
     final File file = new File(filename);
+    if (!file.exists() && archiver != null) {
+      flushArchiver();
+    }
     if (!file.exists()) {
       throw new NoSuchVersionException("There is no version '" + label + "'");
     }
@@ -59,7 +105,7 @@ public class ZipFileRevisionController implements RevisionController {
       zipFile = new ZipFile(file);
       loadVersionContent(zipFile, data);
       loadVersionAttributes(zipFile, data);
-      data.addVersions(loadVersions(page));
+      data.addVersions(history(page));
       return data;
     } catch (Throwable th) {
       throw new RuntimeException(th);
@@ -80,8 +126,47 @@ public class ZipFileRevisionController implements RevisionController {
     }
   }
 
+  // Listing a directory of many versions is slow, so the list is kept until the directory
+  // changes.  Directories changed too recently for their time stamp to tell are listed again.
   public Collection<VersionInfo> history(final FileSystemPage page) {
-    final File dir = new File(getFileSystemPath(page));
+    final String path = getFileSystemPath(page);
+    final long lastModified = new File(path).lastModified();
+    synchronized (histories) {
+      final CachedHistory cached = histories.get(path);
+      if (cached != null && cached.lastModified == lastModified) {
+        return withPendingVersions(path, cached.versions);
+      }
+    }
+    final Set<VersionInfo> versions = Collections.unmodifiableSet(listVersions(path));
+    if (lastModified < System.currentTimeMillis() - MODIFICATION_TIME_RESOLUTION) {
+      synchronized (histories) {
+        histories.put(path, new CachedHistory(lastModified, versions));
+      }
+    }
+    return withPendingVersions(path, versions);
+  }
+
+  private Collection<VersionInfo> withPendingVersions(final String path, final Set<VersionInfo> versions) {
+    if (archiver == null) {
+      return versions;
+    }
+    final Collection<VersionInfo> pending = archiver.getPendingVersions(path);
+    if (pending.isEmpty()) {
+      return versions;
+    }
+    final Set<VersionInfo> allVersions = new HashSet<VersionInfo>(versions);
+    allVersions.addAll(pending);
+    return allVersions;
+  }
+
+  void forgetHistory(final String path) {
+    synchronized (histories) {
+      histories.remove(path);
+    }
+  }
+
+  private Set<VersionInfo> listVersions(final String path) {
+    final File dir = new File(path);
     final File[] files = dir.listFiles();
     final Set<VersionInfo> versions = new HashSet<VersionInfo>();
     if (files != null) {
@@ -111,27 +196,66 @@ public class ZipFileRevisionController implements RevisionController {
     if (filesToZip.size() == 0) {
       return new VersionInfo("first_commit", "", new Date());
     }
-    ZipOutputStream zos = null;
     try {
       final String filename = makeVersionFileName(page, version.getName());
-      zos = new ZipOutputStream(new FileOutputStream(filename));
-      for (final Iterator<File> iterator = filesToZip.iterator(); iterator.hasNext();) {
-        addToZip(iterator.next(), zos);
+      if (archiver != null) {
+        return archiver.archive(page, dirPath, new VersionInfo(version.getName()), filename, readFiles(filesToZip));
       }
+      writeVersion(dirPath, filename, readFiles(filesToZip));
       return new VersionInfo(version.getName());
     } catch (Throwable th) {
       throw new RuntimeException(th);
+    }
+  }
+
+  void writeVersion(final String dirPath, final String filename, final Map<String, byte[]> files) throws IOException {
+    forgetHistory(dirPath);
+    final ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(filename));
+    try {
+      for (final Map.Entry<String, byte[]> file : files.entrySet()) {
+        zos.putNextEntry(new ZipEntry(file.getKey()));
+        zos.write(file.getValue());
+      }
     } finally {
-      try {
-        zos.finish();
-        zos.close();
-      } catch (IOException e) {
-        e.printStackTrace();
+      zos.finish();
+      zos.close();
+    }
+  }
+
+  private Map<String, byte[]> readFiles(final Set<File> files) throws IOException {
+    final Map<String, byte[]> contents = new HashMap<String, byte[]>();
+    for (final File file : files) {
+      contents.put(file.getName(), readFile(file));
+    }
+    return contents;
+  }
+
+  private byte[] readFile(final File file) throws IOException {
+    final FileInputStream is = new FileInputStream(file);
+    try {
+      final byte[] bytes = new byte[(int) file.length()];
+      int offset = 0;
+      while (offset < bytes.length) {
+        final int bytesRead = is.read(bytes, offset, bytes.length - offset);
+        if (bytesRead < 0) {
+          break;
+        }
+        offset += bytesRead;
       }
+      return bytes;
+    } finally {
+      is.close();
     }
   }
 
+  // Versions archived in the background are pruned by the archiver once they are written.
   public void prune(final FileSystemPage page) {
+    if (archiver == null) {
+      pruneNow(page);
+    }
+  }
+
+  void pruneNow(final FileSystemPage page) {
     try {
       PageVersionPruner.pruneVersions(page, history(page));
     } catch (Exception e) {
@@ -141,8 +265,12 @@ public class ZipFileRevisionController implements RevisionController {
 
   public void removeVersion(final FileSystemPage page, final String versionName) {
     final String versionFileName = makeVersionFileName(page, versionName);
+    if (archiver != null) {
+      archiver.cancel(versionFileName);
+    }
     final File versionFile = new File(versionFileName);
     versionFile.delete();
+    forgetHistory(getFileSystemPath(page));
   }
 
   public void revert(final String... filePaths) throws RevisionControlException {
@@ -151,17 +279,6 @@ public class ZipFileRevisionController implements RevisionController {
   public void update(final String... filePaths) throws RevisionControlException {
   }
 
-  private void addToZip(final File file, final ZipOutputStream zos) throws IOException {
-    final ZipEntry entry = new ZipEntry(file.getName());
-    zos.putNextEntry(entry);
-    final FileInputStream is = new FileInputStream(file);
-    final int size = (int) file.length();
-    final byte[] bytes = new byte[size];
-    is.read(bytes);
-    is.close();
-    zos.write(bytes, 0, size);
-  }
-
   private Set<File> getFilesToZip(final String dirPath) {
     final Set<File> filesToZip = new HashSet<File>();
     final File dir = new File(dirPath);
@@ -178,7 +295,7 @@ public class ZipFileRevisionController implements RevisionController {
   }
 
   private boolean isVersionFile(final File file) {
-    return Pattern.matches("(\\S+)?\\d+\\.zip", file.getName());
+    return VERSION_FILE_PATTERN.matcher(file.getName()).matches();
   }
 
   private void loadVersionAttributes(final ZipFile zipFile, final PageData data) {
@@ -223,35 +340,13 @@ public class ZipFileRevisionController implements RevisionController {
     data.setContent(content);
   }
 
-  private Collection<VersionInfo> loadVersions(final FileSystemPage page) {
-    final File dir = new File(getFileSystemPath(page));
-    final File[] files = dir.listFiles();
-    final Set<VersionInfo> versions = new HashSet<VersionInfo>();
-    if (files != null) {
-      for (final File file : files) {
-        if (isVersionFile(file)) {
-          versions.add(new VersionInfo(makeVersionName(file)));
-        }
-      }
-    }
-    return versions;
-  }
-
   private String makeVersionFileName(final FileSystemPage page, final String name) {
     return getFileSystemPath(page) + "/" + name + ".zip";
   }
 
   private VersionInfo makeVersionInfo(final PageData data) {
     try {
-      Date time;
-      time = data.getProperties().getLastModificationTime();
-      String versionName = VersionInfo.nextId() + "-" + dateFormat().format(time);
-      final String user = data.getAttribute(WikiPage.LAST_MODIFYING_USER);
-      if (user != null && !"".equals(user)) {
-        versionName = user + "-" + versionName;
-      }
-
-      return new VersionInfo(versionName, user, time);
+      return VersionInfo.makeVersionInfo(data);
     } catch (Exception e) {
       throw new RuntimeException(e);
     }
@@ -271,4 +366,14 @@ public class ZipFileRevisionController implements RevisionController {
     return "Zipped Version History";
   }
 
+  private static class CachedHistory {
+    final long lastModified;
+    final Set<VersionInfo> versions;
+
+    CachedHistory(final long lastModified, final Set<VersionInfo> versions) {
+      this.lastModified = lastModified;
+      this.versions = versions;
+    }
+  }
+
 }
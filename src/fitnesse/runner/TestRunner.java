@@ -6,17 +6,18 @@ import fitnesse.components.CommandLine;
 import fitnesse.responders.run.TestSummary;
 import fitnesse.util.StreamReader;
 import fitnesse.util.StringUtil;
-import fitnesse.util.XmlUtil;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
 
+import javax.xml.parsers.SAXParserFactory;
 import java.io.*;
 import java.lang.reflect.Method;
 import java.net.Socket;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 public class TestRunner {
   private String outputFileName;
@@ -26,11 +27,11 @@ public class TestRunner {
   private PrintStream output;
   private String suiteFilter = null;
   private StreamReader socketReader;
-  private Document testResultsDocument;
   private TestSummary counts;
   private boolean verbose;
   private boolean debug = false;
   private String request;
+  private List<String> heldVerboseLines = new ArrayList<String>();
 
   public TestRunner() throws Exception {
     this(System.out);
@@ -80,13 +81,10 @@ public class TestRunner {
     requestTest();
     debug(String.format("Sent request: %s", request));
     discardHeaders();
-    String xmlDocumentString = getXmlDocument();
-    debug(String.format("Xml Document: %s", xmlDocumentString));
-    testResultsDocument = XmlUtil.newDocument(xmlDocumentString);
+    readXmlDocument();
+    printHeldVerboseLines();
     debug("Xml Document Parsed");
-    gatherCounts();
-    writeOutputFile();
-    verboseOutput();
+    debug(String.format("Counts: %s", counts));
     debug(String.format("Exit Code: %d", exitCode()));
   }
 
@@ -96,58 +94,57 @@ public class TestRunner {
     }
   }
 
-  private void verboseOutput() throws Exception {
-    if (verbose) {
-      Element testResultsElement = testResultsDocument.getDocumentElement();
-      String rootPath = XmlUtil.getTextValue(testResultsElement, "rootPath");
-      output.println(String.format("Test Runner for Root Path: %s", rootPath));
-      NodeList results = testResultsElement.getElementsByTagName("result");
-      for (int i = 0; i < results.getLength(); i++) {
-        Element result = (Element) results.item(i);
-        showResult(result);
+  // The results are parsed as they arrive, and copied to the output file as they are read,
+  // so neither the response nor the document is ever held in memory whole.
+  private void readXmlDocument() throws Exception {
+    OutputStream xmlOutput = getOutputStream();
+    InputStream xml = new ChunkedInputStream(xmlOutput);
+    try {
+      SAXParserFactory.newInstance().newSAXParser().parse(xml, new ResultsHandler());
+      while (xml.read() != -1) {
       }
+    } finally {
+      if (xmlOutput != null && xmlOutput != output)
+        xmlOutput.close();
+      else if (xmlOutput != null)
+        xmlOutput.flush();
     }
   }
 
-  private void showResult(Element result) throws Exception {
-    String page = XmlUtil.getTextValue(result, "relativePageName");
-    Element counts = XmlUtil.getElementByTagName(result, "counts");
-    int right = Integer.parseInt(XmlUtil.getTextValue(counts, "right"));
-    int wrong = Integer.parseInt(XmlUtil.getTextValue(counts, "wrong"));
-    int ignores = Integer.parseInt(XmlUtil.getTextValue(counts, "ignores"));
-    int exceptions = Integer.parseInt(XmlUtil.getTextValue(counts, "exceptions"));
-    output.println(String.format("Page:%s right:%d, wrong:%d, ignored:%d, exceptions:%d", page, right, wrong, ignores, exceptions));
-  }
-
-  private void writeOutputFile() throws Exception {
-    if (outputFileName != null) {
-      debug(String.format("Writing: %s", outputFileName));
-      String xmlDocument = XmlUtil.xmlAsString(testResultsDocument);
-      OutputStream os = getOutputStream();
-      os.write(xmlDocument.getBytes());
-      os.close();
-    } else {
+  private OutputStream getOutputStream() throws FileNotFoundException {
+    if (outputFileName == null) {
       debug("No output file to write.");
+      return null;
     }
-  }
-
-  private OutputStream getOutputStream() throws FileNotFoundException {
-    if ("stdout".equalsIgnoreCase(outputFileName))
+    debug(String.format("Writing: %s", outputFileName));
+    if (isXmlOnOutput())
       return output;
     else
       return new FileOutputStream(outputFileName);
   }
 
-  private void gatherCounts() throws Exception {
-    debug("Gathering Counts...");
-    Element testResults = testResultsDocument.getDocumentElement();
-    Element finalCounts = XmlUtil.getElementByTagName(testResults, "finalCounts");
-    String right = XmlUtil.getTextValue(finalCounts, "right");
-    String wrong = XmlUtil.getTextValue(finalCounts, "wrong");
-    String ignores = XmlUtil.getTextValue(finalCounts, "ignores");
-    String exceptions = XmlUtil.getTextValue(finalCounts, "exceptions");
-    counts = new TestSummary(Integer.parseInt(right), Integer.parseInt(wrong), Integer.parseInt(ignores), Integer.parseInt(exceptions));
-    debug(String.format("Counts: %s", counts.toString()));
+  private void showResult(String page, TestSummary pageCounts) {
+    verbose(String.format("Page:%s right:%d, wrong:%d, ignored:%d, exceptions:%d", page,
+      pageCounts.right, pageCounts.wrong, pageCounts.ignores, pageCounts.exceptions));
+  }
+
+  // While the XML document is copied to standard out, verbose lines are held back until
+  // it is complete, so they do not end up inside it.
+  private void verbose(String line) {
+    if (isXmlOnOutput())
+      heldVerboseLines.add(line);
+    else
+      output.println(line);
+  }
+
+  private boolean isXmlOnOutput() {
+    return "stdout".equalsIgnoreCase(outputFileName);
+  }
+
+  private void printHeldVerboseLines() {
+    for (String line : heldVerboseLines)
+      output.println(line);
+    heldVerboseLines.clear();
   }
 
   public int exitCode() {
@@ -160,21 +157,6 @@ public class TestRunner {
     return exitStatus;
   }
 
-  private String getXmlDocument() throws Exception {
-    StringBuffer xmlDocumentBuffer = new StringBuffer();
-    while (true) {
-      String sizeLine = socketReader.readLine();
-      if (sizeLine.equals(""))
-        continue;
-      int size = Integer.parseInt(sizeLine, 16);
-      if (size == 0)
-        break;
-      String chunk = socketReader.read(size);
-      xmlDocumentBuffer.append(chunk);
-    }
-    return xmlDocumentBuffer.toString();
-  }
-
   private void discardHeaders() throws Exception {
     while (true) {
       String line = socketReader.readLine();
@@ -224,4 +206,100 @@ public class TestRunner {
     method.setAccessible(true);
     method.invoke(sysloader, new Object[]{u});
   }
+
+  // The body of the chunked response, with each chunk copied to the output file as it is read.
+  private class ChunkedInputStream extends InputStream {
+    private final OutputStream copy;
+    private byte[] chunk = new byte[0];
+    private int position = 0;
+    private boolean finished = false;
+
+    ChunkedInputStream(OutputStream copy) {
+      this.copy = copy;
+    }
+
+    public int read() throws IOException {
+      if (!hasMore())
+        return -1;
+      return chunk[position++] & 0xff;
+    }
+
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+      if (!hasMore())
+        return -1;
+      int count = Math.min(length, chunk.length - position);
+      System.arraycopy(chunk, position, bytes, offset, count);
+      position += count;
+      return count;
+    }
+
+    private boolean hasMore() throws IOException {
+      try {
+        while (position == chunk.length && !finished)
+          readChunk();
+      } catch (IOException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new IOException("Could not read test results: " + e.getMessage());
+      }
+      return position < chunk.length;
+    }
+
+    private void readChunk() throws Exception {
+      String sizeLine = socketReader.readLine();
+      if (sizeLine.equals(""))
+        return;
+      int size = Integer.parseInt(sizeLine, 16);
+      if (size == 0) {
+        finished = true;
+        return;
+      }
+      chunk = socketReader.readBytes(size);
+      position = 0;
+      if (copy != null)
+        copy.write(chunk);
+    }
+  }
+
+  private class ResultsHandler extends DefaultHandler {
+    private StringBuffer text;
+    private TestSummary currentCounts;
+    private TestSummary pageCounts;
+    private String relativePageName;
+
+    public void startElement(String uri, String localName, String name, Attributes attributes) {
+      if ("counts".equals(name))
+        currentCounts = pageCounts = new TestSummary();
+      else if ("finalCounts".equals(name))
+        currentCounts = counts = new TestSummary();
+      else if ("content".equals(name))
+        text = null;
+      else
+        text = new StringBuffer();
+    }
+
+    public void characters(char[] characters, int start, int length) {
+      if (text != null)
+        text.append(characters, start, length);
+    }
+
+    public void endElement(String uri, String localName, String name) {
+      String value = text == null ? null : text.toString().trim();
+      text = null;
+      if ("rootPath".equals(name) && verbose)
+        verbose(String.format("Test Runner for Root Path: %s", value));
+      else if ("relativePageName".equals(name))
+        relativePageName = value;
+      else if ("result".equals(name) && verbose)
+        showResult(relativePageName, pageCounts);
+      else if ("right".equals(name))
+        currentCounts.right = Integer.parseInt(value);
+      else if ("wrong".equals(name))
+        currentCounts.wrong = Integer.parseInt(value);
+      else if ("ignores".equals(name))
+        currentCounts.ignores = Integer.parseInt(value);
+      else if ("exceptions".equals(name))
+        currentCounts.exceptions = Integer.parseInt(value);
+    }
+  }
 }
@@ -82,6 +82,21 @@ public class TestRunnerTest {
       "Page:(TestPassing) right:1, wrong:0, ignored:0, exceptions:0\n", outputBytes.toString());
   }
 
+  @Test
+  public void verboseSuiteWithXmlOnStandardOut() throws Exception {
+    runPage("-v -xml stdout", "SuitePage");
+    String output = outputBytes.toString();
+    assertSubString("<?xml version=\"1.0\"?>", output);
+    assertSubString("</testResults>", output);
+    assertSubString("Test Runner for Root Path: SuitePage\n", output);
+    assertSubString("Page:TestError right:0, wrong:0, ignored:0, exceptions:1\n", output);
+    assertSubString("Page:TestFailing right:0, wrong:1, ignored:0, exceptions:0\n", output);
+    assertSubString("Page:TestIgnore right:0, wrong:0, ignored:1, exceptions:0\n", output);
+    assertSubString("Page:TestPassing right:1, wrong:0, ignored:0, exceptions:0\n", output);
+    assertTrue(output, output.indexOf("</testResults>") < output.indexOf("Test Runner for Root Path"));
+    assertEquals(new TestSummary(1, 1, 1, 1), runner.getCounts());
+  }
+
   @Test
   public void testXMLFile() throws Exception {
     runPage("-xml testFile.txt", "SuitePage");
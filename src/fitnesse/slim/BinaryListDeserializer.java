@@ -0,0 +1,100 @@
+package fitnesse.slim;
+
+import fitnesse.util.StreamReader;
+
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads what BinaryListSerializer writes.  See BinaryListSerializer for the format.
+ */
+public class BinaryListDeserializer {
+  public static final int MAX_MESSAGE_LENGTH = 256 * 1024 * 1024;
+  private byte[] serialized;
+  private int index = 0;
+
+  public BinaryListDeserializer(byte[] serialized) {
+    this.serialized = serialized;
+  }
+
+  public static Object deserialize(byte[] serialized) {
+    return new BinaryListDeserializer(serialized).deserialize();
+  }
+
+  // The length is checked before anything is allocated for the message, so a corrupt or
+  // hostile frame is an error rather than an OutOfMemoryError.
+  public static Object readMessage(StreamReader reader) throws Exception {
+    long length = 0;
+    for (int shift = 0; ; shift += 7) {
+      if (shift > 28)
+        throw new SlimError("Malformed message length");
+      int b = reader.readBytes(1)[0] & 0xFF;
+      length |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0)
+        break;
+    }
+    if (length > MAX_MESSAGE_LENGTH)
+      throw new SlimError("Message length " + length + " is over the limit of " + MAX_MESSAGE_LENGTH + " bytes");
+    return deserialize(reader.readBytes((int) length));
+  }
+
+  public Object deserialize() {
+    try {
+      Object item = readItem();
+      if (index != serialized.length)
+        throw new SlimError("Unexpected bytes after the end of the message");
+      return item;
+    } catch (ArrayIndexOutOfBoundsException e) {
+      throw new SlimError("Message ends in the middle of an item");
+    } catch (UnsupportedEncodingException e) {
+      throw new SlimError(e);
+    }
+  }
+
+  private Object readItem() throws UnsupportedEncodingException {
+    int tag = serialized[index++];
+    switch (tag) {
+      case BinaryListSerializer.NULL:
+        return null;
+      case BinaryListSerializer.STRING:
+        return readString();
+      case BinaryListSerializer.LIST:
+        return readList();
+      default:
+        throw new SlimError("Unknown item type " + tag);
+    }
+  }
+
+  private List<Object> readList() throws UnsupportedEncodingException {
+    int size = readLength();
+    List<Object> list = new ArrayList<Object>(Math.min(size, serialized.length - index));
+    for (int i = 0; i < size; i++)
+      list.add(readItem());
+    return list;
+  }
+
+  private String readString() throws UnsupportedEncodingException {
+    int length = readLength();
+    if (length > serialized.length - index)
+      throw new SlimError("Message ends in the middle of an item");
+    String string = new String(serialized, index, length, "UTF-8");
+    index += length;
+    return string;
+  }
+
+  private int readLength() {
+    long length = 0;
+    for (int shift = 0; ; shift += 7) {
+      if (shift > 28)
+        throw new SlimError("Malformed length");
+      int b = serialized[index++] & 0xFF;
+      length |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0)
+        break;
+    }
+    if (length > Integer.MAX_VALUE)
+      throw new SlimError("Malformed length");
+    return (int) length;
+  }
+}
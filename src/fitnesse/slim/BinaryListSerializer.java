@@ -0,0 +1,80 @@
+package fitnesse.slim;
+
+import fitnesse.util.ListUtility;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Packs up a list for the binary Slim protocol.  Unlike ListSerializer nothing limits the length of an item
+ * or the number of items, and every item says whether it is a string, a list or null, so it never has to be
+ * guessed at on the other side.
+ * <p/>
+ * Format:  every item starts with a tag byte.  NULL is followed by nothing; STRING by a varint length and that
+ * many bytes of UTF-8; LIST by a varint number of items and then the items.  A varint is written seven bits at
+ * a time, lowest first, with the high bit set on all but the last byte.  Like ListSerializer this writes a null
+ * as the string "null", which is what the Slim tables expect; NULL is only read.
+ * <p/>
+ * A message on the wire is a varint length followed by that many bytes holding one item.
+ */
+public class BinaryListSerializer {
+  public static final int NULL = 0;
+  public static final int STRING = 1;
+  public static final int LIST = 2;
+
+  private OutputStream output;
+
+  public BinaryListSerializer(OutputStream output) {
+    this.output = output;
+  }
+
+  public static byte[] serialize(Object item) {
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      new BinaryListSerializer(bytes).write(item);
+      return bytes.toByteArray();
+    } catch (IOException e) {
+      throw new SlimError(e);
+    }
+  }
+
+  public static void writeMessage(Object item, OutputStream output) throws IOException {
+    byte[] message = serialize(item);
+    writeLength(message.length, output);
+    output.write(message);
+    output.flush();
+  }
+
+  public void write(Object item) throws IOException {
+    if (item == null)
+      writeString("null");
+    else if (item instanceof List)
+      writeList(ListUtility.uncheckedCast(Object.class, item));
+    else
+      writeString(item.toString());
+  }
+
+  private void writeList(List<Object> list) throws IOException {
+    output.write(LIST);
+    writeLength(list.size(), output);
+    for (Object item : list)
+      write(item);
+  }
+
+  private void writeString(String string) throws IOException {
+    byte[] bytes = string.getBytes("UTF-8");
+    output.write(STRING);
+    writeLength(bytes.length, output);
+    output.write(bytes);
+  }
+
+  static void writeLength(int length, OutputStream output) throws IOException {
+    while ((length & ~0x7F) != 0) {
+      output.write((length & 0x7F) | 0x80);
+      length >>>= 7;
+    }
+    output.write(length);
+  }
+}
@@ -0,0 +1,87 @@
+package fitnesse.slim;
+
+import static fitnesse.util.ListUtility.list;
+import static org.junit.Assert.assertEquals;
+import fitnesse.util.StreamReader;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BinaryListSerializerTest {
+  private void checkRoundTrip(Object item) {
+    assertEquals(item, BinaryListDeserializer.deserialize(BinaryListSerializer.serialize(item)));
+  }
+
+  @Test
+  public void emptyList() throws Exception {
+    checkRoundTrip(list());
+  }
+
+  @Test
+  public void nestedListsStringsAndNulls() throws Exception {
+    checkRoundTrip(list("hello", list("a", list(), "[000000:]"), ""));
+    assertEquals(list("null"), BinaryListDeserializer.deserialize(BinaryListSerializer.serialize(list((Object) null))));
+    assertEquals(null, BinaryListDeserializer.deserialize(new byte[]{BinaryListSerializer.NULL}));
+  }
+
+  @Test
+  public void stringThatLooksLikeAListStaysAString() throws Exception {
+    Object item = BinaryListDeserializer.deserialize(BinaryListSerializer.serialize(list("[000001:000001:x:]")));
+    assertEquals(list("[000001:000001:x:]"), item);
+  }
+
+  @Test
+  public void nonStringsAreSentAsStrings() throws Exception {
+    assertEquals(list("1", "true"), BinaryListDeserializer.deserialize(BinaryListSerializer.serialize(list(1, true))));
+  }
+
+  @Test
+  public void lengthsAreCountedInUtf8Bytes() throws Exception {
+    byte[] bytes = BinaryListSerializer.serialize("\u00e9\u20ac");
+    assertEquals(1 + 1 + 5, bytes.length);
+    checkRoundTrip("\u00e9\u20ac");
+  }
+
+  @Test
+  public void itemsLongerThanTheOldSixDigitLimit() throws Exception {
+    StringBuffer big = new StringBuffer();
+    for (int i = 0; i < 1100000; i++)
+      big.append((char) ('a' + i % 26));
+    List<Object> rows = new ArrayList<Object>();
+    for (int i = 0; i < 1000; i++)
+      rows.add(list("row" + i, "value"));
+    checkRoundTrip(list(big.toString(), rows));
+  }
+
+  @Test
+  public void varintLengths() throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    BinaryListSerializer.writeLength(300, bytes);
+    assertEquals(2, bytes.size());
+    assertEquals((byte) 0xAC, bytes.toByteArray()[0]);
+    assertEquals((byte) 0x02, bytes.toByteArray()[1]);
+  }
+
+  @Test(expected = SlimError.class)
+  public void truncatedMessageIsAnError() throws Exception {
+    byte[] bytes = BinaryListSerializer.serialize(list("hello"));
+    byte[] truncated = new byte[bytes.length - 2];
+    System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+    BinaryListDeserializer.deserialize(truncated);
+  }
+
+  @Test(expected = SlimError.class)
+  public void messageLengthOverTheLimitIsAnErrorBeforeAnythingIsRead() throws Exception {
+    byte[] hugeLength = {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0x7F};
+    BinaryListDeserializer.readMessage(new StreamReader(new ByteArrayInputStream(hugeLength)));
+  }
+
+  @Test(expected = SlimError.class)
+  public void itemLengthOverflowingAnIntIsAnError() throws Exception {
+    byte[] bytes = {BinaryListSerializer.STRING, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0x7F};
+    BinaryListDeserializer.deserialize(bytes);
+  }
+}
@@ -72,6 +72,10 @@ public class ListDeserializer {
   private void deserializeItem() {
     int itemLength = getLength();
     String item = getString(itemLength);
+    if (!item.startsWith("[")) {
+      result.add(item);
+      return;
+    }
     try {
       List<Object> sublist = ListDeserializer.deserialize(item);
       result.add(sublist);
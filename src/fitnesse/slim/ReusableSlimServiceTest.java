@@ -0,0 +1,80 @@
+package fitnesse.slim;
+
+import static fitnesse.util.ListUtility.list;
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class ReusableSlimServiceTest {
+  private SlimService service;
+  private SlimClient slimClient;
+
+  @Before
+  public void setUp() throws Exception {
+    service = new SlimService(0, false, 60);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    service.close();
+  }
+
+  private Map<String, Object> invoke(List<Object> statements) throws Exception {
+    return invoke(statements, true);
+  }
+
+  private Map<String, Object> invoke(List<Object> statements, boolean binaryProtocolAllowed) throws Exception {
+    slimClient = new SlimClient("localhost", service.getPort());
+    slimClient.setBinaryProtocolAllowed(binaryProtocolAllowed);
+    slimClient.connect();
+    assertEquals(binaryProtocolAllowed, slimClient.isUsingBinaryProtocol());
+    Map<String, Object> results = slimClient.invokeAndGetResponse(statements);
+    slimClient.sendBye();
+    slimClient.close();
+    return results;
+  }
+
+  @Test
+  public void serviceOutlivesItsClients() throws Exception {
+    List<Object> statements = new ArrayList<Object>();
+    statements.add(list("i1", "import", "fitnesse.slim.test"));
+    statements.add(list("m1", "make", "testSlim", "TestSlim"));
+    statements.add(list("id", "call", "testSlim", "echoInt", "1"));
+    assertEquals("1", invoke(statements).get("id"));
+    assertEquals("1", invoke(statements).get("id"));
+  }
+
+  @Test
+  public void clientsMaySpeakEitherProtocol() throws Exception {
+    StringBuffer big = new StringBuffer();
+    for (int i = 0; i < 1000001; i++)
+      big.append('x');
+    List<Object> statements = new ArrayList<Object>();
+    statements.add(list("i1", "import", "fitnesse.slim.test"));
+    statements.add(list("m1", "make", "testSlim", "TestSlim"));
+    statements.add(list("id", "call", "testSlim", "echoString", "hello"));
+    assertEquals("hello", invoke(statements, false).get("id"));
+
+    statements.set(2, list("id", "call", "testSlim", "echoString", big.toString()));
+    assertEquals(big.toString(), invoke(statements, true).get("id"));
+  }
+
+  @Test
+  public void eachClientStartsWithNoInstances() throws Exception {
+    List<Object> statements = new ArrayList<Object>();
+    statements.add(list("i1", "import", "fitnesse.slim.test"));
+    statements.add(list("m1", "make", "testSlim", "TestSlim"));
+    invoke(statements);
+
+    statements.clear();
+    statements.add(list("id", "call", "testSlim", "echoInt", "1"));
+    String result = (String) invoke(statements).get("id");
+    assertTrue(result, result.indexOf("NO_INSTANCE testSlim") != -1);
+  }
+}
@@ -3,21 +3,29 @@ package fitnesse.slim;
 import fitnesse.util.ListUtility;
 import fitnesse.util.StreamReader;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.net.Socket;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class SlimClient {
+  private static final Pattern versionPattern = Pattern.compile("Slim -- V(\\d+(?:\\.\\d+)?).*");
   private Socket client;
   private StreamReader reader;
   private BufferedWriter writer;
+  private OutputStream output;
   private String slimServerVersion;
   private String hostName;
   private int port;
+  private boolean binaryProtocolAllowed = true;
+  private boolean binaryProtocol = false;
 
   public void close() throws Exception {
     reader.close();
@@ -30,6 +38,14 @@ public class SlimClient {
     this.hostName = hostName;
   }
 
+  public void setBinaryProtocolAllowed(boolean allowed) {
+    binaryProtocolAllowed = allowed;
+  }
+
+  public boolean isUsingBinaryProtocol() {
+    return binaryProtocol;
+  }
+
   public void connect() throws Exception {
     for (int tries = 0; tryConnect() == false; tries++) {
       if (tries > 100)
@@ -37,8 +53,21 @@ public class SlimClient {
       Thread.sleep(50);
     }
     reader = new StreamReader(client.getInputStream());
-    writer = new BufferedWriter(new OutputStreamWriter(client.getOutputStream()));
+    output = new BufferedOutputStream(client.getOutputStream());
+    writer = new BufferedWriter(new OutputStreamWriter(output));
     slimServerVersion = reader.readLine();
+    binaryProtocol = false;
+    if (binaryProtocolAllowed && serverSpeaksBinaryProtocol()) {
+      writeString(SlimServer.BINARY_PROTOCOL);
+      binaryProtocol = true;
+    }
+  }
+
+  // Servers from V0.1 on understand the binary protocol; older ones, and other Slim
+  // implementations, are spoken to in the original format.
+  private boolean serverSpeaksBinaryProtocol() {
+    Matcher matcher = versionPattern.matcher(slimServerVersion == null ? "" : slimServerVersion);
+    return matcher.matches() && Double.parseDouble(matcher.group(1)) >= 0.1;
   }
 
   private boolean tryConnect() {
@@ -59,6 +88,11 @@ public class SlimClient {
   }
 
   public Map<String, Object> invokeAndGetResponse(List<Object> statements) throws Exception {
+    if (binaryProtocol) {
+      BinaryListSerializer.writeMessage(statements, output);
+      Object results = BinaryListDeserializer.readMessage(reader);
+      return resultToMap(ListUtility.uncheckedCast(Object.class, results));
+    }
     String instructions = ListSerializer.serialize(statements);
     writeString(instructions);
     String resultLength = reader.read(6);
@@ -76,7 +110,10 @@ public class SlimClient {
   }
 
   public void sendBye() throws IOException {
-    writeString("bye");
+    if (binaryProtocol)
+      BinaryListSerializer.writeMessage("bye", output);
+    else
+      writeString("bye");
   }
 
   public static Map<String, Object> resultToMap(List<Object> slimResults) {
@@ -55,6 +55,16 @@ public class SlimInstanceCreationTest {
     assertException("message:<<COULD_NOT_INVOKE_CONSTRUCTOR fitnesse.slim.test.ClassWithNoPublicDefaultConstructor[0]>>", result);
   }
 
+  @Test
+  public void classNotFoundIsFoundOnceItsPathIsAdded() throws Exception {
+    String result = (String) caller.create("x", "TestSlim", new Object[0]);
+    assertException("message:<<COULD_NOT_INVOKE_CONSTRUCTOR TestSlim[0]>>", result);
+    caller.addPath("fitnesse.slim.test");
+    assertEquals("OK", caller.create("x", "TestSlim", new Object[0]));
+    assertEquals("OK", caller.create("y", "TestSlim", new Object[]{"3"}));
+    assertEquals("3", caller.call("y", "returnConstructorArg"));
+  }
+
   private void assertException(String message, String result) {
     assertTrue(result, result.indexOf(SlimServer.EXCEPTION_TAG) != -1 && result.indexOf(message) != -1);
   }
@@ -143,6 +143,22 @@ public class SlimMethodInvocationTest {
     assertTrue(resultString, resultString.indexOf("message:<<CANT_CONVERT_TO_DOUBLE_LIST>>") != -1);
   }
 
+  @Test
+  public void symbolsAreReplacedButNotInTheirOwnValues() throws Exception {
+    caller.setVariable("x", "1");
+    caller.setVariable("yy", "$x2");
+    assertEquals("1 $z $x2 $", caller.call("testSlim", "echoString", "$x $z $yy $"));
+  }
+
+  @Test
+  public void methodsWithTheSameNameAreToldApartByArgumentCount() throws Exception {
+    caller.call("testSlim", "oneInt", "4");
+    assertEquals("4", caller.call("testSlim", "getIntArg"));
+    assertEquals("7", caller.call("testSlim", "addTo", "3", "4"));
+    String response = (String) caller.call("testSlim", "addTo", "3");
+    assertTrue(response, response.indexOf("message:<<NO_METHOD_IN_CLASS addTo[1] fitnesse.slim.test.TestSlim.>>") != -1);
+  }
+
   @Test
   public void handleReturnNull() throws Exception {
     Object result = caller.call("testSlim", "nullString");
@@ -1,10 +1,13 @@
 package fitnesse.slim;
 
 import fitnesse.socketservice.SocketServer;
+import fitnesse.util.ListUtility;
 import fitnesse.util.StreamReader;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.net.Socket;
 import java.util.List;
@@ -12,25 +15,45 @@ import java.util.List;
 public class SlimServer implements SocketServer {
   private StreamReader reader;
   private BufferedWriter writer;
+  private OutputStream output;
+  private boolean binaryProtocol;
   private ListExecutor executor;
   public static final String EXCEPTION_TAG = "__EXCEPTION__:";
+  public static final String BINARY_PROTOCOL = "protocol binary";
   private boolean verbose;
+  private boolean reusable;
+  private SlimService service;
 
   public SlimServer() {
     this(false);
   }
 
   public SlimServer(boolean verbose) {
+    this(verbose, false);
+  }
+
+  // A reusable server keeps its service open after bye; every connection still starts
+  // with a fresh executor, so no instances or symbols survive from the previous client.
+  public SlimServer(boolean verbose, boolean reusable) {
     this.verbose = verbose;
+    this.reusable = reusable;
   }
 
-  public void serve(Socket s) {
+  // Several services can run in one JVM, as they do when a suite runs in parallel.
+  void setService(SlimService service) {
+    this.service = service;
+  }
+
+  // The streams and executor belong to the connection being served, so a reusable server
+  // serves its clients one after another.
+  public synchronized void serve(Socket s) {
     try {
       tryProcessInstructions(s);
     } catch (Throwable e) {
     } finally {
       close();
-      closeEnclosingServiceInSeperateThread();
+      if (!reusable)
+        closeEnclosingServiceInSeperateThread();
     }
   }
 
@@ -38,7 +61,7 @@ public class SlimServer implements SocketServer {
     new Thread(new Runnable() {
       public void run() {
         try {
-          SlimService.instance.close();
+          (service != null ? service : SlimService.instance).close();
         } catch (Exception e) {
         }
       }
@@ -50,13 +73,15 @@ public class SlimServer implements SocketServer {
     initialize(s);
     boolean more = true;
     while (more)
-      more = processOneSetOfInstructions();
+      more = binaryProtocol ? processOneBinaryMessage() : processOneSetOfInstructions();
   }
 
   private void initialize(Socket s) throws IOException {
     executor = new ListExecutor(verbose);
+    binaryProtocol = false;
     reader = new StreamReader(s.getInputStream());
-    writer = new BufferedWriter(new OutputStreamWriter(s.getOutputStream()));
+    output = new BufferedOutputStream(s.getOutputStream());
+    writer = new BufferedWriter(new OutputStreamWriter(output));
     writer.write(String.format("Slim -- %s\n", SlimVersion.VERSION));
     writer.flush();
   }
@@ -72,6 +97,9 @@ public class SlimServer implements SocketServer {
   private boolean processTheInstructions(String instructions) throws IOException {
     if (instructions.equalsIgnoreCase("bye")) {
       return false;
+    } else if (instructions.equals(BINARY_PROTOCOL)) {
+      binaryProtocol = true;
+      return true;
     } else {
       List<Object> results = executeInstructions(instructions);
       sendResultsToClient(results);
@@ -79,6 +107,18 @@ public class SlimServer implements SocketServer {
     }
   }
 
+  // Once the client has asked for it, every message both ways is in the binary format of
+  // BinaryListSerializer, which has no limit on the size of an instruction or result.
+  private boolean processOneBinaryMessage() throws Exception {
+    Object message = BinaryListDeserializer.readMessage(reader);
+    if (message instanceof List) {
+      List<Object> results = executor.execute(ListUtility.uncheckedCast(Object.class, message));
+      BinaryListSerializer.writeMessage(results, output);
+      return true;
+    }
+    return !"bye".equalsIgnoreCase(String.valueOf(message));
+  }
+
   private String getInstructionsFromClient() throws Exception {
     int instructionLength = Integer.parseInt(reader.read(6));
     reader.read(1);
@@ -9,19 +9,33 @@ public class SlimService extends SocketService {
   public static SlimService instance = null;
   public static boolean verbose;
   public static int port;
+  public static int idleSeconds;
+  public static final String PORT_ANNOUNCEMENT = "Slim service listening on port ";
 
+  // Port 0 lets the service pick any free port.  The port it then listens on is written
+  // to standard output, so that whoever started it knows where to connect.
   public static void main(String[] args) throws Exception {
-    if (parseCommandLine(args)) {
-      new SlimService(port, verbose);
-    } else {
-      System.err.println("Invalid command line arguments:" + Arrays.asList(args));
+    SlimService service = start(args);
+    if (service != null && port == 0) {
+      System.out.println(PORT_ANNOUNCEMENT + service.getPort());
+      System.out.flush();
     }
   }
 
+  public static SlimService start(String[] args) throws Exception {
+    if (parseCommandLine(args))
+      return new SlimService(port, verbose, idleSeconds);
+    System.err.println("Invalid command line arguments:" + Arrays.asList(args));
+    return null;
+  }
+
   static boolean parseCommandLine(String[] args) {
-    CommandLine commandLine = new CommandLine("[-v] port");
+    CommandLine commandLine = new CommandLine("[-v] [-r idleSeconds] port");
     if (commandLine.parse(args)) {
       verbose = commandLine.hasOption("v");
+      idleSeconds = 0;
+      if (commandLine.hasOption("r"))
+        idleSeconds = Integer.parseInt(commandLine.getOptionArgument("r", "idleSeconds"));
       String portString = commandLine.getArgument("port");
       port = Integer.parseInt(portString);
       return true;
@@ -34,7 +48,43 @@ public class SlimService extends SocketService {
   }
 
   public SlimService(int port, boolean verbose) throws Exception {
-    super(port, new SlimServer(verbose));
+    this(port, verbose, 0);
+  }
+
+  // With idleSeconds > 0 the service stays up after a client says bye, so it can be
+  // reused for the next test page, and closes itself once no client has been connected
+  // for that many seconds.
+  public SlimService(int port, boolean verbose, int idleSeconds) throws Exception {
+    this(port, new SlimServer(verbose, idleSeconds > 0), idleSeconds);
+  }
+
+  private SlimService(int port, SlimServer server, int idleSeconds) throws Exception {
+    super(port, server);
+    server.setService(this);
     instance = this;
+    if (idleSeconds > 0)
+      startIdleWatchdog(idleSeconds * 1000L);
+  }
+
+  private void startIdleWatchdog(final long idleMillis) {
+    Thread watchdog = new Thread(new Runnable() {
+      public void run() {
+        try {
+          long lastBusy = System.currentTimeMillis();
+          while (true) {
+            Thread.sleep(Math.min(idleMillis, 1000));
+            long now = System.currentTimeMillis();
+            if (getActiveConnections() > 0)
+              lastBusy = now;
+            else if (now - lastBusy >= idleMillis)
+              break;
+          }
+          close();
+        } catch (Exception e) {
+        }
+      }
+    }, "Slim idle watchdog");
+    watchdog.setDaemon(true);
+    watchdog.start();
   }
 }
@@ -1,5 +1,5 @@
 package fitnesse.slim;
 
 public class SlimVersion {
-  public static String VERSION = "V0.0";
+  public static String VERSION = "V0.1";
 }
@@ -17,9 +17,17 @@ import java.util.regex.Pattern;
  */
 
 public class StatementExecutor {
+  private static final Pattern symbolPattern = Pattern.compile("\\$([a-zA-Z]\\w*)");
+  private static final Map<Class<?>, Map<String, Method>> methodsByClass =
+    Collections.synchronizedMap(new HashMap<Class<?>, Map<String, Method>>());
+  private static final Map<Class<?>, Map<Integer, Constructor<?>>> constructorsByClass =
+    Collections.synchronizedMap(new HashMap<Class<?>, Map<Integer, Constructor<?>>>());
+  private static final Class<?> NO_CLASS = Void.class;
+
   private Map<String, Object> instances = new HashMap<String, Object>();
   private Map<String, Object> variables = new HashMap<String, Object>();
   private List<String> paths = new ArrayList<String>();
+  private Map<String, Class<?>> classesByName = new HashMap<String, Class<?>>();
 
   public StatementExecutor() {
     Slim.addConverter(void.class, new VoidConverter());
@@ -49,6 +57,7 @@ public class StatementExecutor {
 
   public Object addPath(String path) {
     paths.add(path);
+    classesByName.clear();
     return "OK";
   }
 
@@ -80,25 +89,35 @@ public class StatementExecutor {
 
   private Object createInstanceOfConstructor(String className, Object[] args) throws Exception {
     Class<?> k = searchPathsForClass(className);
-    Constructor<?> constructor = getConstructor(k.getConstructors(), args);
+    Constructor<?> constructor = getConstructor(k, args);
     if (constructor == null)
       throw new SlimError(String.format("message:<<NO_CONSTRUCTOR %s>>", className));
 
     return constructor.newInstance(convertArgs(args, constructor.getParameterTypes()));
   }
 
+  // Lookups are remembered, misses included, until the import paths change.
   private Class<?> searchPathsForClass(String className) {
+    Class<?> k = classesByName.get(className);
+    if (k == null) {
+      k = findClassOnPaths(className);
+      classesByName.put(className, k);
+    }
+    if (k == NO_CLASS)
+      throw new SlimError(String.format("message:<<NO_CLASS %s>>", className));
+    return k;
+  }
+
+  private Class<?> findClassOnPaths(String className) {
     Class<?> k = getClass(className);
     if (k != null)
       return k;
-    List<String> reversedPaths = new ArrayList<String>(paths);
-    Collections.reverse(reversedPaths);
-    for (String path : reversedPaths) {
-      k = getClass(path + "." + className);
+    for (int i = paths.size() - 1; i >= 0; i--) {
+      k = getClass(paths.get(i) + "." + className);
       if (k != null)
         return k;
     }
-    throw new SlimError(String.format("message:<<NO_CLASS %s>>", className));
+    return NO_CLASS;
   }
 
   private Class<?> getClass(String className) {
@@ -109,13 +128,18 @@ public class StatementExecutor {
     }
   }
 
-  private Constructor<?> getConstructor(Constructor<?>[] constructors, Object[] args) {
-    for (Constructor<?> constructor : constructors) {
-      Class<?> arguments[] = constructor.getParameterTypes();
-      if (arguments.length == args.length)
-        return constructor;
+  private Constructor<?> getConstructor(Class<?> k, Object[] args) {
+    Map<Integer, Constructor<?>> constructors = constructorsByClass.get(k);
+    if (constructors == null) {
+      constructors = new HashMap<Integer, Constructor<?>>();
+      for (Constructor<?> constructor : k.getConstructors()) {
+        Integer arity = constructor.getParameterTypes().length;
+        if (!constructors.containsKey(arity))
+          constructors.put(arity, constructor);
+      }
+      constructorsByClass.put(k, constructors);
     }
-    return null;
+    return constructors.get(args.length);
   }
 
   public Object call(String instanceName, String methodName, Object... args) {
@@ -158,15 +182,16 @@ public class StatementExecutor {
   }
 
   private Object replaceVariablesInString(String arg) {
-    Pattern symbolPattern = Pattern.compile("\\$([a-zA-Z]\\w*)");
+    if (arg == null || arg.indexOf('$') == -1)
+      return arg;
     int startingPosition = 0;
     while (true) {
-      Matcher symbolMatcher = symbolPattern.matcher(arg.substring(startingPosition));
-      if (symbolMatcher.find()) {
+      Matcher symbolMatcher = symbolPattern.matcher(arg);
+      if (symbolMatcher.find(startingPosition)) {
         String symbolName = symbolMatcher.group(1);
         if (variables.containsKey(symbolName))
           arg = arg.replace("$" + symbolName, (String) variables.get(symbolName));
-        startingPosition += symbolMatcher.start(1);
+        startingPosition = symbolMatcher.start(1);
       } else
         break;
     }
@@ -195,15 +220,27 @@ public class StatementExecutor {
   }
 
   private Method findMatchingMethod(String methodName, Class<? extends Object> k, int nArgs) {
-    Method methods[] = k.getMethods();
+    Method method = getMethods(k).get(methodName + "/" + nArgs);
+    if (method != null)
+      return method;
+    throw new SlimError(String.format("message:<<NO_METHOD_IN_CLASS %s[%d] %s.>>", methodName, nArgs, k.getName()));
+  }
 
-    for (Method method : methods) {
-      boolean hasMatchingName = method.getName().equals(methodName);
-      boolean hasMatchingArguments = method.getParameterTypes().length == nArgs;
-      if (hasMatchingName && hasMatchingArguments)
-        return method;
+  // The public methods of a class by name and number of arguments, indexed once per class.
+  // The first of several methods with the same name and arity wins, as it did when
+  // getMethods() was searched on every call.
+  private static Map<String, Method> getMethods(Class<?> k) {
+    Map<String, Method> methods = methodsByClass.get(k);
+    if (methods == null) {
+      methods = new HashMap<String, Method>();
+      for (Method method : k.getMethods()) {
+        String key = method.getName() + "/" + method.getParameterTypes().length;
+        if (!methods.containsKey(key))
+          methods.put(key, method);
+      }
+      methodsByClass.put(k, methods);
     }
-    throw new SlimError(String.format("message:<<NO_METHOD_IN_CLASS %s[%d] %s.>>", methodName, nArgs, k.getName()));
+    return methods;
   }
 
   private Object[] convertArgs(Method method, Object args[]) {
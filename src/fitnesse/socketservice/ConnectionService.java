@@ -0,0 +1,17 @@
+// Copyright (C) 2003,2004,2005 by Object Mentor, Inc. All rights reserved.
+// Released under the terms of the GNU General Public License version 2 or later.
+package fitnesse.socketservice;
+
+public interface ConnectionService {
+  public void close() throws Exception;
+
+  public int getActiveConnections();
+
+  public int getQueuedConnections();
+
+  public int getMaxThreads();
+
+  public long getAcceptedConnections();
+
+  public long getRejectedConnections();
+}
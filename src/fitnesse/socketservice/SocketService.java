@@ -5,17 +5,36 @@ package fitnesse.socketservice;
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
-import java.util.LinkedList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SocketService implements ConnectionService {
+  public static final int DEFAULT_MAX_THREADS = 100;
+  public static final int DEFAULT_MAX_QUEUED_CONNECTIONS = 100;
 
-public class SocketService {
   private ServerSocket serverSocket = null;
   private Thread serviceThread = null;
   private boolean running = false;
   private SocketServer server = null;
-  private LinkedList<Thread> threads = new LinkedList<Thread>();
+  private SocketServer rejectionServer = null;
+  private ThreadPoolExecutor executor;
+  private AtomicInteger activeConnections = new AtomicInteger();
+  private AtomicLong acceptedConnections = new AtomicLong();
+  private AtomicLong rejectedConnections = new AtomicLong();
 
   public SocketService(int port, SocketServer server) throws Exception {
+    this(port, server, DEFAULT_MAX_THREADS, DEFAULT_MAX_QUEUED_CONNECTIONS);
+  }
+
+  public SocketService(int port, SocketServer server, int maxThreads, int maxQueuedConnections) throws Exception {
     this.server = server;
+    executor = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+      new ArrayBlockingQueue<Runnable>(Math.max(1, maxQueuedConnections)));
+    executor.allowCoreThreadTimeOut(true);
     serverSocket = new ServerSocket(port);
     serviceThread = new Thread(
       new Runnable() {
@@ -27,6 +46,10 @@ public class SocketService {
     serviceThread.start();
   }
 
+  public void setRejectionServer(SocketServer rejectionServer) {
+    this.rejectionServer = rejectionServer;
+  }
+
   public void close() throws Exception {
     waitForServiceThreadToStart();
     running = false;
@@ -52,25 +75,56 @@ public class SocketService {
   }
 
   private void startServerThread(Socket s) {
-    Thread serverThread = new Thread(new ServerRunner(s));
-    synchronized (threads) {
-      threads.add(serverThread);
+    try {
+      executor.execute(new ServerRunner(s));
+      acceptedConnections.incrementAndGet();
+    }
+    catch (RejectedExecutionException e) {
+      rejectedConnections.incrementAndGet();
+      reject(s);
     }
-    serverThread.start();
   }
 
-  private void waitForServerThreads() throws InterruptedException {
-    while (threads.size() > 0) {
-      Thread t;
-      synchronized (threads) {
-        if (threads.size() < 1)
-          return;
-        t = threads.getFirst();
-      }
-      t.join();
+  private void reject(Socket s) {
+    try {
+      if (rejectionServer != null)
+        rejectionServer.serve(s);
+      s.close();
+    }
+    catch (Exception e) {
     }
   }
 
+  private void waitForServerThreads() throws InterruptedException {
+    executor.shutdown();
+    while (!executor.awaitTermination(1, TimeUnit.SECONDS))
+      ;
+  }
+
+  public int getPort() {
+    return serverSocket.getLocalPort();
+  }
+
+  public int getActiveConnections() {
+    return activeConnections.get();
+  }
+
+  public int getQueuedConnections() {
+    return executor.getQueue().size();
+  }
+
+  public int getMaxThreads() {
+    return executor.getMaximumPoolSize();
+  }
+
+  public long getAcceptedConnections() {
+    return acceptedConnections.get();
+  }
+
+  public long getRejectedConnections() {
+    return rejectedConnections.get();
+  }
+
   private class ServerRunner implements Runnable {
     private Socket socket;
 
@@ -79,14 +133,15 @@ public class SocketService {
     }
 
     public void run() {
+      activeConnections.incrementAndGet();
       try {
         server.serve(socket);
-        synchronized (threads) {
-          threads.remove(Thread.currentThread());
-        }
       }
       catch (Exception e) {
       }
+      finally {
+        activeConnections.decrementAndGet();
+      }
     }
   }
 
@@ -99,6 +99,47 @@ public class SocketServiceTest extends TestCase {
     assertEquals("MyMessage1", answer);
   }
 
+  public void testConnectionsBeyondThePoolAndQueueAreRejected() throws Exception {
+    final Object lock = new Object();
+    SocketServer blockingServer = new SocketServer() {
+      public void serve(Socket s) {
+        synchronized (lock) {
+          connections++;
+        }
+      }
+    };
+    ss = new SocketService(portNumber, blockingServer, 1, 1);
+    ss.setRejectionServer(new HelloService());
+    Socket rejected;
+    synchronized (lock) {
+      Socket busy = new Socket("localhost", portNumber);
+      waitForActiveConnections(1);
+      Socket queued = new Socket("localhost", portNumber);
+      waitForQueuedConnections(1);
+      rejected = new Socket("localhost", portNumber);
+      assertEquals("Hello", GetBufferedReader(rejected).readLine());
+      assertEquals(1, ss.getActiveConnections());
+      assertEquals(1, ss.getQueuedConnections());
+      busy.close();
+      queued.close();
+    }
+    rejected.close();
+    ss.close();
+    assertEquals(2, connections);
+    assertEquals(2, ss.getAcceptedConnections());
+    assertEquals(1, ss.getRejectedConnections());
+  }
+
+  private void waitForActiveConnections(int count) throws InterruptedException {
+    while (ss.getActiveConnections() < count)
+      Thread.sleep(10);
+  }
+
+  private void waitForQueuedConnections(int count) throws InterruptedException {
+    while (ss.getQueuedConnections() < count)
+      Thread.sleep(10);
+  }
+
   private void connect(int port) {
     try {
       Socket s = new Socket("localhost", port);
@@ -2,6 +2,7 @@
 // Released under the terms of the GNU General Public License version 2 or later.
 package fitnesse.testutil;
 
+import fitnesse.components.CapturedOutput;
 import fitnesse.components.CommandRunner;
 
 public class MockCommandRunner extends CommandRunner {
@@ -27,11 +28,15 @@ public class MockCommandRunner extends CommandRunner {
   }
 
   public void setOutput(String output) {
-    outputBuffer = new StringBuffer(output);
+    outputBuffer = new CapturedOutput(output);
+  }
+
+  public void setOutput(CapturedOutput output) {
+    outputBuffer = output;
   }
 
   public void setError(String error) {
-    errorBuffer = new StringBuffer(error);
+    errorBuffer = new CapturedOutput(error);
   }
 
   public void addException(Exception e) {
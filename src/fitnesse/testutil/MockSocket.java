@@ -6,12 +6,14 @@ import java.io.*;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
 
 public class MockSocket extends Socket {
   InputStream input;
   OutputStream output;
   private String host;
   private boolean closed;
+  private int soTimeout;
 
   public MockSocket() throws Exception {
     PipedInputStream serverInput = new PipedInputStream();
@@ -34,9 +36,19 @@ public class MockSocket extends Socket {
   }
 
   public InputStream getInputStream() {
+    if (input instanceof PipedInputStream)
+      return new TimedInputStream(input);
     return input;
   }
 
+  public void setSoTimeout(int timeout) {
+    soTimeout = timeout;
+  }
+
+  public int getSoTimeout() {
+    return soTimeout;
+  }
+
   public OutputStream getOutputStream() {
     return output;
   }
@@ -70,4 +82,35 @@ public class MockSocket extends Socket {
   public SocketAddress getRemoteSocketAddress() {
     return new InetSocketAddress(host, 123);
   }
+
+  // Piped streams block forever, so read timeouts are simulated by polling.
+  private class TimedInputStream extends FilterInputStream {
+    public TimedInputStream(InputStream input) {
+      super(input);
+    }
+
+    public int read() throws IOException {
+      waitForData();
+      return super.read();
+    }
+
+    public int read(byte[] b, int off, int len) throws IOException {
+      waitForData();
+      return super.read(b, off, len);
+    }
+
+    private void waitForData() throws IOException {
+      long deadline = System.currentTimeMillis() + soTimeout;
+      while (soTimeout > 0 && in.available() == 0) {
+        if (System.currentTimeMillis() > deadline)
+          throw new SocketTimeoutException("Read timed out");
+        try {
+          Thread.sleep(5);
+        }
+        catch (InterruptedException e) {
+          throw new InterruptedIOException();
+        }
+      }
+    }
+  }
 }
@@ -5,8 +5,10 @@ package fitnesse.wiki;
 import fitnesse.util.FileUtil;
 
 import java.io.File;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 public abstract class BaseWikiPage implements WikiPage {
   private static final long serialVersionUID = 1L;
@@ -14,6 +16,7 @@ public abstract class BaseWikiPage implements WikiPage {
   protected String name;
   protected WikiPage parent;
   protected WikiPage parentForVariables;
+  private transient Map<String, PageIndex> pageIndexes;
 
   protected BaseWikiPage(String name, WikiPage parent) {
     this.name = name;
@@ -24,6 +27,16 @@ public abstract class BaseWikiPage implements WikiPage {
     return name;
   }
 
+  PageIndex getPageIndex(String name) {
+    return pageIndexes == null ? null : pageIndexes.get(name);
+  }
+
+  void keepPageIndex(String name, PageIndex index) {
+    if (pageIndexes == null)
+      pageIndexes = new HashMap<String, PageIndex>();
+    pageIndexes.put(name, index);
+  }
+
   public PageCrawler getPageCrawler() {
     return new PageCrawlerImpl();
   }
@@ -44,8 +57,7 @@ public abstract class BaseWikiPage implements WikiPage {
 
   public List<WikiPage> getChildren() throws Exception {
     List<WikiPage> children = getNormalChildren();
-    WikiPageProperties props = getData().getProperties();
-    WikiPageProperty symLinksProperty = props.getProperty(SymbolicPage.PROPERTY_NAME);
+    WikiPageProperty symLinksProperty = getReadOnlyData().getProperty(SymbolicPage.PROPERTY_NAME);
     if (symLinksProperty != null) {
       for (Iterator<?> iterator = symLinksProperty.keySet().iterator(); iterator.hasNext();) {
         String linkName = (String) iterator.next();
@@ -54,6 +66,7 @@ public abstract class BaseWikiPage implements WikiPage {
           children.add(page);
       }
     }
+    RenderedHtmlCache.childrenListed(this, children);
     return children;
   }
 
@@ -98,7 +111,8 @@ public abstract class BaseWikiPage implements WikiPage {
   public WikiPage getChildPage(String name) throws Exception {
     WikiPage page = getNormalChildPage(name);
     if (page == null)
-      page = createSymbolicPage(getData().getProperties().getProperty(SymbolicPage.PROPERTY_NAME), name);
+      page = createSymbolicPage(getReadOnlyData().getProperty(SymbolicPage.PROPERTY_NAME), name);
+    RenderedHtmlCache.pageLookedUp(this, name, page);
     return page;
   }
 
@@ -138,8 +152,12 @@ public abstract class BaseWikiPage implements WikiPage {
     }
   }
 
+  public PageData getReadOnlyData() throws Exception {
+    return getData();
+  }
+
   public String getHelpText() throws Exception {
-    String helpText = getData().getAttribute(PageData.PropertyHELP);
+    String helpText = getReadOnlyData().getAttribute(PageData.PropertyHELP);
     return ((helpText == null) || (helpText.length() == 0)) ? null : helpText;
   }
 }
@@ -3,7 +3,6 @@
 
 package fitnesse.wiki;
 
-import java.lang.ref.SoftReference;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -15,8 +14,6 @@ public abstract class CachingPage extends CommitingPage {
   public static int cacheTime = 3000;
 
   protected Map<String, WikiPage> children = new HashMap<String, WikiPage>();
-  private transient SoftReference<PageData> cachedData;
-  private transient long cachedDataCreationTime = 0;
 
   public CachingPage(String name, WikiPage parent) throws Exception {
     super(name, parent);
@@ -34,6 +31,7 @@ public abstract class CachingPage extends CommitingPage {
   public WikiPage addChildPage(String name) throws Exception {
     WikiPage page = createChildPage(name);
     children.put(name, page);
+    RenderedHtmlCache.childChanged(this, name);
     return page;
   }
 
@@ -50,6 +48,7 @@ public abstract class CachingPage extends CommitingPage {
   public void removeChildPage(String name) throws Exception {
     if (hasCachedSubpage(name))
       children.remove(name);
+    RenderedHtmlCache.childChanged(this, name);
   }
 
   @Override
@@ -65,46 +64,47 @@ public abstract class CachingPage extends CommitingPage {
   }
 
   public PageData getData() throws Exception {
-    if (cachedDataExpired()) {
-      PageData data = makePageData();
-      setCachedData(data);
+    return new PageData(getCurrentData());
+  }
+
+  public PageData getReadOnlyData() throws Exception {
+    return getCurrentData();
+  }
+
+  private PageData getCurrentData() throws Exception {
+    PageDataCache cache = PageDataCache.getInstance();
+    Object stamp = getDataStamp();
+    PageData data = cache.get(this, stamp);
+    if (data == null) {
+      data = makePageData();
+      cache.put(this, data, stamp);
     }
-    return new PageData(getCachedData());
+    return data;
   }
 
-  private boolean cachedDataExpired() throws Exception {
-    long now = System.currentTimeMillis();
-    return getCachedData() == null || now >= cachedDataCreationTime + cacheTime;
+  // Pages that can cheaply tell whether their stored data changed return a value here that
+  // changes with it.  Without one, cached data expires cacheTime milliseconds after loading.
+  protected Object getDataStamp() throws Exception {
+    return null;
   }
 
   public void dumpExpiredCachedData() throws Exception {
-    if (cachedDataExpired())
-      clearCache();
+    PageDataCache.getInstance().removeIfStale(this, getDataStamp());
   }
 
   @Override
   public VersionInfo commit(PageData data) throws Exception {
     VersionInfo versionInfo = super.commit(data);
-    setCachedData(makePageData());
+    Object stamp = getDataStamp();
+    PageDataCache.getInstance().put(this, makePageData(), stamp);
     return versionInfo;
   }
 
-  private void setCachedData(PageData data) throws Exception {
-    if (cachedData != null)
-      cachedData.clear();
-    cachedData = new SoftReference<PageData>(data);
-    cachedDataCreationTime = System.currentTimeMillis();
-  }
-
   public PageData getCachedData() throws Exception {
-    if (cachedData != null)
-      return cachedData.get();
-    else
-      return null;
+    return PageDataCache.getInstance().peek(this);
   }
 
   public void clearCache() {
-    cachedData.clear();
-    cachedData = null;
+    PageDataCache.getInstance().remove(this);
   }
-}
\ No newline at end of file
+}
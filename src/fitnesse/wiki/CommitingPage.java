@@ -16,6 +16,8 @@ public abstract class CommitingPage extends ExtendableWikiPage {
   public VersionInfo commit(PageData data) throws Exception {
     VersionInfo previousVersion = makeVersion();
     doCommit(data);
+    PageIndex.pageCommitted(this, data);
+    RenderedHtmlCache.pageChanged(this);
     return previousVersion;
   }
 
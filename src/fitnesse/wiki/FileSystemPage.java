@@ -11,6 +11,7 @@ import fitnesse.util.FileUtil;
 import fitnesse.wikitext.widgets.WikiWordWidget;
 
 import java.io.*;
+import java.util.Collection;
 import java.util.Date;
 
 public class FileSystemPage extends CachingPage implements RevisionControllable {
@@ -41,6 +42,7 @@ public class FileSystemPage extends CachingPage implements RevisionControllable
     super.removeChildPage(name);
     final File fileToBeDeleted = new File(getFileSystemPath() + "/" + name);
     FileUtil.deleteFileSystemDirectory(fileToBeDeleted);
+    RenderedHtmlCache.childChanged(this, name);
   }
 
   @Override
@@ -199,10 +201,22 @@ public class FileSystemPage extends CachingPage implements RevisionControllable
     final PageData pagedata = new PageData(this);
     loadContent(pagedata);
     loadAttributes(pagedata);
-    pagedata.addVersions(this.revisioner.history(this));
+    pagedata.setVersionsLoader(new VersionsLoader() {
+      public Collection<VersionInfo> loadVersions() throws Exception {
+        return revisioner.history(FileSystemPage.this);
+      }
+    });
     return pagedata;
   }
 
+  @Override
+  protected Object getDataStamp() throws Exception {
+    final String path = getFileSystemPath();
+    final File content = new File(path + contentFilename);
+    final File properties = new File(path + propertiesFilename);
+    return content.lastModified() + ":" + content.length() + ":" + properties.lastModified() + ":" + properties.length() + ":" + new File(path).lastModified();
+  }
+
   public PageData getDataVersion(final String versionName) throws Exception {
     return this.revisioner.getRevisionData(this, versionName);
   }
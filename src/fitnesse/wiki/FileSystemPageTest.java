@@ -155,6 +155,21 @@ public class FileSystemPageTest extends TestCase {
     assertTrue(now.getTime() - lastModified.getTime() <= 1000);
   }
 
+  public void testUnchangedPageDataIsServedFromTheCache() throws Exception {
+    WikiPage page = crawler.addPage(root, PathParser.parse("PageOne"), "some content");
+    page.getData();
+    long hits = PageDataCache.getInstance().getHits();
+    assertEquals("some content", page.getData().getContent());
+    assertEquals(hits + 1, PageDataCache.getInstance().getHits());
+  }
+
+  public void testExternallyEditedContentIsReloadedImmediately() throws Exception {
+    FileSystemPage page = (FileSystemPage) crawler.addPage(root, PathParser.parse("PageOne"), "some content");
+    assertEquals("some content", page.getData().getContent());
+    FileUtil.createFile(page.getFileSystemPath() + FileSystemPage.contentFilename, "edited by hand");
+    assertEquals("edited by hand", page.getData().getContent());
+  }
+
   public void testUnicodeCharacters() throws Exception {
     WikiPage page = crawler.addPage(root, PathParser.parse("SomePage"), "\uba80\uba81\uba82\uba83");
     PageData data = page.getData();
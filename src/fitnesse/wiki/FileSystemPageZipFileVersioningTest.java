@@ -3,6 +3,7 @@
 package fitnesse.wiki;
 
 import static fitnesse.revisioncontrol.zip.ZipFileRevisionController.dateFormat;
+import fitnesse.revisioncontrol.zip.ZipFileRevisionController;
 import fitnesse.util.FileUtil;
 import junit.framework.TestCase;
 
@@ -54,6 +55,20 @@ public class FileSystemPageZipFileVersioningTest extends TestCase {
     assertTrue(versionNames.contains(firstVersion));
   }
 
+  public void testHistoryIsKeptUntilTheDirectoryChanges() throws Exception {
+    ZipFileRevisionController revisioner = new ZipFileRevisionController();
+    File dir = new File(page.getFileSystemPath());
+    dir.setLastModified(System.currentTimeMillis() - 60000);
+    Collection<VersionInfo> history = revisioner.history(page);
+    assertSame(history, revisioner.history(page));
+
+    new File(dir, "Joe-20031213000000.zip").createNewFile();
+    dir.setLastModified(System.currentTimeMillis() - 30000);
+    history = revisioner.history(page);
+    assertEquals(2, history.size());
+    assertTrue(history.contains(new VersionInfo("Joe-20031213000000")));
+  }
+
   public void testSubWikisDontInterfere() throws Exception {
     crawler.addPage(page, PathParser.parse("SubPage"), "sub page content");
     try {
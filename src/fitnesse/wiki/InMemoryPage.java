@@ -22,6 +22,7 @@ public class InMemoryPage extends CommitingPage {
   public WikiPage addChildPage(String name) throws Exception {
     WikiPage page = createChildPage(name);
     children.put(name, page);
+    RenderedHtmlCache.childChanged(this, name);
     return page;
   }
 
@@ -42,6 +43,7 @@ public class InMemoryPage extends CommitingPage {
 
   public void removeChildPage(String name) throws Exception {
     children.remove(name);
+    RenderedHtmlCache.childChanged(this, name);
   }
 
   public boolean hasChildPage(String pageName) {
@@ -46,10 +46,12 @@ public class PageCrawlerImpl implements PageCrawler {
 
   protected WikiPage getPageAfterDeadEnd(WikiPage context, String first, WikiPagePath rest) throws Exception {
     rest.addNameToFront(first);
-    if (deadEndStrategy != null)
-      return deadEndStrategy.getPageAfterDeadEnd(context, rest, this);
-    else
+    if (deadEndStrategy == null)
       return null;
+    WikiPage page = deadEndStrategy.getPageAfterDeadEnd(context, rest, this);
+    if (page != null)
+      RenderedHtmlCache.doNotCache();
+    return page;
   }
 
   public void setDeadEndStrategy(PageCrawlerDeadEndStrategy strategy) {
@@ -9,6 +9,10 @@ import fitnesse.wikitext.WidgetBuilder;
 import fitnesse.wikitext.WikiWidget;
 import fitnesse.wikitext.widgets.*;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamException;
 import java.io.Serializable;
 import java.util.*;
 
@@ -36,7 +40,13 @@ public class PageData implements Serializable {
   private WikiPageProperties properties = new WikiPageProperties();
   private Set<VersionInfo> versions;
   private ParentWidget variableRoot;
+  private transient VariableDefinitions variableDefinitions;
   private List<String> literals;
+  private transient boolean sharingProperties = false;
+  private transient boolean sharingVersions = false;
+  private transient boolean sharingVariableRoot = false;
+  private transient boolean readOnly = false;
+  private transient VersionsLoader versionsLoader;
 
   public PageData(WikiPage page) throws Exception {
     wikiPage = page;
@@ -49,13 +59,46 @@ public class PageData implements Serializable {
     setContent(content);
   }
 
+  // The copy shares its properties, versions and variables with the original until
+  // either of them is changed, so copying a page's data for reading costs next to nothing.
+  // Read-only data, which every thread reading the page shares, is only read here; data
+  // that is not read-only belongs to one thread, and is marked as sharing as well.
   public PageData(PageData data) throws Exception {
-    this(data.getWikiPage());
     wikiPage = data.wikiPage;
     content = data.content;
-    properties = new WikiPageProperties(data.properties);
-    versions.addAll(data.versions);
+    properties = data.properties;
+    versions = data.versions;
+    versionsLoader = data.versionsLoader;
     variableRoot = data.variableRoot;
+    variableDefinitions = data.readOnly ? data.variableDefinitions : data.getVariableDefinitions();
+    sharingProperties = true;
+    sharingVersions = true;
+    sharingVariableRoot = variableRoot != null;
+    if (!data.readOnly) {
+      data.sharingProperties = true;
+      data.sharingVersions = true;
+      data.sharingVariableRoot = sharingVariableRoot;
+    }
+  }
+
+  // Called once, by PageDataCache, before the data is handed to every thread that reads
+  // the page.  From then on nothing changes it: copies take their own parts as they
+  // change them, and the data itself can not be changed.
+  void makeReadOnly() {
+    variableDefinitions = getVariableDefinitions();
+    sharingProperties = true;
+    sharingVersions = true;
+    sharingVariableRoot = variableRoot != null;
+    readOnly = true;
+  }
+
+  public boolean isReadOnly() {
+    return readOnly;
+  }
+
+  private void checkWritable() {
+    if (readOnly)
+      throw new UnsupportedOperationException("Read-only page data can not be changed; change a copy from getData()");
   }
 
   public String getStringOfAllAttributes() {
@@ -103,23 +146,41 @@ public class PageData implements Serializable {
     }
   }
 
+  // The properties of read-only data must not be changed.
   public WikiPageProperties getProperties() throws Exception {
+    if (!readOnly)
+      ownProperties();
     return properties;
   }
 
+  private void ownProperties() throws Exception {
+    checkWritable();
+    if (sharingProperties) {
+      properties = new WikiPageProperties(properties);
+      sharingProperties = false;
+    }
+  }
+
+  public WikiPageProperty getProperty(String key) throws Exception {
+    return properties.getProperty(key);
+  }
+
   public String getAttribute(String key) throws Exception {
     return properties.get(key);
   }
 
   public void removeAttribute(String key) throws Exception {
+    ownProperties();
     properties.remove(key);
   }
 
   public void setAttribute(String key, String value) throws Exception {
+    ownProperties();
     properties.set(key, value);
   }
 
   public void setAttribute(String key) throws Exception {
+    ownProperties();
     properties.set(key);
   }
 
@@ -128,7 +189,9 @@ public class PageData implements Serializable {
   }
 
   public void setProperties(WikiPageProperties properties) {
+    checkWritable();
     this.properties = properties;
+    sharingProperties = false;
   }
 
   public String getContent() throws Exception {
@@ -136,41 +199,92 @@ public class PageData implements Serializable {
   }
 
   public void setContent(String content) {
+    checkWritable();
     this.content = content;
+    variableDefinitions = null;
   }
 
   public String getHtml() throws Exception {
-    return processHTMLWidgets(getContent(), wikiPage);
+    String content = getContent();
+    if (content == null)
+      return processHTMLWidgets(content, wikiPage);
+    RenderedHtmlCache cache = RenderedHtmlCache.getInstance();
+    String html = cache.get(wikiPage, content);
+    if (html == null) {
+      cache.startRendering(wikiPage);
+      try {
+        html = processHTMLWidgets(content, wikiPage);
+      } finally {
+        cache.finishRendering(wikiPage, content, html);
+      }
+    }
+    return html;
   }
 
   public String getHtml(WikiPage context) throws Exception {
     return processHTMLWidgets(getContent(), context);
   }
 
+  // Does not change this data unless variables were added to it, so it is also safe to
+  // call on data shared through WikiPage.getReadOnlyData().
   public String getVariable(String name) throws Exception {
-    initializeVariableRoot();
-    return variableRoot.getVariable(name);
+    ParentWidget root = variableRoot != null ? variableRoot : makeVariableRoot(literals);
+    return root.getVariable(name);
+  }
+
+  // The value this page itself defines for a variable, for a page whose literals are
+  // collected in the given list; safe to call on data shared through
+  // WikiPage.getReadOnlyData().
+  public String getVariable(String name, List<String> literals) throws Exception {
+    return getVariableDefinitions().get(this, name, literals);
+  }
+
+  private VariableDefinitions getVariableDefinitions() {
+    VariableDefinitions definitions = variableDefinitions;
+    if (definitions == null)
+      variableDefinitions = definitions = new VariableDefinitions();
+    return definitions;
   }
 
   public void setLiterals(List<String> literals) {
+    checkWritable();
     this.literals = literals;
+    if (sharingVariableRoot) {
+      variableRoot = null;
+      sharingVariableRoot = false;
+    }
   }
 
   private void initializeVariableRoot() throws Exception {
     if (variableRoot == null) {
-      variableRoot = new TextIgnoringWidgetRoot(getContent(), wikiPage, literals, variableDefinitionWidgetBuilder);
-      variableRoot.render();
+      variableRoot = makeVariableRoot(literals);
+      sharingVariableRoot = false;
     }
   }
 
+  private ParentWidget makeVariableRoot(List<String> literals) throws Exception {
+    WidgetRoot root = new WidgetRoot(null, wikiPage, variableDefinitionWidgetBuilder);
+    if (literals != null)
+      root.setLiterals(literals);
+    getVariableDefinitions().defineAll(this, root);
+    return root;
+  }
+
   public void addVariable(String name, String value) throws Exception {
+    checkWritable();
+    if (sharingVariableRoot) {
+      variableRoot = null;
+      sharingVariableRoot = false;
+    }
     initializeVariableRoot();
     variableRoot.addVariable(name, value);
   }
 
   private String processHTMLWidgets(String content, WikiPage context) throws Exception {
     ParentWidget root = new WidgetRoot(content, context, WidgetBuilder.htmlWidgetBuilder);
-    return root.render();
+    StringBuilder html = new StringBuilder(content == null ? 16 : content.length() * 2);
+    root.render(html);
+    return html.toString();
   }
 
   public void setWikiPage(WikiPage page) {
@@ -206,11 +320,63 @@ public class PageData implements Serializable {
     return values;
   }
 
-  public Set<VersionInfo> getVersions() {
+  // Read-only data lists its versions afresh each time rather than keep them.
+  public Set<VersionInfo> getVersions() throws Exception {
+    if (readOnly && versionsLoader != null) {
+      Set<VersionInfo> loadedVersions = new HashSet<VersionInfo>(versions);
+      loadedVersions.addAll(versionsLoader.loadVersions());
+      return loadedVersions;
+    }
+    loadVersions();
     return versions;
   }
 
   public void addVersions(Collection<VersionInfo> newVersions) {
+    checkWritable();
+    if (sharingVersions) {
+      versions = new HashSet<VersionInfo>(versions);
+      sharingVersions = false;
+    }
     versions.addAll(newVersions);
   }
+
+  // Most uses of a page never look at its versions, so listing them is put off until asked.
+  public void setVersionsLoader(VersionsLoader loader) {
+    checkWritable();
+    versionsLoader = loader;
+  }
+
+  private void loadVersions() throws Exception {
+    if (versionsLoader != null) {
+      Set<VersionInfo> loadedVersions = new HashSet<VersionInfo>(versions);
+      loadedVersions.addAll(versionsLoader.loadVersions());
+      versions = loadedVersions;
+      sharingVersions = false;
+      versionsLoader = null;
+    }
+  }
+
+  // Read-only data is written as a copy, which may load its versions.
+  private Object writeReplace() throws ObjectStreamException {
+    if (!readOnly)
+      return this;
+    try {
+      return new PageData(this);
+    } catch (Exception e) {
+      throw new InvalidObjectException(e.getMessage());
+    }
+  }
+
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    try {
+      loadVersions();
+    }
+    catch (IOException e) {
+      throw e;
+    }
+    catch (Exception e) {
+      throw new IOException(e.getMessage());
+    }
+    out.defaultWriteObject();
+  }
 }
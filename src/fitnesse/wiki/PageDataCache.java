@@ -0,0 +1,178 @@
+// Copyright (C) 2003,2004,2005 by Object Mentor, Inc. All rights reserved.
+// Released under the terms of the GNU General Public License version 2 or later.
+package fitnesse.wiki;
+
+import java.lang.ref.SoftReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// The PageData of every CachingPage, held in one least-recently-used cache bounded by
+// the approximate size of the cached content.  An entry is only trusted while the stamp
+// its page gave when the data was loaded still matches; pages that have no stamp to
+// give fall back on expiring their data after CachingPage.cacheTime.
+public class PageDataCache {
+  public static final long DEFAULT_CAPACITY = 64 * 1024 * 1024;
+  private static final int ENTRY_OVERHEAD = 1024;
+
+  private static PageDataCache instance = new PageDataCache(DEFAULT_CAPACITY);
+
+  private final LinkedHashMap<PageKey, Entry> entries = new LinkedHashMap<PageKey, Entry>(256, 0.75f, true);
+  private long capacity;
+  private long weight = 0;
+  private long hits = 0;
+  private long misses = 0;
+  private long evictions = 0;
+  private long invalidations = 0;
+
+  public PageDataCache(long capacity) {
+    this.capacity = capacity;
+  }
+
+  public static PageDataCache getInstance() {
+    return instance;
+  }
+
+  public synchronized PageData get(WikiPage page, Object stamp) {
+    PageKey key = new PageKey(page);
+    Entry entry = entries.get(key);
+    if (entry == null) {
+      misses++;
+      return null;
+    }
+    PageData data = entry.getData();
+    if (data == null || entry.isStale(stamp)) {
+      remove(key);
+      invalidations++;
+      misses++;
+      return null;
+    }
+    hits++;
+    return data;
+  }
+
+  public synchronized PageData peek(WikiPage page) {
+    Entry entry = entries.get(new PageKey(page));
+    return entry == null ? null : entry.getData();
+  }
+
+  // The data is made read-only, since every thread reading the page shares it from now on.
+  public synchronized void put(WikiPage page, PageData data, Object stamp) throws Exception {
+    data.makeReadOnly();
+    PageKey key = new PageKey(page);
+    remove(key);
+    Entry entry = new Entry(data, stamp);
+    entries.put(key, entry);
+    weight += entry.weight;
+    evictToCapacity();
+  }
+
+  public synchronized void remove(WikiPage page) {
+    remove(new PageKey(page));
+  }
+
+  public synchronized boolean removeIfStale(WikiPage page, Object stamp) {
+    PageKey key = new PageKey(page);
+    Entry entry = entries.get(key);
+    if (entry != null && (entry.getData() == null || entry.isStale(stamp))) {
+      remove(key);
+      invalidations++;
+      return true;
+    }
+    return false;
+  }
+
+  private void remove(PageKey key) {
+    Entry entry = entries.remove(key);
+    if (entry != null)
+      weight -= entry.weight;
+  }
+
+  private void evictToCapacity() {
+    Iterator<Map.Entry<PageKey, Entry>> eldest = entries.entrySet().iterator();
+    while (weight > capacity && eldest.hasNext()) {
+      weight -= eldest.next().getValue().weight;
+      eldest.remove();
+      evictions++;
+    }
+  }
+
+  public synchronized void clear() {
+    entries.clear();
+    weight = 0;
+  }
+
+  public synchronized void setCapacity(long capacity) {
+    this.capacity = capacity;
+    evictToCapacity();
+  }
+
+  public synchronized long getCapacity() {
+    return capacity;
+  }
+
+  public synchronized long getWeight() {
+    return weight;
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  public synchronized long getEvictions() {
+    return evictions;
+  }
+
+  public synchronized long getInvalidations() {
+    return invalidations;
+  }
+
+  // Pages compare equal by path, but pages from different roots must not share entries.
+  private static class PageKey {
+    private final WikiPage page;
+
+    PageKey(WikiPage page) {
+      this.page = page;
+    }
+
+    public boolean equals(Object o) {
+      return o instanceof PageKey && ((PageKey) o).page == page;
+    }
+
+    public int hashCode() {
+      return System.identityHashCode(page);
+    }
+  }
+
+  private static class Entry {
+    private final SoftReference<PageData> data;
+    private final Object stamp;
+    private final long creationTime = System.currentTimeMillis();
+    private final int weight;
+
+    Entry(PageData data, Object stamp) throws Exception {
+      this.data = new SoftReference<PageData>(data);
+      this.stamp = stamp;
+      String content = data.getContent();
+      weight = ENTRY_OVERHEAD + (content == null ? 0 : content.length() * 2);
+    }
+
+    PageData getData() {
+      return data.get();
+    }
+
+    boolean isStale(Object currentStamp) {
+      if (stamp == null || currentStamp == null)
+        return System.currentTimeMillis() >= creationTime + CachingPage.cacheTime;
+      return !stamp.equals(currentStamp);
+    }
+  }
+}
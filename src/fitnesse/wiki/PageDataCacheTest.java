@@ -0,0 +1,78 @@
+// Copyright (C) 2003,2004,2005 by Object Mentor, Inc. All rights reserved.
+// Released under the terms of the GNU General Public License version 2 or later.
+package fitnesse.wiki;
+
+import junit.framework.TestCase;
+
+public class PageDataCacheTest extends TestCase {
+  private PageDataCache cache;
+  private WikiPage root;
+  private WikiPage pageOne;
+  private WikiPage pageTwo;
+
+  public void setUp() throws Exception {
+    cache = new PageDataCache(PageDataCache.DEFAULT_CAPACITY);
+    root = InMemoryPage.makeRoot("RooT");
+    PageCrawler crawler = root.getPageCrawler();
+    pageOne = crawler.addPage(root, PathParser.parse("PageOne"), "page one");
+    pageTwo = crawler.addPage(root, PathParser.parse("PageTwo"), "page two");
+  }
+
+  public void testMissThenHit() throws Exception {
+    assertNull(cache.get(pageOne, "stamp"));
+    PageData data = new PageData(pageOne, "content");
+    cache.put(pageOne, data, "stamp");
+    assertSame(data, cache.get(pageOne, "stamp"));
+    assertEquals(1, cache.getHits());
+    assertEquals(1, cache.getMisses());
+  }
+
+  public void testChangedStampInvalidatesEntry() throws Exception {
+    cache.put(pageOne, new PageData(pageOne, "content"), "old stamp");
+    assertNull(cache.get(pageOne, "new stamp"));
+    assertEquals(1, cache.getInvalidations());
+    assertEquals(0, cache.size());
+  }
+
+  public void testEntriesWithoutStampExpireAfterCacheTime() throws Exception {
+    int oldCacheTime = CachingPage.cacheTime;
+    try {
+      CachingPage.cacheTime = 50;
+      cache.put(pageOne, new PageData(pageOne, "content"), null);
+      assertNotNull(cache.get(pageOne, null));
+      Thread.sleep(100);
+      assertNull(cache.get(pageOne, null));
+    } finally {
+      CachingPage.cacheTime = oldCacheTime;
+    }
+  }
+
+  public void testPagesWithTheSamePathInDifferentRootsDoNotShareEntries() throws Exception {
+    WikiPage otherRoot = InMemoryPage.makeRoot("RooT");
+    WikiPage otherPageOne = otherRoot.getPageCrawler().addPage(otherRoot, PathParser.parse("PageOne"), "other");
+    cache.put(pageOne, new PageData(pageOne, "content"), "stamp");
+    assertNull(cache.get(otherPageOne, "stamp"));
+  }
+
+  public void testLeastRecentlyUsedEntriesAreEvictedWhenFull() throws Exception {
+    cache.setCapacity(3000);
+    cache.put(pageOne, new PageData(pageOne, "content"), "stamp");
+    cache.put(pageTwo, new PageData(pageTwo, "content"), "stamp");
+    cache.get(pageOne, "stamp");
+    cache.put(root, new PageData(root, "content"), "stamp");
+
+    assertEquals(2, cache.size());
+    assertEquals(1, cache.getEvictions());
+    assertNotNull(cache.peek(pageOne));
+    assertNull(cache.peek(pageTwo));
+    assertNotNull(cache.peek(root));
+  }
+
+  public void testLargeContentWeighsMore() throws Exception {
+    StringBuffer content = new StringBuffer();
+    for (int i = 0; i < 1000; i++)
+      content.append("some content ");
+    cache.put(pageOne, new PageData(pageOne, content.toString()), "stamp");
+    assertTrue(cache.getWeight() > content.length() * 2);
+  }
+}
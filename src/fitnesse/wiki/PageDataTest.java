@@ -4,7 +4,12 @@ package fitnesse.wiki;
 
 import fitnesse.responders.run.SuiteResponder;
 import fitnesse.testutil.RegexTestCase;
+import fitnesse.testutil.SimpleCachinePage;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 
 public class PageDataTest extends RegexTestCase {
@@ -42,6 +47,12 @@ public class PageDataTest extends RegexTestCase {
     assertEquals("&lt;b&gt;", html);
   }
 
+  public void testPageWithoutContentRendersAsEmpty() throws Exception {
+    PageData d = new PageData(new WikiPageDummy());
+    assertEquals("", d.getHtml());
+    assertEquals("", d.getHtml(page));
+  }
+
   public void testLiteral() throws Exception {
     WikiPage root = InMemoryPage.makeRoot("RooT");
     WikiPage page = crawler.addPage(root, PathParser.parse("LiteralPage"), "!-literal-!");
@@ -91,6 +102,35 @@ public class PageDataTest extends RegexTestCase {
     assertHasRegexp("undefined variable", renderedContent);
   }
 
+  public void testParentVariableFollowsCommitsOfTheParent() throws Exception {
+    WikiPage parent = crawler.addPage(root, PathParser.parse("ParentPage"), "!define SOMEVAR {one}\n");
+    WikiPage child = crawler.addPage(parent, PathParser.parse("ChildPage"), "${SOMEVAR}\n");
+    assertEquals("one", child.getData().getVariable("SOMEVAR"));
+
+    PageData data = parent.getData();
+    data.setContent("!define SOMEVAR {two}\n");
+    parent.commit(data);
+    assertEquals("two", child.getData().getVariable("SOMEVAR"));
+  }
+
+  public void testLiteralsInParentVariables() throws Exception {
+    WikiPage parent = crawler.addPage(root, PathParser.parse("ParentPage"), "!-first-!\n!define SOMEVAR {!-second-!}\n");
+    WikiPage child = crawler.addPage(parent, PathParser.parse("ChildPage"), "!-mine-! ${SOMEVAR} ${SOMEVAR}\n");
+    assertHasRegexp("mine second second", child.getData().getHtml());
+    assertHasRegexp("mine second second", child.getData().getHtml(child));
+  }
+
+  public void testVariableDefinitionsAreSharedWithCopies() throws Exception {
+    PageData data = new PageData(page, "!define x {1}\n");
+    PageData copy = new PageData(data);
+    assertEquals("1", data.getVariable("x"));
+    assertEquals("1", copy.getVariable("x"));
+
+    copy.setContent("!define x {2}\n");
+    assertEquals("2", copy.getVariable("x", new ArrayList<String>()));
+    assertEquals("1", data.getVariable("x", new ArrayList<String>()));
+  }
+
   public void testGetFixtureNames() throws Exception {
     WikiPage root = InMemoryPage.makeRoot("RooT");
     WikiPage page = crawler.addPage(root, PathParser.parse("PageName"), "!fixture FixtureOne\r\nNot.A.Fixture\r\n!fixture FixtureTwo\n\n!fixture FixtureThree");
@@ -156,4 +196,79 @@ public class PageDataTest extends RegexTestCase {
 
     assertEquals("Joe", data.getAttribute(WikiPage.LAST_MODIFYING_USER));
   }
+
+  public void testCopyDoesNotChangeTheOriginalThroughItsProperties() throws Exception {
+    PageData data = root.getData();
+    PageData newData = new PageData(data);
+    newData.getProperties().set("Suite");
+    data.removeAttribute("Edit");
+
+    assertFalse(data.hasAttribute("Suite"));
+    assertTrue(newData.hasAttribute("Suite"));
+    assertTrue(newData.hasAttribute("Edit"));
+  }
+
+  public void testCopyDoesNotChangeTheOriginalsVersions() throws Exception {
+    PageData data = new PageData(page);
+    PageData newData = new PageData(data);
+    newData.addVersions(Collections.singleton(new VersionInfo("v1", "Joe", new Date())));
+
+    assertEquals(0, data.getVersions().size());
+    assertEquals(1, newData.getVersions().size());
+  }
+
+  public void testCopyDoesNotShareAddedVariables() throws Exception {
+    PageData data = new PageData(page, "!define x {1}\n");
+    assertEquals("1", data.getVariable("x"));
+    PageData newData = new PageData(data);
+    newData.addVariable("y", "2");
+
+    assertEquals("1", newData.getVariable("x"));
+    assertEquals("2", newData.getVariable("y"));
+    assertNull(data.getVariable("y"));
+  }
+
+  public void testVersionsAreLoadedOnlyWhenAskedFor() throws Exception {
+    final int[] loads = new int[1];
+    PageData data = new PageData(page);
+    data.setVersionsLoader(new VersionsLoader() {
+      public Collection<VersionInfo> loadVersions() throws Exception {
+        loads[0]++;
+        return Collections.singleton(new VersionInfo("v1", "Joe", new Date()));
+      }
+    });
+    data.getContent();
+    assertEquals(0, loads[0]);
+
+    assertEquals(1, data.getVersions().size());
+    data.getVersions();
+    assertEquals(1, loads[0]);
+  }
+
+  public void testReadOnlyDataOfCachingPageIsShared() throws Exception {
+    CachingPage cachingPage = new SimpleCachinePage("RooT", null);
+    assertSame(cachingPage.getReadOnlyData(), cachingPage.getReadOnlyData());
+    assertNotSame(cachingPage.getReadOnlyData(), cachingPage.getData());
+  }
+
+  public void testReadOnlyDataIsNotChangedByReadingOrCopyingIt() throws Exception {
+    CachingPage cachingPage = new SimpleCachinePage("RooT", null);
+    PageData shared = cachingPage.getReadOnlyData();
+    assertTrue(shared.isReadOnly());
+    WikiPageProperties properties = shared.getProperties();
+    assertSame(properties, shared.getProperties());
+
+    PageData copy = cachingPage.getData();
+    assertFalse(copy.isReadOnly());
+    copy.setAttribute("Suite");
+    assertTrue(copy.hasAttribute("Suite"));
+    assertFalse(shared.hasAttribute("Suite"));
+    assertSame(properties, shared.getProperties());
+
+    try {
+      shared.setAttribute("Suite");
+      fail("read-only data should not be changed");
+    } catch (UnsupportedOperationException e) {
+    }
+  }
 }
@@ -0,0 +1,291 @@
+// Copyright (C) 2003,2004,2005 by Object Mentor, Inc. All rights reserved.
+// Released under the terms of the GNU General Public License version 2 or later.
+package fitnesse.wiki;
+
+import fitnesse.components.FitNesseTraversalListener;
+import fitnesse.wikitext.widgets.WikiWordWidget;
+
+import java.io.*;
+import java.util.*;
+
+// Something worth knowing about every page of one wiki, kept so that nobody has to read
+// every page to find it out.  An index is built by reading the whole wiki once and is then
+// kept up to date as pages are committed.  A wiki on disk keeps its indexes in the
+// pageIndexes directory of the root: each one's file as of the last time it was saved, and
+// a log of the pages committed since, which are read again when the index is next loaded.
+// The directory is not a page, so the files stay out of the root page's versions and do
+// not touch the root page's own directory when they change.
+//
+// Pages can also change on disk without being committed here, when they are updated from
+// version control for instance.  So the index remembers the modification time and length
+// of each page's content.txt as it was when the page was indexed, and before the index is
+// trusted, pages whose files no longer match are indexed again.  Since that means looking
+// at every page on disk, a search only does it once every refreshIntervalMillis.
+//
+// The index is kept by the root page it was built for.  Roots that cannot keep one get an
+// index built afresh every time.  Indexes are loaded one at a time, but without holding up
+// commits, which only wait for the index they update.
+public abstract class PageIndex {
+  public static final String DIRECTORY_NAME = "pageIndexes";
+  private static final String[] NAMES = {SearchIndex.NAME, ReferenceIndex.NAME};
+  protected static final Object loading = new Object();
+  static int maxLoggedPages = 1000;
+  static long refreshIntervalMillis = 5000;
+
+  protected final WikiPage root;
+  private final String name;
+  private final File directory;
+  private final File indexFile;
+  private final File logFile;
+  private final Map<String, String> stamps = new HashMap<String, String>();
+  private int loggedPages = 0;
+  private long lastRefresh = 0;
+
+  protected PageIndex(WikiPage root, String name) throws Exception {
+    this.root = root;
+    this.name = name;
+    if (root instanceof FileSystemPage) {
+      directory = new File(((FileSystemPage) root).getFileSystemPath());
+      indexFile = new File(indexDirectoryOf(root), name + ".dat");
+      logFile = new File(indexDirectoryOf(root), name + ".log");
+    } else {
+      directory = null;
+      indexFile = null;
+      logFile = null;
+    }
+  }
+
+  protected static PageIndex getLoadedIndex(WikiPage root, String name) {
+    synchronized (PageIndex.class) {
+      return root instanceof BaseWikiPage ? ((BaseWikiPage) root).getPageIndex(name) : null;
+    }
+  }
+
+  // Called for every commit.  An index that is not loaded only needs to hear about the
+  // page when it has a log to read it back from.
+  public static void pageCommitted(WikiPage page, PageData data) throws Exception {
+    PageCrawler crawler = page.getPageCrawler();
+    WikiPage root = crawler.getRoot(page);
+    String path = PathParser.render(crawler.getFullPath(page));
+    for (String name : NAMES) {
+      PageIndex index = getLoadedIndex(root, name);
+      if (index != null)
+        index.update(path, data.getContent());
+      else if (root instanceof FileSystemPage) {
+        File directory = indexDirectoryOf(root);
+        if (new File(directory, name + ".dat").exists())
+          appendToLog(new File(directory, name + ".log"), path);
+      }
+    }
+  }
+
+  private static File indexDirectoryOf(WikiPage root) throws Exception {
+    return new File(((FileSystemPage) root).getFileSystemPath(), DIRECTORY_NAME);
+  }
+
+  // Pages committed while the index is loaded are not in it yet, but their stamps no longer
+  // match once it is kept, so the refresh that follows picks them up.
+  protected void load() throws Exception {
+    if (indexFile != null && indexFile.exists() && read())
+      readLoggedPages();
+    else
+      rebuild();
+    synchronized (PageIndex.class) {
+      if (root instanceof BaseWikiPage)
+        ((BaseWikiPage) root).keepPageIndex(name, this);
+    }
+    refresh();
+  }
+
+  public synchronized void rebuild() throws Exception {
+    clear();
+    stamps.clear();
+    final PageCrawler crawler = root.getPageCrawler();
+    crawler.traverse(root, new FitNesseTraversalListener() {
+      public void processPage(WikiPage page) throws Exception {
+        String path = PathParser.render(crawler.getFullPath(page));
+        String stamp = stampOf(path);
+        add(path, page.getData().getContent());
+        keepStamp(path, stamp);
+      }
+
+      public String getSearchPattern() throws Exception {
+        return "";
+      }
+    });
+    save();
+  }
+
+  public synchronized void update(String path, String content) throws Exception {
+    remove(path);
+    add(path, content);
+    keepStamp(path, stampOf(path));
+    logUpdate(path);
+  }
+
+  private void logUpdate(String path) throws Exception {
+    if (logFile != null) {
+      appendToLog(logFile, path);
+      if (++loggedPages > maxLoggedPages)
+        save();
+    }
+  }
+
+  // Indexes again the pages whose content.txt changed since they were indexed, and forgets
+  // the pages that are gone.
+  protected synchronized void refresh() throws Exception {
+    if (directory == null)
+      return;
+    lastRefresh = System.currentTimeMillis();
+    Map<String, String> pagesOnDisk = new HashMap<String, String>();
+    findPagesOnDisk(directory, "", pagesOnDisk);
+    for (String path : new ArrayList<String>(stamps.keySet())) {
+      if (!pagesOnDisk.containsKey(path)) {
+        forget(path);
+        logUpdate(path);
+      }
+    }
+    for (Map.Entry<String, String> page : pagesOnDisk.entrySet()) {
+      if (!page.getValue().equals(stamps.get(page.getKey()))) {
+        reindex(page.getKey());
+        logUpdate(page.getKey());
+      }
+    }
+  }
+
+  protected synchronized void refreshIfDue() throws Exception {
+    if (System.currentTimeMillis() - lastRefresh >= refreshIntervalMillis)
+      refresh();
+  }
+
+  private static void findPagesOnDisk(File pageDirectory, String path, Map<String, String> pages) {
+    pages.put(path, stampOf(pageDirectory));
+    String[] files = pageDirectory.list();
+    if (files == null)
+      return;
+    for (String file : files) {
+      File childDirectory = new File(pageDirectory, file);
+      if (WikiWordWidget.isWikiWord(file) && childDirectory.isDirectory())
+        findPagesOnDisk(childDirectory, "".equals(path) ? file : path + "." + file, pages);
+    }
+  }
+
+  private String stampOf(String path) {
+    if (directory == null)
+      return null;
+    return stampOf("".equals(path) ? directory : new File(directory, path.replace('.', '/')));
+  }
+
+  private static String stampOf(File pageDirectory) {
+    File content = new File(pageDirectory, "content.txt");
+    return content.lastModified() + ":" + content.length();
+  }
+
+  private synchronized void keepStamp(String path, String stamp) {
+    if (stamp != null)
+      stamps.put(path, stamp);
+  }
+
+  private synchronized void forget(String path) {
+    remove(path);
+    stamps.remove(path);
+  }
+
+  private synchronized void reindex(String path) throws Exception {
+    String stamp = stampOf(path);
+    remove(path);
+    WikiPage page = getPage(path);
+    if (page != null) {
+      add(path, page.getData().getContent());
+      keepStamp(path, stamp);
+    }
+  }
+
+  protected WikiPage getPage(String path) throws Exception {
+    WikiPage page = root.getPageCrawler().getPage(root, PathParser.parse(path));
+    if (page == null)
+      forget(path);
+    return page;
+  }
+
+  public abstract int getPageCount();
+
+  public abstract void remove(String path);
+
+  protected abstract void clear();
+
+  protected abstract void add(String path, String content) throws Exception;
+
+  protected abstract void writePages(DataOutputStream output) throws IOException;
+
+  // False when the file was written in a format this index no longer reads.
+  protected abstract boolean readPages(DataInputStream input) throws IOException;
+
+  private synchronized void save() throws Exception {
+    loggedPages = 0;
+    if (indexFile == null)
+      return;
+    indexFile.getParentFile().mkdirs();
+    File newIndexFile = new File(indexFile.getPath() + ".new");
+    DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(newIndexFile)));
+    try {
+      writePages(output);
+      output.writeInt(stamps.size());
+      for (Map.Entry<String, String> stamp : stamps.entrySet()) {
+        output.writeUTF(stamp.getKey());
+        output.writeUTF(stamp.getValue());
+      }
+    } finally {
+      output.close();
+    }
+    indexFile.delete();
+    if (!newIndexFile.renameTo(indexFile))
+      throw new IOException("Could not replace " + indexFile);
+    logFile.delete();
+  }
+
+  private boolean read() throws Exception {
+    DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+    try {
+      if (readPages(input)) {
+        int stampCount = input.readInt();
+        for (int i = 0; i < stampCount; i++)
+          stamps.put(input.readUTF(), input.readUTF());
+        return true;
+      }
+    } catch (IOException e) {
+    } finally {
+      input.close();
+    }
+    clear();
+    stamps.clear();
+    return false;
+  }
+
+  private void readLoggedPages() throws Exception {
+    if (!logFile.exists())
+      return;
+    Set<String> paths = new LinkedHashSet<String>();
+    BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(logFile), "UTF-8"));
+    try {
+      String line;
+      while ((line = reader.readLine()) != null)
+        paths.add(line);
+    } finally {
+      reader.close();
+    }
+
+    for (String path : paths)
+      reindex(path);
+    save();
+  }
+
+  private static void appendToLog(File logFile, String path) throws IOException {
+    Writer writer = new OutputStreamWriter(new FileOutputStream(logFile, true), "UTF-8");
+    try {
+      writer.write(path + "\n");
+    } finally {
+      writer.close();
+    }
+  }
+}
@@ -0,0 +1,164 @@
+// Copyright (C) 2003,2004,2005 by Object Mentor, Inc. All rights reserved.
+// Released under the terms of the GNU General Public License version 2 or later.
+package fitnesse.wiki;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.*;
+import java.util.regex.Pattern;
+
+// The page names each page of one wiki mentions, and the pages that mention each name.
+// A page can only refer to another by naming it, or by a relative reference made from
+// within it, so these are the only pages worth parsing to see whether they really refer
+// to a page.
+public class ReferenceIndex extends PageIndex {
+  public static final String NAME = "referenceIndex";
+  private static final int FORMAT_VERSION = 2;
+  private static final Pattern pageName = Pattern.compile("[A-Z](?:[a-z0-9]+[A-Z][a-z0-9]*)+");
+
+  private final SortedMap<String, Set<String>> namesByPage = new TreeMap<String, Set<String>>();
+  private final Map<String, Set<String>> pagesByName = new HashMap<String, Set<String>>();
+
+  public static ReferenceIndex getInstance(WikiPage root) throws Exception {
+    ReferenceIndex index = (ReferenceIndex) getLoadedIndex(root, NAME);
+    if (index != null)
+      return index;
+    synchronized (loading) {
+      index = (ReferenceIndex) getLoadedIndex(root, NAME);
+      if (index == null) {
+        index = new ReferenceIndex(root);
+        index.load();
+      }
+      return index;
+    }
+  }
+
+  private ReferenceIndex(WikiPage root) throws Exception {
+    super(root, NAME);
+  }
+
+  static Set<String> pageNames(String content) {
+    Set<String> names = new HashSet<String>();
+    int start = -1;
+    for (int i = 0; i <= content.length(); i++) {
+      boolean inName = i < content.length() && isNameCharacter(content.charAt(i));
+      if (inName && start < 0)
+        start = i;
+      else if (!inName && start >= 0) {
+        String name = content.substring(start, i);
+        if (pageName.matcher(name).matches())
+          names.add(name);
+        start = -1;
+      }
+    }
+    return names;
+  }
+
+  private static boolean isNameCharacter(char c) {
+    return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9');
+  }
+
+  // The pages within the scope page, itself included, that name the subject or are
+  // within it, in the order of their paths.
+  public List<WikiPage> findPagesThatMayReference(WikiPage scope, WikiPage subject) throws Exception {
+    PageCrawler crawler = subject.getPageCrawler();
+    String scopePath = PathParser.render(crawler.getFullPath(scope));
+    String subjectPath = PathParser.render(crawler.getFullPath(subject));
+    SortedSet<String> paths = new TreeSet<String>();
+    refresh();
+    synchronized (this) {
+      Set<String> naming = pagesByName.get(subject.getName());
+      if (naming != null)
+        paths.addAll(naming);
+      paths.addAll(pagesWithin(subjectPath));
+    }
+
+    List<WikiPage> pages = new ArrayList<WikiPage>();
+    for (String path : paths) {
+      if (isWithin(path, scopePath)) {
+        WikiPage page = getPage(path);
+        if (page != null)
+          pages.add(page);
+      }
+    }
+    return pages;
+  }
+
+  private Collection<String> pagesWithin(String path) {
+    if ("".equals(path))
+      return namesByPage.keySet();
+    List<String> paths = new ArrayList<String>();
+    if (namesByPage.containsKey(path))
+      paths.add(path);
+    paths.addAll(namesByPage.subMap(path + ".", path + "/").keySet());
+    return paths;
+  }
+
+  private static boolean isWithin(String path, String ancestorPath) {
+    return "".equals(ancestorPath) || path.equals(ancestorPath) || path.startsWith(ancestorPath + ".");
+  }
+
+  public synchronized int getPageCount() {
+    return namesByPage.size();
+  }
+
+  public synchronized void remove(String path) {
+    Set<String> names = namesByPage.remove(path);
+    if (names == null)
+      return;
+    for (String name : names) {
+      Set<String> pages = pagesByName.get(name);
+      pages.remove(path);
+      if (pages.isEmpty())
+        pagesByName.remove(name);
+    }
+  }
+
+  protected synchronized void clear() {
+    namesByPage.clear();
+    pagesByName.clear();
+  }
+
+  protected synchronized void add(String path, String content) {
+    add(path, pageNames(content));
+  }
+
+  private void add(String path, Set<String> names) {
+    namesByPage.put(path, names);
+    for (String name : names) {
+      Set<String> pages = pagesByName.get(name);
+      if (pages == null) {
+        pages = new HashSet<String>();
+        pagesByName.put(name, pages);
+      }
+      pages.add(path);
+    }
+  }
+
+  protected void writePages(DataOutputStream output) throws IOException {
+    output.writeInt(FORMAT_VERSION);
+    output.writeInt(namesByPage.size());
+    for (Map.Entry<String, Set<String>> page : namesByPage.entrySet()) {
+      output.writeUTF(page.getKey());
+      output.writeInt(page.getValue().size());
+      for (String name : page.getValue())
+        output.writeUTF(name);
+    }
+  }
+
+  protected boolean readPages(DataInputStream input) throws IOException {
+    if (input.readInt() != FORMAT_VERSION)
+      return false;
+    int pageCount = input.readInt();
+    for (int i = 0; i < pageCount; i++) {
+      String path = input.readUTF();
+      Set<String> names = new HashSet<String>();
+      int nameCount = input.readInt();
+      for (int j = 0; j < nameCount; j++)
+        names.add(input.readUTF());
+      add(path, names);
+    }
+    return true;
+  }
+}
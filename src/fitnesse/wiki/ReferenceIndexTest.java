@@ -0,0 +1,82 @@
+// Copyright (C) 2003,2004,2005 by Object Mentor, Inc. All rights reserved.
+// Released under the terms of the GNU General Public License version 2 or later.
+package fitnesse.wiki;
+
+import fitnesse.revisioncontrol.NullRevisionController;
+import fitnesse.util.FileUtil;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+public class ReferenceIndexTest extends TestCase {
+  private static final String defaultPath = "./teststorage";
+  private WikiPage root;
+  private PageCrawler crawler;
+  private WikiPage pageOne;
+
+  public void setUp() throws Exception {
+    root = InMemoryPage.makeRoot("RooT");
+    crawler = root.getPageCrawler();
+    pageOne = crawler.addPage(root, PathParser.parse("PageOne"), "nothing to see");
+    crawler.addPage(root, PathParser.parse("PageOne.ChildPage"), "sibling of >GrandChild");
+    crawler.addPage(root, PathParser.parse("PageTwo"), "see .PageOne.ChildPage");
+    crawler.addPage(root, PathParser.parse("PageThree"), "see PageTwo");
+  }
+
+  public void tearDown() throws Exception {
+    FileUtil.deleteFileSystemDirectory(defaultPath);
+  }
+
+  private String findPagesThatMayReference(WikiPage scope, WikiPage subject) throws Exception {
+    List<String> paths = new ArrayList<String>();
+    for (WikiPage page : ReferenceIndex.getInstance(root).findPagesThatMayReference(scope, subject))
+      paths.add(PathParser.render(crawler.getFullPath(page)));
+    return paths.toString();
+  }
+
+  public void testPageNames() throws Exception {
+    Set<String> names = new TreeSet<String>(ReferenceIndex.pageNames("PageOne.ChildPage, >SubPage !-LiteralPage-! notaname Word"));
+    assertEquals("[ChildPage, LiteralPage, PageOne, SubPage]", names.toString());
+  }
+
+  public void testPagesNamingTheSubjectOrWithinItMayReferToIt() throws Exception {
+    assertEquals("[PageOne, PageOne.ChildPage, PageTwo]", findPagesThatMayReference(root, pageOne));
+    assertEquals("[PageThree, PageTwo]", findPagesThatMayReference(root, root.getChildPage("PageTwo")));
+  }
+
+  public void testOnlyPagesWithinTheScopeAreFound() throws Exception {
+    assertEquals("[PageOne, PageOne.ChildPage]", findPagesThatMayReference(pageOne, pageOne));
+  }
+
+  public void testCommittedAndRemovedPagesAreFollowed() throws Exception {
+    ReferenceIndex.getInstance(root);
+    crawler.addPage(root, PathParser.parse("PageFour"), "see PageTwo too");
+    root.removeChildPage("PageThree");
+    assertEquals("[PageFour, PageTwo]", findPagesThatMayReference(root, root.getChildPage("PageTwo")));
+    assertEquals(5, ReferenceIndex.getInstance(root).getPageCount());
+  }
+
+  public void testPagesChangedOnDiskAreIndexedAgain() throws Exception {
+    new File(defaultPath).mkdir();
+    root = FileSystemPage.makeRoot(defaultPath, "RooT", new NullRevisionController());
+    crawler = root.getPageCrawler();
+    crawler.addPage(root, PathParser.parse("PageOne"), "nothing to see");
+    crawler.addPage(root, PathParser.parse("PageTwo"), "see PageOne");
+    assertEquals("[PageOne, PageTwo]", findPagesThatMayReference(root, root.getChildPage("PageOne")));
+
+    FileUtil.createFile(defaultPath + "/RooT/PageTwo/content.txt", "see nothing");
+    new File(defaultPath + "/RooT/PageThree").mkdir();
+    FileUtil.createFile(defaultPath + "/RooT/PageThree/content.txt", "see PageOne");
+    assertEquals("[PageOne, PageThree]", findPagesThatMayReference(root, root.getChildPage("PageOne")));
+
+    FileUtil.createFile(defaultPath + "/RooT/PageOne/content.txt", "see PageThree");
+    FileUtil.deleteFileSystemDirectory(defaultPath + "/RooT/PageTwo");
+    root = FileSystemPage.makeRoot(defaultPath, "RooT", new NullRevisionController());
+    assertEquals("[PageOne, PageThree]", findPagesThatMayReference(root, root.getChildPage("PageThree")));
+    assertEquals(3, ReferenceIndex.getInstance(root).getPageCount());
+  }
+}
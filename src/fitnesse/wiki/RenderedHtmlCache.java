@@ -0,0 +1,328 @@
+// Copyright (C) 2003,2004,2005 by Object Mentor, Inc. All rights reserved.
+// Released under the terms of the GNU General Public License version 2 or later.
+package fitnesse.wiki;
+
+import java.util.*;
+
+// The HTML of rendered pages, held in one least-recently-used cache bounded by the
+// approximate size of the cached text.  While a page renders, every page it looks up,
+// lists the children of or reads variables from is recorded as something the HTML
+// depends on.  The HTML is thrown away when any of those pages is committed, added or
+// removed, and is only used again for the same content.  Pages that render anything
+// coming from elsewhere, like virtual wikis or symbolic links, are not cached.
+//
+// A page committed while another page renders can not invalidate HTML that is not in the
+// cache yet, so the recent invalidations are remembered, and HTML whose rendering began
+// before one of its dependencies was invalidated is not kept.
+public class RenderedHtmlCache {
+  public static final long DEFAULT_CAPACITY = 32 * 1024 * 1024;
+  private static final int ENTRY_OVERHEAD = 1024;
+  static final int REMEMBERED_INVALIDATIONS = 1000;
+
+  private static RenderedHtmlCache instance = new RenderedHtmlCache(DEFAULT_CAPACITY);
+  private static final ThreadLocal<Rendering> rendering = new ThreadLocal<Rendering>();
+
+  private final LinkedHashMap<PathKey, Entry> entries = new LinkedHashMap<PathKey, Entry>(256, 0.75f, true);
+  private final Map<PathKey, Set<PathKey>> dependents = new HashMap<PathKey, Set<PathKey>>();
+  private long capacity;
+  private long weight = 0;
+  private long hits = 0;
+  private long misses = 0;
+  private long invalidations = 0;
+  private long generation = 0;
+  private final LinkedList<Invalidation> recentInvalidations = new LinkedList<Invalidation>();
+
+  public RenderedHtmlCache(long capacity) {
+    this.capacity = capacity;
+  }
+
+  public static RenderedHtmlCache getInstance() {
+    return instance;
+  }
+
+  public String get(WikiPage page, String content) throws Exception {
+    if (page == null)
+      return null;
+    PageCrawler crawler = page.getPageCrawler();
+    PathKey key = new PathKey(crawler.getRoot(page), PathParser.render(crawler.getFullPath(page)));
+    synchronized (this) {
+      Entry entry = entries.get(key);
+      if (entry == null || !entry.content.equals(content)) {
+        misses++;
+        return null;
+      }
+      hits++;
+      Rendering current = rendering.get();
+      if (current != null)
+        current.dependencies.addAll(entry.dependencies);
+      return entry.html;
+    }
+  }
+
+  public void startRendering(WikiPage page) throws Exception {
+    Rendering current = new Rendering(rendering.get(), getGeneration());
+    rendering.set(current);
+    if (page != null)
+      current.dependencies.add(pathOf(page));
+  }
+
+  // Takes the HTML the page rendered to, or null when rendering failed.
+  public void finishRendering(WikiPage page, String content, String html) throws Exception {
+    Rendering current = rendering.get();
+    rendering.set(current.outer);
+    if (current.outer != null) {
+      current.outer.dependencies.addAll(current.dependencies);
+      current.outer.cacheable &= current.cacheable;
+    }
+    if (page != null && html != null && current.cacheable)
+      put(page.getPageCrawler().getRoot(page), pathOf(page), content, html, current);
+  }
+
+  private synchronized long getGeneration() {
+    return generation;
+  }
+
+  private synchronized void put(WikiPage root, String path, String content, String html, Rendering rendering) {
+    PathKey key = new PathKey(root, path);
+    remove(key);
+    Set<String> dependencies = rendering.dependencies;
+    if (invalidatedSince(rendering.generation, root, dependencies))
+      return;
+    Entry entry = new Entry(root, content, html, dependencies);
+    entries.put(key, entry);
+    weight += entry.weight;
+    for (String dependency : dependencies) {
+      PathKey dependencyKey = new PathKey(root, dependency);
+      Set<PathKey> keys = dependents.get(dependencyKey);
+      if (keys == null) {
+        keys = new HashSet<PathKey>();
+        dependents.put(dependencyKey, keys);
+      }
+      keys.add(key);
+    }
+    evictToCapacity();
+  }
+
+  private boolean invalidatedSince(long startGeneration, WikiPage root, Set<String> dependencies) {
+    if (startGeneration == generation)
+      return false;
+    if (recentInvalidations.isEmpty() || recentInvalidations.getFirst().generation > startGeneration + 1)
+      return true;  // some of the invalidations since are forgotten
+    for (Iterator<Invalidation> i = recentInvalidations.descendingIterator(); i.hasNext(); ) {
+      Invalidation invalidation = i.next();
+      if (invalidation.generation <= startGeneration)
+        break;
+      if (invalidation.root == root &&
+        (dependencies.contains(invalidation.path) || dependencies.contains(invalidation.siblings)))
+        return true;
+    }
+    return false;
+  }
+
+  private void remove(PathKey key) {
+    Entry entry = entries.remove(key);
+    if (entry != null)
+      forget(key, entry);
+  }
+
+  private void forget(PathKey key, Entry entry) {
+    weight -= entry.weight;
+    for (String dependency : entry.dependencies) {
+      PathKey dependencyKey = new PathKey(entry.root, dependency);
+      Set<PathKey> keys = dependents.get(dependencyKey);
+      if (keys != null) {
+        keys.remove(key);
+        if (keys.isEmpty())
+          dependents.remove(dependencyKey);
+      }
+    }
+  }
+
+  private void evictToCapacity() {
+    Iterator<Map.Entry<PathKey, Entry>> eldest = entries.entrySet().iterator();
+    while (weight > capacity && eldest.hasNext()) {
+      Map.Entry<PathKey, Entry> entry = eldest.next();
+      eldest.remove();
+      forget(entry.getKey(), entry.getValue());
+    }
+  }
+
+  // A page was committed, added or removed: whatever looked it up, or listed the
+  // children of its parent, renders differently now.
+  public static void pageChanged(WikiPage page) throws Exception {
+    PageCrawler crawler = page.getPageCrawler();
+    instance.invalidate(crawler.getRoot(page), PathParser.render(crawler.getFullPath(page)));
+  }
+
+  public static void childChanged(WikiPage parent, String childName) throws Exception {
+    PageCrawler crawler = parent.getPageCrawler();
+    instance.invalidate(crawler.getRoot(parent), childPath(PathParser.render(crawler.getFullPath(parent)), childName));
+  }
+
+  private synchronized void invalidate(WikiPage root, String path) {
+    int lastDot = path.lastIndexOf('.');
+    String siblings = childrenOf(lastDot < 0 ? "" : path.substring(0, lastDot));
+    recentInvalidations.addLast(new Invalidation(++generation, root, path, siblings));
+    if (recentInvalidations.size() > REMEMBERED_INVALIDATIONS)
+      recentInvalidations.removeFirst();
+    if (entries.isEmpty())
+      return;
+    invalidateDependents(new PathKey(root, path));
+    invalidateDependents(new PathKey(root, siblings));
+  }
+
+  private void invalidateDependents(PathKey dependencyKey) {
+    Set<PathKey> keys = dependents.get(dependencyKey);
+    if (keys == null)
+      return;
+    for (PathKey key : new ArrayList<PathKey>(keys)) {
+      if (entries.containsKey(key)) {
+        remove(key);
+        invalidations++;
+      }
+    }
+  }
+
+  public static void pageLookedUp(WikiPage parent, String childName, WikiPage child) throws Exception {
+    Rendering current = rendering.get();
+    if (current == null)
+      return;
+    if (parent instanceof SymbolicPage || parent instanceof ProxyPage || child instanceof SymbolicPage)
+      current.cacheable = false;
+    current.dependencies.add(childPath(pathOf(parent), childName));
+  }
+
+  public static void childrenListed(WikiPage page, List<WikiPage> children) throws Exception {
+    Rendering current = rendering.get();
+    if (current == null)
+      return;
+    if (page instanceof SymbolicPage || page instanceof ProxyPage)
+      current.cacheable = false;
+    for (WikiPage child : children) {
+      if (child instanceof SymbolicPage)
+        current.cacheable = false;
+    }
+    current.dependencies.add(childrenOf(pathOf(page)));
+  }
+
+  public static void pageRead(WikiPage page) throws Exception {
+    Rendering current = rendering.get();
+    if (current != null)
+      current.dependencies.add(pathOf(page));
+  }
+
+  public static void doNotCache() {
+    Rendering current = rendering.get();
+    if (current != null)
+      current.cacheable = false;
+  }
+
+  private static String pathOf(WikiPage page) throws Exception {
+    return PathParser.render(page.getPageCrawler().getFullPath(page));
+  }
+
+  private static String childPath(String parentPath, String childName) {
+    return "".equals(parentPath) ? childName : parentPath + "." + childName;
+  }
+
+  private static String childrenOf(String path) {
+    return path + "/";
+  }
+
+  public synchronized void clear() {
+    entries.clear();
+    recentInvalidations.clear();
+    dependents.clear();
+    weight = 0;
+  }
+
+  public synchronized void setCapacity(long capacity) {
+    this.capacity = capacity;
+    evictToCapacity();
+  }
+
+  public synchronized long getCapacity() {
+    return capacity;
+  }
+
+  public synchronized long getWeight() {
+    return weight;
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  public synchronized long getInvalidations() {
+    return invalidations;
+  }
+
+  private static class Rendering {
+    private final Rendering outer;
+    private final long generation;
+    private final Set<String> dependencies = new HashSet<String>();
+    private boolean cacheable = true;
+
+    Rendering(Rendering outer, long generation) {
+      this.outer = outer;
+      this.generation = generation;
+    }
+  }
+
+  private static class Invalidation {
+    private final long generation;
+    private final WikiPage root;
+    private final String path;
+    private final String siblings;
+
+    Invalidation(long generation, WikiPage root, String path, String siblings) {
+      this.generation = generation;
+      this.root = root;
+      this.path = path;
+      this.siblings = siblings;
+    }
+  }
+
+  // Pages compare equal by path, but pages from different roots must not share entries.
+  private static class PathKey {
+    private final WikiPage root;
+    private final String path;
+
+    PathKey(WikiPage root, String path) {
+      this.root = root;
+      this.path = path;
+    }
+
+    public boolean equals(Object o) {
+      return o instanceof PathKey && ((PathKey) o).root == root && ((PathKey) o).path.equals(path);
+    }
+
+    public int hashCode() {
+      return System.identityHashCode(root) * 31 + path.hashCode();
+    }
+  }
+
+  private static class Entry {
+    private final WikiPage root;
+    private final String content;
+    private final String html;
+    private final Set<String> dependencies;
+    private final int weight;
+
+    Entry(WikiPage root, String content, String html, Set<String> dependencies) {
+      this.root = root;
+      this.content = content;
+      this.html = html;
+      this.dependencies = dependencies;
+      weight = ENTRY_OVERHEAD + (content.length() + html.length()) * 2;
+    }
+  }
+}
@@ -0,0 +1,106 @@
+// Copyright (C) 2003,2004,2005 by Object Mentor, Inc. All rights reserved.
+// Released under the terms of the GNU General Public License version 2 or later.
+package fitnesse.wiki;
+
+import fitnesse.testutil.RegexTestCase;
+
+public class RenderedHtmlCacheTest extends RegexTestCase {
+  private RenderedHtmlCache cache;
+  private WikiPage root;
+  private PageCrawler crawler;
+  private WikiPage parent;
+  private WikiPage page;
+
+  public void setUp() throws Exception {
+    cache = RenderedHtmlCache.getInstance();
+    cache.clear();
+    root = InMemoryPage.makeRoot("RooT");
+    crawler = root.getPageCrawler();
+    parent = crawler.addPage(root, PathParser.parse("ParentPage"), "!define COLOR {red}\n");
+    page = crawler.addPage(parent, PathParser.parse("TestPage"), "color ${COLOR}\n!include .IncludedPage\nsee OtherPage\n!contents\n");
+    crawler.addPage(root, PathParser.parse("IncludedPage"), "included text");
+  }
+
+  public void tearDown() throws Exception {
+    cache.clear();
+  }
+
+  private String render() throws Exception {
+    return page.getData().getHtml();
+  }
+
+  private void setContent(WikiPage wikiPage, String content) throws Exception {
+    PageData data = wikiPage.getData();
+    data.setContent(content);
+    wikiPage.commit(data);
+  }
+
+  public void testUnchangedPageIsRenderedOnce() throws Exception {
+    String html = render();
+    long hits = cache.getHits();
+    assertEquals(html, render());
+    assertEquals(hits + 1, cache.getHits());
+  }
+
+  public void testChangedContentIsRenderedAgain() throws Exception {
+    render();
+    PageData data = page.getData();
+    data.setContent("something else");
+    assertEquals("something else", data.getHtml());
+  }
+
+  public void testCommittingAnIncludedPageShowsItsNewContent() throws Exception {
+    assertSubString("included text", render());
+    setContent(root.getChildPage("IncludedPage"), "new included text");
+    assertSubString("new included text", render());
+  }
+
+  public void testChangingAVariableOfAnAncestorShowsItsNewValue() throws Exception {
+    assertSubString("color red", render());
+    setContent(parent, "!define COLOR {blue}\n");
+    assertSubString("color blue", render());
+  }
+
+  public void testHtmlRenderedWhileADependencyIsCommittedIsNotKept() throws Exception {
+    String content = page.getData().getContent();
+    WikiPage included = root.getChildPage("IncludedPage");
+    cache.startRendering(page);
+    RenderedHtmlCache.pageRead(included);
+    setContent(included, "new included text");
+    cache.finishRendering(page, content, "old included text");
+    assertNull(cache.get(page, content));
+    assertSubString("new included text", render());
+  }
+
+  public void testHtmlRenderedWhileAnUnrelatedPageIsCommittedIsKept() throws Exception {
+    String content = page.getData().getContent();
+    WikiPage unrelated = crawler.addPage(root, PathParser.parse("UnrelatedPage"), "unrelated");
+    cache.startRendering(page);
+    RenderedHtmlCache.pageRead(root.getChildPage("IncludedPage"));
+    setContent(unrelated, "still unrelated");
+    cache.finishRendering(page, content, "some html");
+    assertEquals("some html", cache.get(page, content));
+  }
+
+  public void testAddingALinkedPageMakesTheLinkWork() throws Exception {
+    assertSubString("OtherPage<a title=\"create page\"", render());
+    crawler.addPage(parent, PathParser.parse("OtherPage"), "");
+    assertNotSubString("OtherPage<a title=\"create page\"", render());
+  }
+
+  public void testAddingAndRemovingChildrenChangesTheContents() throws Exception {
+    assertNotSubString("ChildPage", render());
+    crawler.addPage(page, PathParser.parse("ChildPage"), "");
+    assertSubString("ChildPage", render());
+    page.removeChildPage("ChildPage");
+    assertNotSubString("ChildPage", render());
+  }
+
+  public void testUnrelatedChangesKeepTheCachedHtml() throws Exception {
+    render();
+    crawler.addPage(root, PathParser.parse("UnrelatedPage"), "unrelated");
+    long hits = cache.getHits();
+    render();
+    assertEquals(hits + 1, cache.getHits());
+  }
+}
@@ -0,0 +1,314 @@
+// Copyright (C) 2003,2004,2005 by Object Mentor, Inc. All rights reserved.
+// Released under the terms of the GNU General Public License version 2 or later.
+package fitnesse.wiki;
+
+import java.io.*;
+import java.util.*;
+
+// An inverted index of the words on every page of one wiki: which pages each word is on,
+// and at which word positions.
+//
+// A search finds the same pages as looking for the text in the content of every page.
+// Words give the pages worth looking at; only searches of more than one word read the
+// content of those pages to make sure.  The words are kept in order, and so are their
+// suffixes, so the words that start, end or contain a part of a word are found without
+// going through them all.
+public class SearchIndex extends PageIndex {
+  public static final String NAME = "searchIndex";
+  public static final String INDEX_FILE_NAME = NAME + ".dat";
+  public static final String LOG_FILE_NAME = NAME + ".log";
+  private static final int FORMAT_VERSION = 2;
+  static final int MAX_SUFFIXED_WORD_LENGTH = 40;
+
+  private final Map<String, Map<String, int[]>> wordsByPage = new HashMap<String, Map<String, int[]>>();
+  private final TreeMap<String, Set<String>> pagesByWord = new TreeMap<String, Set<String>>();
+  private final TreeMap<String, Set<String>> wordsBySuffix = new TreeMap<String, Set<String>>();
+  private final Set<String> longWords = new HashSet<String>();
+
+  public static SearchIndex getInstance(WikiPage root) throws Exception {
+    SearchIndex index = (SearchIndex) getLoadedIndex(root, NAME);
+    if (index != null)
+      return index;
+    synchronized (loading) {
+      index = (SearchIndex) getLoadedIndex(root, NAME);
+      if (index == null) {
+        index = new SearchIndex(root);
+        index.load();
+      }
+      return index;
+    }
+  }
+
+  private SearchIndex(WikiPage root) throws Exception {
+    super(root, NAME);
+  }
+
+  public synchronized int getPageCount() {
+    return wordsByPage.size();
+  }
+
+  public synchronized void remove(String path) {
+    Map<String, int[]> words = wordsByPage.remove(path);
+    if (words == null)
+      return;
+    for (String word : words.keySet()) {
+      Set<String> pages = pagesByWord.get(word);
+      pages.remove(path);
+      if (pages.isEmpty()) {
+        pagesByWord.remove(word);
+        removeSuffixes(word);
+      }
+    }
+  }
+
+  protected synchronized void clear() {
+    wordsByPage.clear();
+    pagesByWord.clear();
+    wordsBySuffix.clear();
+    longWords.clear();
+  }
+
+  protected synchronized void add(String path, String content) {
+    Map<String, List<Integer>> positions = new HashMap<String, List<Integer>>();
+    List<String> words = words(content.toLowerCase());
+    for (int i = 0; i < words.size(); i++) {
+      List<Integer> wordPositions = positions.get(words.get(i));
+      if (wordPositions == null) {
+        wordPositions = new ArrayList<Integer>();
+        positions.put(words.get(i), wordPositions);
+      }
+      wordPositions.add(i);
+    }
+
+    Map<String, int[]> pageWords = new HashMap<String, int[]>();
+    for (Map.Entry<String, List<Integer>> entry : positions.entrySet()) {
+      int[] wordPositions = new int[entry.getValue().size()];
+      for (int i = 0; i < wordPositions.length; i++)
+        wordPositions[i] = entry.getValue().get(i);
+      addWord(path, pageWords, entry.getKey(), wordPositions);
+    }
+    wordsByPage.put(path, pageWords);
+  }
+
+  private void addWord(String path, Map<String, int[]> pageWords, String word, int[] positions) {
+    pageWords.put(word, positions);
+    Set<String> pages = pagesByWord.get(word);
+    if (pages == null) {
+      pages = new HashSet<String>();
+      pagesByWord.put(word, pages);
+      addSuffixes(word);
+    }
+    pages.add(path);
+  }
+
+  // Long words, which are rare, would take more room than all the others, so they are
+  // kept aside and looked through.
+  private void addSuffixes(String word) {
+    if (word.length() > MAX_SUFFIXED_WORD_LENGTH) {
+      longWords.add(word);
+      return;
+    }
+    for (int i = 0; i < word.length(); i++) {
+      String suffix = word.substring(i);
+      Set<String> words = wordsBySuffix.get(suffix);
+      if (words == null) {
+        words = new HashSet<String>(2);
+        wordsBySuffix.put(suffix, words);
+      }
+      words.add(word);
+    }
+  }
+
+  private void removeSuffixes(String word) {
+    if (word.length() > MAX_SUFFIXED_WORD_LENGTH) {
+      longWords.remove(word);
+      return;
+    }
+    for (int i = 0; i < word.length(); i++) {
+      String suffix = word.substring(i);
+      Set<String> words = wordsBySuffix.get(suffix);
+      words.remove(word);
+      if (words.isEmpty())
+        wordsBySuffix.remove(suffix);
+    }
+  }
+
+  static List<String> words(String text) {
+    List<String> words = new ArrayList<String>();
+    int start = -1;
+    for (int i = 0; i <= text.length(); i++) {
+      boolean inWord = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+      if (inWord && start < 0)
+        start = i;
+      else if (!inWord && start >= 0) {
+        words.add(text.substring(start, i));
+        start = -1;
+      }
+    }
+    return words;
+  }
+
+  // The pages whose content contains the text, regardless of case, with the most
+  // occurrences first.
+  public List<Hit> search(String text) throws Exception {
+    String searchString = text.toLowerCase();
+    refreshIfDue();
+    Map<String, Integer> candidates = findCandidates(searchString);
+    List<Hit> hits = new ArrayList<Hit>();
+    for (Map.Entry<String, Integer> candidate : candidates.entrySet()) {
+      String path = candidate.getKey();
+      int score = candidate.getValue();
+      if (!isSingleWord(searchString)) {
+        WikiPage page = getPage(path);
+        if (page == null)
+          continue;
+        score = countOccurrences(page.getData().getContent().toLowerCase(), searchString);
+      }
+      if (score > 0)
+        hits.add(new Hit(path, score));
+    }
+    Collections.sort(hits);
+    return hits;
+  }
+
+  private static boolean isSingleWord(String searchString) {
+    List<String> words = words(searchString);
+    return words.size() == 1 && words.get(0).length() == searchString.length();
+  }
+
+  private static int countOccurrences(String content, String searchString) {
+    int count = 0;
+    for (int i = content.indexOf(searchString); i != -1; i = content.indexOf(searchString, i + 1))
+      count++;
+    return count;
+  }
+
+  // Pages that have the words of the search string next to each other, with how often.
+  // The first and last words may be only the end and the start of a word on the page.
+  private synchronized Map<String, Integer> findCandidates(String searchString) {
+    Map<String, Integer> candidates = new HashMap<String, Integer>();
+    List<String> searchWords = words(searchString);
+    if (searchWords.isEmpty()) {
+      for (String path : wordsByPage.keySet())
+        candidates.put(path, 0);
+      return candidates;
+    }
+
+    boolean startsInWord = Character.isLetterOrDigit(searchString.charAt(0));
+    boolean endsInWord = Character.isLetterOrDigit(searchString.charAt(searchString.length() - 1));
+    List<Set<String>> matchingWords = new ArrayList<Set<String>>();
+    for (int i = 0; i < searchWords.size(); i++) {
+      boolean mayStartEarlier = i == 0 && startsInWord;
+      boolean mayEndLater = i == searchWords.size() - 1 && endsInWord;
+      matchingWords.add(matchingWords(searchWords.get(i), mayStartEarlier, mayEndLater));
+    }
+
+    Set<String> pages = new HashSet<String>();
+    for (String word : matchingWords.get(0))
+      pages.addAll(pagesByWord.get(word));
+    for (String path : pages) {
+      int count = countPhrases(wordsByPage.get(path), matchingWords);
+      if (count > 0)
+        candidates.put(path, count);
+    }
+    return candidates;
+  }
+
+  private Set<String> matchingWords(String searchWord, boolean mayStartEarlier, boolean mayEndLater) {
+    Set<String> words = new HashSet<String>();
+    if (!mayStartEarlier && !mayEndLater) {
+      if (pagesByWord.containsKey(searchWord))
+        words.add(searchWord);
+    } else if (!mayStartEarlier)
+      words.addAll(startingWith(pagesByWord, searchWord).keySet());
+    else if (!mayEndLater) {
+      Set<String> endingWith = wordsBySuffix.get(searchWord);
+      if (endingWith != null)
+        words.addAll(endingWith);
+    } else {
+      for (Set<String> containing : startingWith(wordsBySuffix, searchWord).values())
+        words.addAll(containing);
+    }
+    if (mayStartEarlier) {
+      for (String word : longWords) {
+        if (mayEndLater ? word.indexOf(searchWord) != -1 : word.endsWith(searchWord))
+          words.add(word);
+      }
+    }
+    return words;
+  }
+
+  private static SortedMap<String, Set<String>> startingWith(TreeMap<String, Set<String>> map, String prefix) {
+    return map.subMap(prefix, prefix + Character.MAX_VALUE);
+  }
+
+  private int countPhrases(Map<String, int[]> pageWords, List<Set<String>> matchingWords) {
+    Set<Integer> starts = positionsOf(pageWords, matchingWords.get(0), 0);
+    for (int i = 1; i < matchingWords.size() && !starts.isEmpty(); i++)
+      starts.retainAll(positionsOf(pageWords, matchingWords.get(i), i));
+    return starts.size();
+  }
+
+  private Set<Integer> positionsOf(Map<String, int[]> pageWords, Set<String> words, int offset) {
+    Set<Integer> positions = new HashSet<Integer>();
+    for (String word : words) {
+      int[] wordPositions = pageWords.get(word);
+      if (wordPositions != null) {
+        for (int position : wordPositions)
+          positions.add(position - offset);
+      }
+    }
+    return positions;
+  }
+
+  protected void writePages(DataOutputStream output) throws IOException {
+    output.writeInt(FORMAT_VERSION);
+    output.writeInt(wordsByPage.size());
+    for (Map.Entry<String, Map<String, int[]>> page : wordsByPage.entrySet()) {
+      output.writeUTF(page.getKey());
+      output.writeInt(page.getValue().size());
+      for (Map.Entry<String, int[]> word : page.getValue().entrySet()) {
+        output.writeUTF(word.getKey());
+        output.writeInt(word.getValue().length);
+        for (int position : word.getValue())
+          output.writeInt(position);
+      }
+    }
+  }
+
+  protected boolean readPages(DataInputStream input) throws IOException {
+    if (input.readInt() != FORMAT_VERSION)
+      return false;
+    int pageCount = input.readInt();
+    for (int i = 0; i < pageCount; i++) {
+      String path = input.readUTF();
+      Map<String, int[]> pageWords = new HashMap<String, int[]>();
+      int wordCount = input.readInt();
+      for (int j = 0; j < wordCount; j++) {
+        String word = input.readUTF();
+        int[] positions = new int[input.readInt()];
+        for (int k = 0; k < positions.length; k++)
+          positions[k] = input.readInt();
+        addWord(path, pageWords, word, positions);
+      }
+      wordsByPage.put(path, pageWords);
+    }
+    return true;
+  }
+
+  public static class Hit implements Comparable<Hit> {
+    public final String path;
+    public final int score;
+
+    Hit(String path, int score) {
+      this.path = path;
+      this.score = score;
+    }
+
+    public int compareTo(Hit other) {
+      if (score != other.score)
+        return other.score - score;
+      return path.compareTo(other.path);
+    }
+  }
+}
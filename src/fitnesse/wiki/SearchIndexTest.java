@@ -0,0 +1,150 @@
+// Copyright (C) 2003,2004,2005 by Object Mentor, Inc. All rights reserved.
+// Released under the terms of the GNU General Public License version 2 or later.
+package fitnesse.wiki;
+
+import fitnesse.revisioncontrol.NullRevisionController;
+import fitnesse.util.FileUtil;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SearchIndexTest extends TestCase {
+  private static final String defaultPath = "./teststorage";
+  private WikiPage root;
+  private PageCrawler crawler;
+
+  public void setUp() throws Exception {
+    root = InMemoryPage.makeRoot("RooT");
+    crawler = root.getPageCrawler();
+    crawler.addPage(root, PathParser.parse("PageOne"), "has the words red apple in it");
+    crawler.addPage(root, PathParser.parse("PageOne.ChildPage"), "apple, apple and another apple");
+    crawler.addPage(root, PathParser.parse("PageTwo"), "a red car and a green apple");
+  }
+
+  public void tearDown() throws Exception {
+    PageIndex.refreshIntervalMillis = 5000;
+    FileUtil.deleteFileSystemDirectory(defaultPath);
+  }
+
+  private List<String> search(String text) throws Exception {
+    List<String> paths = new ArrayList<String>();
+    for (SearchIndex.Hit hit : SearchIndex.getInstance(root).search(text))
+      paths.add(hit.path);
+    return paths;
+  }
+
+  private String searchAsString(String text) throws Exception {
+    return search(text).toString();
+  }
+
+  public void testWords() throws Exception {
+    assertEquals("[a1, b, c2d]", SearchIndex.words("a1 b,c2d.").toString());
+  }
+
+  public void testPagesWithTheMostOccurrencesComeFirst() throws Exception {
+    assertEquals("[PageOne.ChildPage, PageOne, PageTwo]", searchAsString("apple"));
+  }
+
+  public void testSearchesIgnoreCase() throws Exception {
+    assertEquals("[PageOne, PageTwo]", searchAsString("RED"));
+  }
+
+  public void testPartsOfWordsAreFound() throws Exception {
+    assertEquals("[PageOne.ChildPage, PageOne, PageTwo]", searchAsString("ppl"));
+    assertEquals("[PageOne]", searchAsString("ed app"));
+    assertEquals("[]", searchAsString("red ap apple"));
+  }
+
+  public void testWordsAreFoundByTheirStartEndOrMiddle() throws Exception {
+    StringBuffer longWord = new StringBuffer("long");
+    while (longWord.length() <= SearchIndex.MAX_SUFFIXED_WORD_LENGTH)
+      longWord.append("word");
+    crawler.addPage(root, PathParser.parse("PageThree"), "red apples pineapple " + longWord + "apple");
+    assertEquals("[PageThree]", searchAsString("apples"));
+    assertEquals("[PageOne.ChildPage, PageOne, PageThree, PageTwo]", searchAsString(" apple"));
+    assertEquals("[PageThree]", searchAsString("eapple "));
+    assertEquals("[PageThree]", searchAsString("dapp"));
+    assertEquals("[PageThree]", searchAsString(" longword"));
+  }
+
+  public void testPhrasesMustBeOnThePageAsTyped() throws Exception {
+    assertEquals("[PageOne]", searchAsString("red apple"));
+    assertEquals("[PageOne.ChildPage]", searchAsString("apple, apple"));
+    assertEquals("[]", searchAsString("apple red"));
+  }
+
+  public void testSearchStringsWithoutWords() throws Exception {
+    assertEquals("[PageOne.ChildPage]", searchAsString(", "));
+  }
+
+  public void testCommittedPagesAreSearchedAsTheyAreNow() throws Exception {
+    assertEquals("[PageTwo]", searchAsString("car"));
+    WikiPage pageTwo = root.getChildPage("PageTwo");
+    PageData data = pageTwo.getData();
+    data.setContent("no longer here");
+    pageTwo.commit(data);
+    crawler.addPage(root, PathParser.parse("PageThree"), "a blue car");
+
+    assertEquals("[PageThree]", searchAsString("car"));
+    assertEquals("[PageTwo]", searchAsString("longer"));
+  }
+
+  public void testRemovedPagesAreNotFound() throws Exception {
+    SearchIndex.getInstance(root);
+    root.removeChildPage("PageTwo");
+    assertEquals("[PageOne]", searchAsString("red apple"));
+  }
+
+  public void testIndexIsKeptInItsOwnDirectoryOfTheRoot() throws Exception {
+    new File(defaultPath).mkdir();
+    root = FileSystemPage.makeRoot(defaultPath, "RooT", new NullRevisionController());
+    crawler = root.getPageCrawler();
+    crawler.addPage(root, PathParser.parse("PageOne"), "red apple");
+    assertEquals("[PageOne]", searchAsString("apple"));
+    String indexDirectory = defaultPath + "/RooT/" + PageIndex.DIRECTORY_NAME + "/";
+    assertTrue(new File(indexDirectory + SearchIndex.INDEX_FILE_NAME).exists());
+    assertFalse(new File(defaultPath + "/RooT/" + SearchIndex.INDEX_FILE_NAME).exists());
+
+    WikiPage otherRoot = FileSystemPage.makeRoot(defaultPath, "RooT", new NullRevisionController());
+    crawler.addPage(otherRoot, PathParser.parse("PageTwo"), "green apple");
+    assertTrue(new File(indexDirectory + SearchIndex.LOG_FILE_NAME).exists());
+
+    root = FileSystemPage.makeRoot(defaultPath, "RooT", new NullRevisionController());
+    assertEquals("[PageOne, PageTwo]", searchAsString("apple"));
+    assertEquals(3, SearchIndex.getInstance(root).getPageCount());
+  }
+
+  public void testPagesChangedOnDiskAreSearchedAsTheyAreNow() throws Exception {
+    PageIndex.refreshIntervalMillis = 0;
+    new File(defaultPath).mkdir();
+    root = FileSystemPage.makeRoot(defaultPath, "RooT", new NullRevisionController());
+    crawler = root.getPageCrawler();
+    crawler.addPage(root, PathParser.parse("PageOne"), "red apple");
+    crawler.addPage(root, PathParser.parse("PageTwo"), "green apple");
+    assertEquals("[PageOne, PageTwo]", searchAsString("apple"));
+
+    FileUtil.createFile(defaultPath + "/RooT/PageOne/content.txt", "red pear");
+    new File(defaultPath + "/RooT/PageThree").mkdir();
+    FileUtil.createFile(defaultPath + "/RooT/PageThree/content.txt", "yellow apple");
+    assertEquals("[PageThree, PageTwo]", searchAsString("apple"));
+    assertEquals("[PageOne]", searchAsString("pear"));
+
+    FileUtil.deleteFileSystemDirectory(defaultPath + "/RooT/PageTwo");
+    root = FileSystemPage.makeRoot(defaultPath, "RooT", new NullRevisionController());
+    assertEquals("[PageThree]", searchAsString("apple"));
+  }
+
+  public void testDiskIsLookedAtOnlyOncePerRefreshInterval() throws Exception {
+    new File(defaultPath).mkdir();
+    root = FileSystemPage.makeRoot(defaultPath, "RooT", new NullRevisionController());
+    root.getPageCrawler().addPage(root, PathParser.parse("PageOne"), "red apple");
+    assertEquals("[PageOne]", searchAsString("apple"));
+
+    FileUtil.createFile(defaultPath + "/RooT/PageOne/content.txt", "red pear");
+    assertEquals("[PageOne]", searchAsString("apple"));
+    PageIndex.refreshIntervalMillis = 0;
+    assertEquals("[]", searchAsString("apple"));
+  }
+}
@@ -0,0 +1,88 @@
+// Copyright (C) 2003,2004,2005 by Object Mentor, Inc. All rights reserved.
+// Released under the terms of the GNU General Public License version 2 or later.
+package fitnesse.wiki;
+
+import fitnesse.wikitext.WikiWidget;
+import fitnesse.wikitext.widgets.IncludeWidget;
+import fitnesse.wikitext.widgets.LiteralWidget;
+import fitnesse.wikitext.widgets.TextIgnoringWidgetRoot;
+import fitnesse.wikitext.widgets.WidgetRoot;
+
+import java.util.*;
+import java.util.regex.Matcher;
+
+// The variables the content of a page defines, parsed the first time one is asked for and
+// kept for as long as the content stays the same.  Copies of page data share them.
+// Content that includes other pages is parsed again every time, because what it defines
+// then depends on those pages too.
+class VariableDefinitions {
+  private boolean parsed = false;
+  private boolean includesPages;
+  private Map<String, String> values;
+  private List<String> literals;
+
+  // The value the content gives the variable, or null.  Literals in the value are added
+  // to the given list.
+  String get(PageData data, String name, List<String> literals) throws Exception {
+    VariableDefinitions definitions = parsed(data);
+    String value = definitions.values.get(name);
+    return value == null ? null : definitions.addLiterals(value, literals);
+  }
+
+  void defineAll(PageData data, WidgetRoot root) throws Exception {
+    VariableDefinitions definitions = parsed(data);
+    for (Map.Entry<String, String> definition : definitions.values.entrySet())
+      root.addVariable(definition.getKey(), definitions.addLiterals(definition.getValue(), root.getLiterals()));
+  }
+
+  private VariableDefinitions parsed(PageData data) throws Exception {
+    synchronized (this) {
+      if (parsed && !includesPages)
+        return this;
+    }
+    VariableDefinitions definitions = new VariableDefinitions();
+    definitions.parse(data);
+    synchronized (this) {
+      if (!parsed) {
+        parsed = true;
+        includesPages = definitions.includesPages;
+        values = definitions.values;
+        this.literals = definitions.literals;
+      }
+    }
+    return definitions;
+  }
+
+  private void parse(PageData data) throws Exception {
+    values = new HashMap<String, String>();
+    literals = new ArrayList<String>();
+    includesPages = false;
+    if (data.getContent() == null)
+      return;
+    WidgetRoot root = new TextIgnoringWidgetRoot(data.getContent(), data.getWikiPage(), literals, PageData.variableDefinitionWidgetBuilder);
+    root.render();
+    values.putAll(root.getVariables());
+    for (WikiWidget widget : root.getChildren()) {
+      if (widget instanceof IncludeWidget)
+        includesPages = true;
+    }
+  }
+
+  // The values refer to literals by their number in this page's list; the page that uses
+  // the value has a list of its own.
+  private String addLiterals(String value, List<String> pageLiterals) {
+    Matcher match = LiteralWidget.pattern.matcher(value);
+    if (!match.find())
+      return value;
+    StringBuffer result = new StringBuffer();
+    do {
+      int literalNumber = Integer.parseInt(match.group(1));
+      if (literalNumber < literals.size()) {
+        pageLiterals.add(literals.get(literalNumber));
+        match.appendReplacement(result, "!lit?" + (pageLiterals.size() - 1) + "?");
+      }
+    } while (match.find());
+    match.appendTail(result);
+    return result.toString();
+  }
+}
@@ -24,6 +24,15 @@ public class VersionInfo implements Comparable<VersionInfo>, Serializable {
     return counter++;
   }
 
+  public static VersionInfo makeVersionInfo(PageData data) throws Exception {
+    Date time = data.getProperties().getLastModificationTime();
+    String versionName = nextId() + "-" + makeVersionTimeFormat().format(time);
+    String user = data.getAttribute(WikiPage.LAST_MODIFYING_USER);
+    if (user != null && !"".equals(user))
+      versionName = user + "-" + versionName;
+    return new VersionInfo(versionName, user, time);
+  }
+
   private String name;
   private String author;
   private Date creationTime;
@@ -0,0 +1,9 @@
+// Copyright (C) 2003,2004,2005 by Object Mentor, Inc. All rights reserved.
+// Released under the terms of the GNU General Public License version 2 or later.
+package fitnesse.wiki;
+
+import java.util.Collection;
+
+public interface VersionsLoader {
+  public Collection<VersionInfo> loadVersions() throws Exception;
+}
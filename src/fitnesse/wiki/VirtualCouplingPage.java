@@ -35,6 +35,10 @@ public class VirtualCouplingPage implements WikiPage {
     return hostPage.getData();
   }
 
+  public PageData getReadOnlyData() throws Exception {
+    return hostPage.getReadOnlyData();
+  }
+
   public int compareTo(Object o) {
     return 0;
   }
@@ -38,6 +38,9 @@ public interface WikiPage extends Serializable, Comparable<Object> {
 
   public PageData getData() throws Exception;
 
+  // The page's current data, possibly shared with other readers; it must not be changed.
+  public PageData getReadOnlyData() throws Exception;
+
   public PageData getDataVersion(String versionName) throws Exception;
 
   public VersionInfo commit(PageData data) throws Exception;
@@ -57,6 +57,10 @@ public class WikiPageDummy implements WikiPage {
     return pageData;
   }
 
+  public PageData getReadOnlyData() throws Exception {
+    return pageData;
+  }
+
   public VersionInfo commit(PageData data) throws Exception {
     pageData = data;
     return new VersionInfo("mockVersionName", "mockAuthor", new Date());
@@ -8,7 +8,6 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.concurrent.locks.ReentrantLock;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -69,12 +68,9 @@ public class WidgetBuilder {
   private WidgetData[] widgetDataArray;
 
   private List<WidgetInterceptor> interceptors = new LinkedList<WidgetInterceptor>();
-  private final ReentrantLock widgetDataArraylock = new ReentrantLock();
 
   public WidgetBuilder(Class<?>[] widgetClasses) {
     this.widgetClasses = widgetClasses;
-    widgetPattern = buildCompositeWidgetPattern();
-
     widgetDataArray = buildWidgetDataArray();
   }
 
@@ -101,35 +97,10 @@ public class WidgetBuilder {
     }
     return regexp;
   }
-//
-//	public void addChildWidgets2(String value, ParentWidget parent) throws Exception
-//	{
-//		Matcher matcher = getWidgetPattern().matcher(value);
-//
-//		if(matcher.find())
-//		{
-//			String preString = value.substring(0, matcher.start());
-//			if(!"".equals(preString))
-//				new TextWidget(parent, preString);
-//			makeWidget(parent, matcher);
-//			String postString = value.substring(matcher.end());
-//			if(!postString.equals(""))
-//				addChildWidgets(postString, parent);
-//		}
-//		else
-//			new TextWidget(parent, value);
-//	}
-
-  public WikiWidget makeWidget(ParentWidget parent, Matcher matcher) throws Exception {
-    int group = getGroupMatched(matcher);
-    Class<?> widgetClass = widgetClasses[group - 1];
-    return constructWidget(widgetClass, parent, matcher.group());
-  }
 
-  private WikiWidget constructWidget(Class<?> widgetClass, ParentWidget parent, String text) throws Exception {
+  private WikiWidget constructWidget(WidgetData widgetData, ParentWidget parent, String text) throws Exception {
     try {
-      Constructor<?> widgetConstructor = widgetClass.getConstructor(new Class<?>[]{ParentWidget.class, String.class});
-      WikiWidget widget = (WikiWidget) widgetConstructor.newInstance(new Object[]{parent, text});
+      WikiWidget widget = (WikiWidget) widgetData.constructor.newInstance(new Object[]{parent, text});
       for (WidgetInterceptor i : interceptors) {
         i.intercept(widget);
       }
@@ -137,21 +108,16 @@ public class WidgetBuilder {
     }
     catch (Exception e) {
       e.printStackTrace();
-      Exception exception = new Exception("Widget Construction failed for " + widgetClass.getName() + "\n" + e.getMessage());
+      Exception exception = new Exception("Widget Construction failed for " + widgetData.widgetClass.getName() + "\n" + e.getMessage());
       exception.setStackTrace(e.getStackTrace());
       throw exception;
     }
   }
 
-  public int getGroupMatched(Matcher matcher) {
-    for (int i = 1; i <= matcher.groupCount(); i++) {
-      if (matcher.group(i) != null)
-        return i;
-    }
-    return -1;
-  }
-
-  public Pattern getWidgetPattern() {
+  // All the widget patterns in one, for those who want to know what the builder looks for.
+  public synchronized Pattern getWidgetPattern() {
+    if (widgetPattern == null)
+      widgetPattern = buildCompositeWidgetPattern();
     return widgetPattern;
   }
 
@@ -165,47 +131,64 @@ public class WidgetBuilder {
   }
 
   public void addChildWidgets(String value, ParentWidget parent) throws Exception {
-    widgetDataArraylock.lock();
-    WidgetData firstMatch = findFirstMatch(value);
-    try {
-      if (firstMatch != null) {
-        Matcher match = firstMatch.match;
-        String preString = value.substring(0, match.start());
-        if (!"".equals(preString))
-          new TextWidget(parent, preString);
-        constructWidget(firstMatch.widgetClass, parent, match.group());
-        String postString = value.substring(match.end());
-        if (!postString.equals(""))
-          addChildWidgets(postString, parent);
-      } else
-        new TextWidget(parent, value);
-    }
-    finally {
-      widgetDataArraylock.unlock();
-    }
+    addChildWidgets(value, parent, true);
   }
 
-  private WidgetData findFirstMatch(String value) {
-    resetWidgetDataList();
-
-    WidgetData firstMatch = null;
+  // Goes through the text once.  Each widget is the one whose pattern matches earliest in
+  // the text after the widget before it, the first of the widget classes winning a tie.
+  // Matching the rest of the text as a region behaves as matching it as a string of its
+  // own: it starts a line and has no word before it.  A match found further on stays the
+  // earliest one after the current position, so each pattern only searches again once the
+  // text it found has been taken by another widget.  Only the position the rest of the
+  // text starts at has to be tried again for every pattern.
+  public void addChildWidgets(String value, ParentWidget parent, boolean keepText) throws Exception {
+    int length = value.length();
+    Matcher[] matchers = new Matcher[widgetDataArray.length];
+    int[] starts = new int[widgetDataArray.length];
+    int[] ends = new int[widgetDataArray.length];
     for (int i = 0; i < widgetDataArray.length; i++) {
-      WidgetData widgetData = widgetDataArray[i];
-      Matcher match = widgetData.pattern.matcher(value);
-      if (match.find()) {
-        widgetData.match = match;
-        if (firstMatch == null)
-          firstMatch = widgetData;
-        else if (match.start() < firstMatch.match.start())
-          firstMatch = widgetData;
+      matchers[i] = widgetDataArray[i].pattern.matcher(value);
+      starts[i] = -1;
+    }
+
+    if (length == 0 && keepText)
+      new TextWidget(parent, value);
+    int position = 0;
+    while (position < length) {
+      int first = -1;
+      for (int i = 0; i < matchers.length; i++) {
+        if (starts[i] != Integer.MAX_VALUE && starts[i] <= position)
+          find(matchers[i], position, length, starts, ends, i);
+        else if (starts[i] > position) {
+          matchers[i].region(position, length);
+          if (matchers[i].lookingAt()) {
+            starts[i] = position;
+            ends[i] = matchers[i].end();
+          }
+        }
+        if (starts[i] != Integer.MAX_VALUE && (first == -1 || starts[i] < starts[first]))
+          first = i;
       }
+
+      if (first == -1) {
+        if (keepText)
+          new TextWidget(parent, value.substring(position));
+        return;
+      }
+      if (keepText && starts[first] > position)
+        new TextWidget(parent, value.substring(position, starts[first]));
+      constructWidget(widgetDataArray[first], parent, value.substring(starts[first], ends[first]));
+      position = ends[first];
     }
-    return firstMatch;
   }
 
-  private void resetWidgetDataList() {
-    for (int i = 0; i < widgetDataArray.length; i++)
-      widgetDataArray[i].match = null;
+  private static void find(Matcher matcher, int position, int length, int[] starts, int[] ends, int i) {
+    matcher.region(position, length);
+    if (matcher.find()) {
+      starts[i] = matcher.start();
+      ends[i] = matcher.end();
+    } else
+      starts[i] = Integer.MAX_VALUE;
   }
 
   public void addInterceptor(WidgetInterceptor interceptor) {
@@ -215,11 +198,17 @@ public class WidgetBuilder {
   static class WidgetData {
     public Class<?> widgetClass;
     public Pattern pattern;
-    public Matcher match;
+    public Constructor<?> constructor;
 
     public WidgetData(Class<?> widgetClass) {
       this.widgetClass = widgetClass;
       pattern = Pattern.compile(getRegexpFromWidgetClass(widgetClass), Pattern.DOTALL | Pattern.MULTILINE);
+      try {
+        constructor = widgetClass.getConstructor(new Class<?>[]{ParentWidget.class, String.class});
+      }
+      catch (NoSuchMethodException e) {
+        throw new IllegalArgumentException(widgetClass.getName() + " has no (ParentWidget, String) constructor");
+      }
     }
   }
 }
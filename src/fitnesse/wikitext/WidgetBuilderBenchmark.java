@@ -0,0 +1,56 @@
+// Copyright (C) 2003,2004,2005 by Object Mentor, Inc. All rights reserved.
+// Released under the terms of the GNU General Public License version 2 or later.
+package fitnesse.wikitext;
+
+import fitnesse.util.FileUtil;
+import fitnesse.wiki.InMemoryPage;
+import fitnesse.wiki.WikiPage;
+import fitnesse.wikitext.widgets.WidgetRoot;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+// This command-line tool times how long the html widget builder takes to turn the pages
+// of a wiki into widgets.  Usage: WidgetBuilderBenchmark [wiki directory] [rounds]
+public class WidgetBuilderBenchmark {
+  public static void main(String[] args) throws Exception {
+    File directory = new File(args.length > 0 ? args[0] : "FitNesseRoot");
+    int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+    List<String> pages = new ArrayList<String>();
+    collectPages(directory, pages);
+    long characters = 0;
+    for (String page : pages)
+      characters += page.length();
+    System.out.println(pages.size() + " pages, " + characters + " characters");
+
+    WikiPage context = InMemoryPage.makeRoot("RooT");
+    buildAll(pages, context);
+    for (int round = 1; round <= rounds; round++) {
+      long start = System.nanoTime();
+      int widgets = buildAll(pages, context);
+      long millis = (System.nanoTime() - start) / 1000000;
+      System.out.println("round " + round + ": " + millis + " ms, " + widgets + " top level widgets");
+    }
+  }
+
+  private static int buildAll(List<String> pages, WikiPage context) throws Exception {
+    int widgets = 0;
+    for (String page : pages)
+      widgets += new WidgetRoot(page, context, WidgetBuilder.htmlWidgetBuilder).getChildren().size();
+    return widgets;
+  }
+
+  private static void collectPages(File directory, List<String> pages) throws Exception {
+    File[] files = directory.listFiles();
+    if (files == null)
+      return;
+    for (File file : files) {
+      if (file.isDirectory())
+        collectPages(file, pages);
+      else if (file.getName().equals("content.txt"))
+        pages.add(FileUtil.getFileContent(file));
+    }
+  }
+}
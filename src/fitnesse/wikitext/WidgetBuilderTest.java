@@ -180,9 +180,7 @@ public class WidgetBuilderTest extends TestCase {
     assertEquals(VirtualWikiWidget.class, page.nextChild().getClass());
   }
 
-// TODO MdM A Test that reveals FitNesse's weakness for parsing large wiki documents.
-
-  public void _testLargeTable() throws Exception {
+  public void testLargeTable() throws Exception {
     StringBuffer buffer = new StringBuffer();
     for (int i = 0; i < 1000; i++)
       buffer.append("|'''bold'''|''italic''|!c centered|\n");
@@ -196,6 +194,17 @@ public class WidgetBuilderTest extends TestCase {
     }
   }
 
+  public void testManyWidgetsInOnePage() throws Exception {
+    StringBuffer buffer = new StringBuffer();
+    for (int i = 0; i < 20000; i++)
+      buffer.append("WikiWord ''italic'' ");
+
+    ParentWidget root = new WidgetRoot(buffer.toString(), new WikiPageDummy());
+    assertEquals(80000, root.numberOfChildren());
+    testWidgetClassAndText(root.getChildren().get(79998), ItalicWidget.class, null);
+    testWidgetClassAndText(root.getChildren().get(79999), TextWidget.class, " ");
+  }
+
   private void testWikiWordInParentWidget(String input, Class<?> expectedClass, String wikiWordText, int subChildren) throws Exception {
     ParentWidget page = new WidgetRoot(input, mockSource);
     assertEquals(1, page.numberOfChildren());
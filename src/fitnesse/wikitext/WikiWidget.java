@@ -26,6 +26,10 @@ public abstract class WikiWidget {
   //TODO-DaC what's a better name for this?
   public abstract String render() throws Exception;
 
+  public void render(Appendable html) throws Exception {
+    html.append(render());
+  }
+
   public void acceptVisitor(WidgetVisitor visitor) throws Exception {
     visitor.visit(this);
   }
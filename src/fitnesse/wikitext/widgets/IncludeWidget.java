@@ -51,6 +51,7 @@ public class IncludeWidget extends ParentWidget implements PageReferencer {
       includedPage.setParentForVariables(this.getWikiPage().getParentForVariables());
       return includedPage.getData().getContent();
     } else if (includingPage instanceof ProxyPage) {
+      RenderedHtmlCache.doNotCache();
       ProxyPage proxy = (ProxyPage) includingPage;
       String host = proxy.getHost();
       int port = proxy.getHostPort();
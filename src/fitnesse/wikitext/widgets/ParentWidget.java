@@ -6,12 +6,12 @@ import fitnesse.wikitext.WidgetBuilder;
 import fitnesse.wikitext.WidgetVisitor;
 import fitnesse.wikitext.WikiWidget;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Pattern;
 
 public abstract class ParentWidget extends WikiWidget {
-  protected LinkedList<WikiWidget> children = new LinkedList<WikiWidget>();
+  protected List<WikiWidget> children = new ArrayList<WikiWidget>();
   private int currentChild = 0;
 
   public ParentWidget(ParentWidget parent) {
@@ -63,19 +63,22 @@ public abstract class ParentWidget extends WikiWidget {
   }
 
   public String childHtml() throws Exception {
+    StringBuilder html = new StringBuilder();
+    renderChildren(html);
+    return html.toString();
+  }
+
+  public void renderChildren(Appendable html) throws Exception {
     currentChild = 0;
-    StringBuffer html = new StringBuffer();
     while (hasNextChild()) {
       WikiWidget child = nextChild();
-      html.append(child.render());
+      child.render(html);
     }
-
-    return html.toString();
   }
 
   public String childWikiText() throws Exception {
     currentChild = 0;
-    StringBuffer wikiText = new StringBuffer();
+    StringBuilder wikiText = new StringBuilder();
     while (hasNextChild()) {
       WikiWidget child = nextChild();
       wikiText.append(child.asWikiText());
@@ -149,7 +152,7 @@ public abstract class ParentWidget extends WikiWidget {
     }
 
     public String childHtml() throws Exception {
-      StringBuffer html = new StringBuffer();
+      StringBuilder html = new StringBuilder();
       while (hasNextChild()) {
         WikiWidget child = nextChild();
         //TODO  Checking for TextWidget here is a nightmare.
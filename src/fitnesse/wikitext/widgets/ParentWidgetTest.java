@@ -73,6 +73,14 @@ public class ParentWidgetTest extends TestCase {
     assertEquals("mock1mock2", parent.childHtml());
   }
 
+  public void testRenderChildren() throws Exception {
+    new MockWidget(parent, "mock1");
+    new MockWidget(parent, "mock2");
+    StringBuilder html = new StringBuilder();
+    parent.renderChildren(html);
+    assertEquals("mock1mock2", html.toString());
+  }
+
   public void testVariables() throws Exception {
     ParentWidget root = new WidgetRoot(rootPage);
     ParentWidget parent1 = new MockParentWidget(root);
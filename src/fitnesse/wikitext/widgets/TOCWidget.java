@@ -260,7 +260,10 @@ public class TOCWidget extends WikiWidget {
     if (wikiPage.hasExtension(VirtualCouplingExtension.NAME)) {
       VirtualCouplingExtension extension = (VirtualCouplingExtension) wikiPage.getExtension(VirtualCouplingExtension.NAME);
       WikiPage virtualCoupling = extension.getVirtualCoupling();
-      childPageList.addAll(virtualCoupling.getChildren());
+      List<WikiPage> virtualChildren = virtualCoupling.getChildren();
+      if (!virtualChildren.isEmpty())
+        RenderedHtmlCache.doNotCache();
+      childPageList.addAll(virtualChildren);
     }
     sortPageList(childPageList);
     return childPageList;
@@ -2,7 +2,7 @@
 // Released under the terms of the GNU General Public License version 2 or later.
 package fitnesse.wikitext.widgets;
 
-import fitnesse.html.HtmlTag;
+import fitnesse.html.HtmlElement;
 import fitnesse.wikitext.WidgetBuilder;
 
 import java.util.regex.Pattern;
@@ -13,11 +13,13 @@ public class TableCellWidget extends ParentWidget {
 
   private TableRowWidget parentRow = null;
   private boolean isLiteral;
+  private int column;
 
   public TableCellWidget(TableRowWidget parentRow, String text, boolean isLiteral) throws Exception {
     super(parentRow);
     this.parentRow = parentRow;
     this.isLiteral = isLiteral;
+    column = parentRow.numberOfChildren();
     addChildWidgets(groomText(text));
   }
 
@@ -27,23 +29,25 @@ public class TableCellWidget extends ParentWidget {
   }
 
   public String render() throws Exception {
-    return makeCellTag();
+    StringBuilder html = new StringBuilder();
+    render(html);
+    return html.toString();
   }
 
-  private String makeCellTag() throws Exception {
-    HtmlTag cellTag = new HtmlTag("td");
-    if (computeColSpan().length() > 0) {
-      cellTag.addAttribute("colspan", computeColSpan());
-    }
-    if (childHtml().equals(""))
-      cellTag.add("&nbsp;");
-    else
-      cellTag.add(childHtml());
-    return cellTag.html();
+  // Writes the same html as an HtmlTag("td") would, without rendering the content twice.
+  public void render(Appendable html) throws Exception {
+    html.append("<td");
+    String colspan = computeColSpan();
+    if (colspan.length() > 0)
+      html.append(" colspan=\"").append(colspan).append("\"");
+    html.append(">");
+    String content = childHtml();
+    html.append(content.length() == 0 ? "&nbsp;" : content);
+    html.append("</td>").append(HtmlElement.endl);
   }
 
   private String computeColSpan() {
-    int currentColumn = parentRow.children.indexOf(this) + 1;
+    int currentColumn = column;
     int maxTableColumn = parentRow.getParentTable().getColumns();
     int maxColumnThisRow = parentRow.numberOfChildren();
 
@@ -27,17 +27,21 @@ public class TableRowWidget extends ParentWidget {
   }
 
   public String render() throws Exception {
-    StringBuffer html = new StringBuffer("<tr>");
-    html.append(childHtml()).append("</tr>\n");
+    StringBuilder html = new StringBuilder();
+    render(html);
     return html.toString();
   }
 
+  public void render(Appendable html) throws Exception {
+    html.append("<tr>");
+    renderChildren(html);
+    html.append("</tr>\n");
+  }
+
   public void addCells(String text) throws Exception {
     Matcher match = pattern.matcher(text);
-    if (match.find()) {
+    while (match.find())
       new TableCellWidget(this, match.group(1), isLiteral);
-      addCells(text.substring(match.end()));
-    }
   }
 }
 
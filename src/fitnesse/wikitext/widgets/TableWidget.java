@@ -9,7 +9,8 @@ import java.util.regex.Pattern;
 
 public class TableWidget extends ParentWidget {
   public static final String LF = LineBreakWidget.REGEXP;
-  public static final String REGEXP = "^!?(?:\\|[^\r\n]*?\\|" + LF + ")+";
+  // Possessive, so that matching a table does not take a stack frame per row.
+  public static final String REGEXP = "^!?(?:\\|[^\r\n]*?\\|" + LF + ")++";
   private static final Pattern pattern = Pattern.compile("(!?)(\\|[^\r\n]*?)\\|" + LF);
 
   public boolean isLiteralTable;
@@ -20,14 +21,14 @@ public class TableWidget extends ParentWidget {
   }
 
   public String asWikiText() throws Exception {
-    StringBuffer wikiText = new StringBuffer();
+    StringBuilder wikiText = new StringBuilder();
     if (isLiteralTable)
       wikiText.append("!");
     appendTableWikiText(wikiText);
     return wikiText.toString();
   }
 
-  private void appendTableWikiText(StringBuffer wikiText) throws Exception {
+  private void appendTableWikiText(StringBuilder wikiText) throws Exception {
     for (WikiWidget rowWidget : getChildren()) {
       TableRowWidget row = (TableRowWidget) rowWidget;
       wikiText.append("|");
@@ -36,7 +37,7 @@ public class TableWidget extends ParentWidget {
     }
   }
 
-  private void appendRowWikiText(StringBuffer wikiText, TableRowWidget row) throws Exception {
+  private void appendRowWikiText(StringBuilder wikiText, TableRowWidget row) throws Exception {
     for (WikiWidget cellWidget : row.getChildren()) {
       TableCellWidget cell = (TableCellWidget) cellWidget;
       appendCellWikiText(wikiText, cell);
@@ -44,7 +45,7 @@ public class TableWidget extends ParentWidget {
     }
   }
 
-  private void appendCellWikiText(StringBuffer wikiText, TableCellWidget cell) throws Exception {
+  private void appendCellWikiText(StringBuilder wikiText, TableCellWidget cell) throws Exception {
     for (WikiWidget contentWidget : cell.getChildren())
       wikiText.append(contentWidget.asWikiText());
   }
@@ -68,18 +69,21 @@ public class TableWidget extends ParentWidget {
   }
 
   public String render() throws Exception {
-    StringBuffer html = new StringBuffer("<table border=\"1\" cellspacing=\"0\">\n");
-    html.append(childHtml()).append("</table>\n");
-
+    StringBuilder html = new StringBuilder();
+    render(html);
     return html.toString();
   }
 
+  public void render(Appendable html) throws Exception {
+    html.append("<table border=\"1\" cellspacing=\"0\">\n");
+    renderChildren(html);
+    html.append("</table>\n");
+  }
+
   public void addRows(String text) throws Exception {
     Matcher match = pattern.matcher(text);
-    if (match.find()) {
+    while (match.find())
       new TableRowWidget(this, match.group(2), isLiteralTable);
-      addRows(text.substring(match.end()));
-    }
   }
 
   public void setLiteralTable(boolean isLiteralTable) {
@@ -72,6 +72,23 @@ public class TableWidgetTest extends WidgetTestCase {
     assertEquals(expected, table.render());
   }
 
+  public void testRendersIntoAppendable() throws Exception {
+    TableWidget table = new TableWidget(new MockWidgetRoot(), "|a|\n|b|c|\n");
+    StringBuilder html = new StringBuilder("before ");
+    table.render(html);
+    assertEquals("before " + table.render(), html.toString());
+  }
+
+  public void testManyRows() throws Exception {
+    StringBuffer text = new StringBuffer();
+    for (int i = 0; i < 10000; i++)
+      text.append("|").append(i).append("|cell|\n");
+    TableWidget table = new TableWidget(new MockWidgetRoot(), text.toString());
+    assertEquals(10000, table.numberOfChildren());
+    assertEquals(2, table.getColumns());
+    assertSubString("<tr><td>9999</td>", table.render());
+  }
+
   public void testTestTable() throws Exception {
     TableWidget table = new TableWidget(new MockWidgetRoot(), "!|'''bold text'''|\n");
     assertTrue(table.isLiteralTable);
@@ -3,8 +3,8 @@
 package fitnesse.wikitext.widgets;
 
 import fitnesse.FitNesseContext;
-import fitnesse.wiki.PageData;
 import fitnesse.wiki.PagePointer;
+import fitnesse.wiki.RenderedHtmlCache;
 import fitnesse.wiki.WikiPage;
 import fitnesse.wikitext.WidgetBuilder;
 
@@ -92,6 +92,10 @@ public class WidgetRoot extends ParentWidget {
     return childHtml();
   }
 
+  public void render(Appendable html) throws Exception {
+    renderChildren(html);
+  }
+
   public String getVariable(String key) throws Exception {
     String value = (String) variables.get(key);
 
@@ -105,10 +109,9 @@ public class WidgetRoot extends ParentWidget {
     WikiPage page = getWikiPage();
     while (value == null && !page.getPageCrawler().isRoot(page)) {
       page = page.getParentForVariables(); // follow parents for variables
-      // Gain access to page data to set parent's literal list
-      PageData pageData = page.getData();
-      pageData.setLiterals(this.getLiterals());
-      value = pageData.getVariable(key);
+      RenderedHtmlCache.pageRead(page);
+      // Only what the parent itself defines; its literals are added to this root's list
+      value = page.getReadOnlyData().getVariable(key, this.getLiterals());
     }
     if (value == null) {
       value = System.getenv(key);
@@ -123,6 +126,10 @@ public class WidgetRoot extends ParentWidget {
     variables.put(key, value);
   }
 
+  public Map<String, String> getVariables() {
+    return variables;
+  }
+
   public int defineLiteral(String literal) {
     int literalNumber = literals.size();
     literals.add(literal);